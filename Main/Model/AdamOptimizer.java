@@ -0,0 +1,129 @@
+package cpen221.mp3.Model;
+
+public final class AdamOptimizer implements Optimizer {
+    private final double beta1;
+    private final double beta2;
+    private final double epsilon;
+
+    /*
+     ABSTRACTION FUNCTION:
+     - An Adam optimizer keeps moving averages of the gradient and of the square of the
+     gradient of every parameter, corrects both for their initial bias towards zero, and
+     moves the parameter against the corrected average gradient divided by the square
+     root of the corrected average squared gradient.
+     - state[p] is the average gradient of parameter p and state[parameters.length + p]
+     is its average squared gradient.
+
+     REPRESENTATION INVARIANT:
+     - 0 <= beta1 < 1
+     - 0 <= beta2 < 1
+     - epsilon > 0
+     */
+
+    /**
+     * Create an Adam optimizer with betas of 0.9 and 0.999 and an epsilon of 1e-8.
+     */
+    public AdamOptimizer() {
+        this(0.9, 0.999, 1e-8);
+    }
+
+    /**
+     * Create an Adam optimizer.
+     * @param beta1 the fraction of the previous average gradient that is kept
+     * @param beta2 the fraction of the previous average squared gradient that is kept
+     * @param epsilon the value added to the square root of the average squared gradient
+     *                to avoid dividing by zero
+     * Pre-condition: 0 <= beta1 < 1, 0 <= beta2 < 1, epsilon > 0
+     */
+    public AdamOptimizer(double beta1, double beta2, double epsilon) {
+        this.beta1 = beta1;
+        this.beta2 = beta2;
+        this.epsilon = epsilon;
+    }
+
+    /**
+     * Get the fraction of the previous average gradient that is kept.
+     * @return beta1
+     */
+    double getBeta1() {
+        return beta1;
+    }
+
+    /**
+     * Get the fraction of the previous average squared gradient that is kept.
+     * @return beta2
+     */
+    double getBeta2() {
+        return beta2;
+    }
+
+    /**
+     * Get the value added to the square root of the average squared gradient.
+     * @return the epsilon
+     */
+    double getEpsilon() {
+        return epsilon;
+    }
+
+    @Override
+    public int getStateSize() {
+        return 2;
+    }
+
+    @Override
+    public void update(double[] parameters, double[] gradients, double[] state, double learnRate, long step) {
+        int length = parameters.length;
+        double correction1 = 1 / (1 - Math.pow(beta1, step));
+        double correction2 = 1 / (1 - Math.pow(beta2, step));
+        for (int p = 0; p < length; p++) {
+            double gradient = gradients[p];
+            double mean = beta1 * state[p] + (1 - beta1) * gradient;
+            double variance = beta2 * state[length + p] + (1 - beta2) * gradient * gradient;
+            state[p] = mean;
+            state[length + p] = variance;
+            parameters[p] -= learnRate * mean * correction1 / (Math.sqrt(variance * correction2) + epsilon);
+        }
+    }
+
+    @Override
+    public void update(float[] parameters, float[] gradients, float[] state, float learnRate, long step) {
+        int length = parameters.length;
+        float beta1 = (float) this.beta1;
+        float beta2 = (float) this.beta2;
+        float epsilon = (float) this.epsilon;
+        float correction1 = (float) (1 / (1 - Math.pow(this.beta1, step)));
+        float correction2 = (float) (1 / (1 - Math.pow(this.beta2, step)));
+        for (int p = 0; p < length; p++) {
+            float gradient = gradients[p];
+            float mean = beta1 * state[p] + (1 - beta1) * gradient;
+            float variance = beta2 * state[length + p] + (1 - beta2) * gradient * gradient;
+            state[p] = mean;
+            state[length + p] = variance;
+            parameters[p] -= learnRate * mean * correction1 / ((float) Math.sqrt(variance * correction2) + epsilon);
+        }
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof AdamOptimizer)) {
+            return false;
+        }
+        AdamOptimizer optimizer = (AdamOptimizer) other;
+        return Double.compare(beta1, optimizer.beta1) == 0
+                && Double.compare(beta2, optimizer.beta2) == 0
+                && Double.compare(epsilon, optimizer.epsilon) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Double.hashCode(beta1);
+        result = 31 * result + Double.hashCode(beta2);
+        result = 31 * result + Double.hashCode(epsilon);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "Adam(" + beta1 + ", " + beta2 + ", " + epsilon + ")";
+    }
+}
@@ -0,0 +1,37 @@
+package cpen221.mp3.Model;
+
+final class ArraySeriesSource implements SeriesSource {
+    private final double[] values;
+
+    /*
+     ABSTRACTION FUNCTION:
+     - An array series source is the series of values, read in place.
+
+     REPRESENTATION INVARIANT:
+     - values != null
+     - values is never changed through this source
+     */
+
+    /**
+     * Create a series source of the values of an array.
+     * @param values the values of the series, which are not copied
+     */
+    ArraySeriesSource(double[] values) {
+        this.values = values;
+    }
+
+    @Override
+    public long length() {
+        return values.length;
+    }
+
+    @Override
+    public double get(long index) {
+        return values[(int) index];
+    }
+
+    @Override
+    public void read(long index, double[] destination, int offset, int length) {
+        System.arraycopy(values, (int) index, destination, offset, length);
+    }
+}
@@ -0,0 +1,119 @@
+package cpen221.mp3.Model;
+
+import java.util.function.BiConsumer;
+
+public final class CompiledNetwork {
+    private final ParameterSnapshot snapshot;
+    private final boolean isBoolean;
+    private final BiConsumer<double[], double[]> kernel;
+    private final ThreadLocal<double[]> outputs;
+
+    /*
+     ABSTRACTION FUNCTION:
+     - A compiled network forecasts with the weights and biases of snapshot and the activation
+     function chosen by isBoolean. kernel is the forward pass of snapshot compiled into a class
+     of its own by KernelCompiler, or null if it could not be compiled, in which case the
+     compiled network forecasts with the forward pass of snapshot instead.
+     - Either way the forecasts are the same as those of snapshot with the same isBoolean.
+     - outputs holds the output of the last layer of the forward passes of each thread.
+
+     REPRESENTATION INVARIANT:
+     - snapshot != null
+     - kernel == null or kernel writes the output of the forward pass of snapshot with the
+       activation function of isBoolean
+     - outputs gives arrays with one element per node of the last layer
+     */
+
+    /**
+     * Create a compiled network of a snapshot.
+     * @param snapshot the snapshot whose weights and biases are used
+     * @param isBoolean whether the compiled network uses the boolean activation function
+     * @param kernel the compiled forward pass of snapshot, or null to use the forward pass of snapshot
+     */
+    CompiledNetwork(ParameterSnapshot snapshot, boolean isBoolean, BiConsumer<double[], double[]> kernel) {
+        this.snapshot = snapshot;
+        this.isBoolean = isBoolean;
+        this.kernel = kernel;
+        int[] layerSizes = snapshot.getLayerSizes();
+        int outputSize = layerSizes[layerSizes.length - 1];
+        this.outputs = ThreadLocal.withInitial(() -> new double[outputSize]);
+    }
+
+    /**
+     * Predict the next steps of the given data input, as NeuralNetwork.forecast does.
+     * @param dataInput an array of doubles representing the data input
+     * @param steps the number of steps to predict
+     * @return an array of doubles representing the predictions
+     * Pre-condition: the neural network was trained with train,
+     *                dataInput.length >= the number of nodes of the first layer
+     */
+    public double[] forecast(double[] dataInput, int steps) {
+        return rollout(ForwardPass.lastWindow(dataInput, snapshot.getInputSize()), steps);
+    }
+
+    /**
+     * Predict the next steps of the given data input, as NeuralNetwork.forecastTimeStamp does.
+     * @param dataInput an array of doubles representing the data input
+     * @param steps the number of steps to predict
+     * @return an array of doubles representing the predictions
+     * Pre-condition: the neural network was trained with trainTimeStamp,
+     *                dataInput.length > the number of nodes of the first layer
+     */
+    public double[] forecastTimeStamp(double[] dataInput, int steps) {
+        double[] currentInput = ForwardPass.lastDifferenceWindow(dataInput, snapshot.getInputSize());
+        return ForwardPass.integrate(dataInput, rollout(currentInput, steps));
+    }
+
+    /**
+     * Predict the next steps that follow the given input window, as NeuralNetwork.forecastWindow does.
+     * @param window the last input window, which is not changed
+     * @param steps the number of steps to predict
+     * @return an array of doubles representing the predictions
+     * Pre-condition: window.length == the number of nodes of the first layer
+     */
+    public double[] forecastWindow(double[] window, int steps) {
+        return rollout(window.clone(), steps);
+    }
+
+    /**
+     * Check whether the forward pass was compiled, or the compiled network falls back to the
+     * forward pass of its snapshot because the runtime has no Java compiler or the network is too large.
+     * @return true if the forward pass is a compiled kernel and false otherwise
+     */
+    public boolean isCompiled() {
+        return kernel != null;
+    }
+
+    /**
+     * Check whether the compiled network uses the boolean activation function.
+     * @return true if the network predicts a boolean and false otherwise
+     */
+    public boolean isBoolean() {
+        return isBoolean;
+    }
+
+    /**
+     * Get the snapshot whose weights and biases the compiled network uses.
+     * @return the snapshot of the compiled network
+     */
+    public ParameterSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Predict the next steps that follow an input window with the compiled forward pass.
+     * @param currentInput the last input window, which is changed by this method
+     * @param steps the number of steps to predict
+     * @return an array of doubles representing the predictions
+     */
+    double[] rollout(double[] currentInput, int steps) {
+        if (kernel == null) {
+            return snapshot.interpret(currentInput, steps, isBoolean);
+        }
+        double[] output = outputs.get();
+        return ForwardPass.rollout((inputs, booleanOutput) -> {
+            kernel.accept(inputs, output);
+            return output;
+        }, snapshot.getHorizon(), currentInput, steps, isBoolean);
+    }
+}
@@ -0,0 +1,405 @@
+package cpen221.mp3.Model;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+public final class CsvSeriesReader {
+    private static final int CHUNK_BYTES = 1 << 20;
+    private static final int BLOCK = 4096;
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    private static final int MAX_DIGITS = 18;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final int SMALLEST_POWER = -342;
+    private static final int LARGEST_POWER = 308;
+    private static final long[] POWERS_OF_FIVE = powersOfFive();
+
+    private final Path path;
+    private final int column;
+    private final boolean header;
+
+    /*
+     ABSTRACTION FUNCTION:
+     - A CSV series reader reads the series in column column of the CSV file path, one value
+     per line, skipping the first line if header is true and blank lines.
+     - The file is read in chunks of CHUNK_BYTES bytes and its values are parsed straight from
+     the bytes into blocks of BLOCK doubles, so no String is created for a line or a value.
+     A field may be surrounded by spaces and double quotes, and lines may end with "\r\n".
+     - A number whose significant digits form an integer of at most MAX_EXACT_MANTISSA and
+     whose decimal exponent is at most 22 is an exact double times or divided by an exact
+     power of ten, so it is parsed with one rounding, which gives the same value as
+     Double.parseDouble.
+     - Other numbers of at most MAX_DIGITS significant digits, such as the 17 digits that
+     Double.toString writes, are parsed with the algorithm of Eisel and Lemire: the digits are
+     multiplied by a 128-bit approximation of the power of ten, POWERS_OF_FIVE[2 * (q - SMALLEST_POWER)]
+     and the next element for 10^q, which gives the correctly rounded double unless the product
+     is too close to halfway between two doubles. Those numbers, subnormal numbers and every
+     other number are parsed with Double.parseDouble.
+
+     REPRESENTATION INVARIANT:
+     - path != null
+     - column >= 0
+     */
+
+    /**
+     * Create a reader of one column of a CSV file.
+     * @param path the CSV file
+     * @param column the index of the column of the series, starting at 0
+     * @param header whether the first line of the file is a header that is skipped
+     * Pre-condition: column >= 0
+     */
+    public CsvSeriesReader(Path path, int column, boolean header) {
+        this.path = path;
+        this.column = column;
+        this.header = header;
+    }
+
+    /**
+     * Read the series of the file into an array.
+     * @return the values of the series
+     * @throws IOException if the file cannot be read or a line has no number in the column
+     */
+    public double[] read() throws IOException {
+        double[][] values = {new double[BLOCK]};
+        int[] count = {0};
+        parse((block, length) -> {
+            if (count[0] + length > values[0].length) {
+                values[0] = Arrays.copyOf(values[0], Math.max(values[0].length * 2, count[0] + length));
+            }
+            System.arraycopy(block, 0, values[0], count[0], length);
+            count[0] += length;
+        });
+        return Arrays.copyOf(values[0], count[0]);
+    }
+
+    /**
+     * Convert the series of the file into a binary series file that MappedSeriesSource can map,
+     * without holding more than one chunk of the series in memory.
+     * @param binary the binary file to write, which is replaced if it exists
+     * @param precision whether the values are written as doubles or floats
+     * @return the number of values of the series
+     * @throws IOException if a file cannot be read or written or a line has no number in the column
+     */
+    public long convert(Path binary, Precision precision) throws IOException {
+        try (SeriesFileWriter writer = new SeriesFileWriter(binary, precision)) {
+            parse(writer::append);
+            return writer.getCount();
+        }
+    }
+
+    private interface BlockConsumer {
+
+        /**
+         * Receive the next values of the series.
+         * @param block the values, which are overwritten after this returns
+         * @param length the number of values of the block, from the first
+         * @throws IOException if the values cannot be stored
+         */
+        void accept(double[] block, int length) throws IOException;
+    }
+
+    /**
+     * Parse the series of the file, handing its values to the consumer in order, one block at a time.
+     * @param consumer the consumer of the blocks
+     * @throws IOException if the file cannot be read, a line has no number in the column
+     *                     or the consumer fails
+     */
+    private void parse(BlockConsumer consumer) throws IOException {
+        double[] block = new double[BLOCK];
+        int blockLength = 0;
+        long lineNumber = 0;
+        boolean skip = header;
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer chunk = ByteBuffer.allocate((int) Math.min(CHUNK_BYTES, channel.size() + 1));
+            byte[] bytes = chunk.array();
+            boolean end = false;
+            while (!end) {
+                end = channel.read(chunk) < 0;
+                int limit = chunk.position();
+                int lineStart = 0;
+
+                while (lineStart < limit) {
+                    int lineEnd = lineStart;
+                    while (lineEnd < limit && bytes[lineEnd] != '\n') {
+                        lineEnd++;
+                    }
+                    if (lineEnd == limit && !end) {
+                        break;
+                    }
+                    lineNumber++;
+
+                    int contentEnd = lineEnd > lineStart && bytes[lineEnd - 1] == '\r' ? lineEnd - 1 : lineEnd;
+                    if (skip) {
+                        skip = false;
+                    } else if (!isBlank(bytes, lineStart, contentEnd)) {
+                        block[blockLength++] = parseField(bytes, lineStart, contentEnd, lineNumber);
+                        if (blockLength == BLOCK) {
+                            consumer.accept(block, blockLength);
+                            blockLength = 0;
+                        }
+                    }
+                    lineStart = lineEnd + 1;
+                }
+
+                if (!end && lineStart == 0 && limit == bytes.length) {
+                    throw new IOException("Line " + (lineNumber + 1) + " is longer than " + CHUNK_BYTES
+                            + " bytes: " + path);
+                }
+                chunk.position(Math.min(lineStart, limit));
+                chunk.limit(limit);
+                chunk.compact();
+            }
+        }
+        if (blockLength > 0) {
+            consumer.accept(block, blockLength);
+        }
+    }
+
+    /**
+     * Parse the number in the column of a line.
+     * @param bytes the bytes of the chunk of the line
+     * @param start the index of the first byte of the line
+     * @param end the index after the last byte of the line, without its line break
+     * @param lineNumber the number of the line in the file, starting at 1
+     * @return the number in the column
+     * @throws IOException if the line has no number in the column
+     */
+    private double parseField(byte[] bytes, int start, int end, long lineNumber) throws IOException {
+        int fieldStart = start;
+        for (int c = 0; c < column; c++) {
+            while (fieldStart < end && bytes[fieldStart] != ',') {
+                fieldStart++;
+            }
+            if (fieldStart == end) {
+                throw new IOException("Line " + lineNumber + " has no column " + column + ": " + path);
+            }
+            fieldStart++;
+        }
+        int fieldEnd = fieldStart;
+        while (fieldEnd < end && bytes[fieldEnd] != ',') {
+            fieldEnd++;
+        }
+
+        while (fieldStart < fieldEnd && (bytes[fieldStart] == ' ' || bytes[fieldStart] == '"')) {
+            fieldStart++;
+        }
+        while (fieldEnd > fieldStart && (bytes[fieldEnd - 1] == ' ' || bytes[fieldEnd - 1] == '"')) {
+            fieldEnd--;
+        }
+
+        double value = parseDecimal(bytes, fieldStart, fieldEnd);
+        if (!Double.isNaN(value)) {
+            return value;
+        }
+        String text = new String(bytes, fieldStart, fieldEnd - fieldStart, StandardCharsets.ISO_8859_1);
+        try {
+            return Double.parseDouble(text);
+        } catch (NumberFormatException e) {
+            throw new IOException("Line " + lineNumber + " has no number in column " + column + ": " + path, e);
+        }
+    }
+
+    /**
+     * Parse a decimal number without creating a String.
+     * @param bytes the bytes of the number
+     * @param start the index of the first byte of the number
+     * @param end the index after the last byte of the number
+     * @return the number, or NaN if it is not a plain decimal number of at most MAX_DIGITS significant
+     *         digits or cannot be rounded correctly without Double.parseDouble
+     */
+    private static double parseDecimal(byte[] bytes, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (bytes[i] == '-' || bytes[i] == '+')) {
+            negative = bytes[i] == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int significantDigits = 0;
+        int exponent = 0;
+        boolean point = false;
+        for (; i < end; i++) {
+            byte b = bytes[i];
+            if (b >= '0' && b <= '9') {
+                digits++;
+                if (mantissa != 0 || b != '0') {
+                    significantDigits++;
+                    if (significantDigits > MAX_DIGITS) {
+                        return Double.NaN;
+                    }
+                }
+                mantissa = mantissa * 10 + (b - '0');
+                if (point) {
+                    exponent--;
+                }
+            } else if (b == '.' && !point) {
+                point = true;
+            } else {
+                break;
+            }
+        }
+        if (digits == 0) {
+            return Double.NaN;
+        }
+
+        if (i < end && (bytes[i] == 'e' || bytes[i] == 'E')) {
+            i++;
+            boolean negativeExponent = false;
+            if (i < end && (bytes[i] == '-' || bytes[i] == '+')) {
+                negativeExponent = bytes[i] == '-';
+                i++;
+            }
+            int exponentDigits = 0;
+            int written = 0;
+            for (; i < end && bytes[i] >= '0' && bytes[i] <= '9'; i++) {
+                if (written > 1000) {
+                    return Double.NaN;
+                }
+                written = written * 10 + (bytes[i] - '0');
+                exponentDigits++;
+            }
+            if (exponentDigits == 0) {
+                return Double.NaN;
+            }
+            exponent += negativeExponent ? -written : written;
+        }
+        if (i != end) {
+            return Double.NaN;
+        }
+
+        double value;
+        if (mantissa == 0) {
+            value = 0;
+        } else if (mantissa <= MAX_EXACT_MANTISSA && exponent >= -22 && exponent <= 22) {
+            value = exponent >= 0 ? mantissa * POWERS_OF_TEN[exponent] : mantissa / POWERS_OF_TEN[-exponent];
+        } else {
+            value = multiplyByPowerOfTen(mantissa, exponent);
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Round the product of an integer and a power of ten to the nearest double with the
+     * algorithm of Eisel and Lemire.
+     * @param mantissa the integer
+     * @param exponent the exponent of the power of ten
+     * @return the correctly rounded product, or NaN if it cannot be rounded with a 128-bit
+     *         approximation of the power of ten or is not a normal double
+     * Pre-condition: mantissa > 0
+     */
+    private static double multiplyByPowerOfTen(long mantissa, int exponent) {
+        if (exponent < SMALLEST_POWER || exponent > LARGEST_POWER) {
+            return Double.NaN;
+        }
+        int index = 2 * (exponent - SMALLEST_POWER);
+        int leadingZeros = Long.numberOfLeadingZeros(mantissa);
+        long normalized = mantissa << leadingZeros;
+
+        long factorHigh = POWERS_OF_FIVE[index];
+        long lower = normalized * factorHigh;
+        long upper = unsignedMultiplyHigh(normalized, factorHigh);
+        if ((upper & 0x1FF) == 0x1FF && Long.compareUnsigned(lower + normalized, lower) < 0) {
+            long factorLow = POWERS_OF_FIVE[index + 1];
+            long productLow = normalized * factorLow;
+            long middle = lower + unsignedMultiplyHigh(normalized, factorLow);
+            if (Long.compareUnsigned(middle, lower) < 0) {
+                upper++;
+            }
+            if (middle + 1 == 0 && (upper & 0x1FF) == 0x1FF
+                    && Long.compareUnsigned(productLow + normalized, productLow) < 0) {
+                return Double.NaN;
+            }
+            lower = middle;
+        }
+
+        int upperBit = (int) (upper >>> 63);
+        long significand = upper >>> (upperBit + 9);
+        leadingZeros += 1 ^ upperBit;
+        if (lower == 0 && (upper & 0x1FF) == 0 && (significand & 3) == 1) {
+            return Double.NaN;
+        }
+        significand += significand & 1;
+        significand >>>= 1;
+        if (significand >= 1L << 53) {
+            significand = 1L << 52;
+            leadingZeros--;
+        }
+        significand &= ~(1L << 52);
+
+        long binaryExponent = (((152170L + 65536L) * exponent) >> 16) + 1024 + 63 - leadingZeros;
+        if (binaryExponent < 1 || binaryExponent > 2046) {
+            return Double.NaN;
+        }
+        return Double.longBitsToDouble(significand | binaryExponent << 52);
+    }
+
+    /**
+     * Get the high 64 bits of the unsigned 128-bit product of two unsigned longs.
+     * @param a the first factor
+     * @param b the second factor
+     * @return the high half of the product
+     */
+    private static long unsignedMultiplyHigh(long a, long b) {
+        return Math.multiplyHigh(a, b) + ((a >> 63) & b) + ((b >> 63) & a);
+    }
+
+    /**
+     * Compute the 128-bit approximations of the powers of five from 5^SMALLEST_POWER to 5^LARGEST_POWER,
+     * scaled by a power of two so that the highest bit is set. Positive powers are truncated and
+     * negative powers are rounded up, so the product with an integer is never too small.
+     * @return the high 64 bits of each power followed by its low 64 bits
+     */
+    private static long[] powersOfFive() {
+        long[] powers = new long[2 * (LARGEST_POWER - SMALLEST_POWER + 1)];
+        BigInteger twoTo128 = BigInteger.ONE.shiftLeft(128);
+        for (int q = SMALLEST_POWER; q <= LARGEST_POWER; q++) {
+            BigInteger power = BigInteger.valueOf(5).pow(Math.abs(q));
+            BigInteger approximation;
+            if (q >= 0) {
+                approximation = power.bitLength() <= 128
+                        ? power.shiftLeft(128 - power.bitLength())
+                        : power.shiftRight(power.bitLength() - 128);
+            } else {
+                int shift = power.bitLength() + 127;
+                if (q < -27) {
+                    shift = 2 * power.bitLength() + 128;
+                }
+                approximation = BigInteger.ONE.shiftLeft(shift).divide(power).add(BigInteger.ONE);
+                while (approximation.compareTo(twoTo128) >= 0) {
+                    approximation = approximation.shiftRight(1);
+                }
+            }
+            int index = 2 * (q - SMALLEST_POWER);
+            powers[index] = approximation.shiftRight(64).longValue();
+            powers[index + 1] = approximation.longValue();
+        }
+        return powers;
+    }
+
+    /**
+     * Check whether a line holds only spaces.
+     * @param bytes the bytes of the chunk of the line
+     * @param start the index of the first byte of the line
+     * @param end the index after the last byte of the line, without its line break
+     * @return true if the line is empty or holds only spaces and false otherwise
+     */
+    private static boolean isBlank(byte[] bytes, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (bytes[i] != ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,47 @@
+package cpen221.mp3.Model;
+
+final class DifferenceSeriesSource implements SeriesSource {
+    private final SeriesSource series;
+
+    /*
+     ABSTRACTION FUNCTION:
+     - A difference series source is the series whose value i is
+     series.get(i + 1) - series.get(i), computed when it is read.
+
+     REPRESENTATION INVARIANT:
+     - series != null
+     - series.length() > 0
+     */
+
+    /**
+     * Create a view of the differences between consecutive values of a series.
+     * @param series the series, which is not copied
+     * Pre-condition: series.length() > 0
+     */
+    DifferenceSeriesSource(SeriesSource series) {
+        this.series = series;
+    }
+
+    @Override
+    public long length() {
+        return series.length() - 1;
+    }
+
+    @Override
+    public double get(long index) {
+        return series.get(index + 1) - series.get(index);
+    }
+
+    @Override
+    public void read(long index, double[] destination, int offset, int length) {
+        if (length == 0) {
+            return;
+        }
+        series.read(index, destination, offset, length);
+        int last = offset + length - 1;
+        for (int i = offset; i < last; i++) {
+            destination[i] = destination[i + 1] - destination[i];
+        }
+        destination[last] = series.get(index + length) - destination[last];
+    }
+}
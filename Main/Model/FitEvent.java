@@ -0,0 +1,36 @@
+package cpen221.mp3.Model;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("cpen221.mp3.Fit")
+@Label("Fit")
+@Category("PredictionNN")
+@Description("Training of a neural network")
+@StackTrace(false)
+class FitEvent extends Event {
+    @Label("Layer Sizes")
+    String layerSizes;
+
+    @Label("Windows")
+    int windows;
+
+    @Label("Threads")
+    int threads;
+
+    @Label("Learn Rate")
+    double learnRate;
+
+    @Label("Iterations")
+    int iterations;
+
+    @Label("Stop Reason")
+    String stopReason;
+
+    @Label("Cost")
+    double cost;
+}
@@ -0,0 +1,182 @@
+package cpen221.mp3.Model;
+
+import java.util.Arrays;
+
+public class FloatLayer {
+    private final int nodeSize;
+    private final int nextNodeSize;
+    private final float[] weights;
+    private final float[] weightGradients;
+    private final float[] biases;
+    private final float[] biasGradients;
+    private final Optimizer optimizer;
+    private final float[] weightState;
+    private final float[] biasState;
+    private long step;
+
+    /*
+     ABSTRACTION FUNCTION:
+     - A float layer is a layer whose weights, biases, gradients and activations are
+     single-precision. The weight from node to nextNode is weights[nextNode * nodeSize + node],
+     so the weights of each next node are contiguous.
+     - updateGradients changes the weights and biases with optimizer, whose single-precision
+     state for the weights and biases is weightState and biasState; step is the number of
+     updates of this layer. The state and step start as those of the layer it was copied
+     from, and copyOptimizerStateTo hands them back, so a fit can continue where the last
+     one stopped in either precision.
+
+     REPRESENTATION INVARIANT:
+     - nodeSize > 0
+     - nextNodeSize > 0
+     - weights.length == weightGradients.length == nodeSize * nextNodeSize
+     - biases.length == biasGradients.length == nextNodeSize
+     - optimizer != null
+     - weightState.length == optimizer.getStateSize() * weights.length
+     - biasState.length == optimizer.getStateSize() * biases.length
+     */
+
+    /**
+     * Create a float layer with the weights, biases, optimizer and optimizer state of the given layer,
+     * rounded to float.
+     * @param layer the layer to copy
+     */
+    public FloatLayer(Layer layer) {
+        this.nodeSize = layer.getNodeSize();
+        this.nextNodeSize = layer.getNextNodeSize();
+        this.weights = new float[nodeSize * nextNodeSize];
+        this.weightGradients = new float[nodeSize * nextNodeSize];
+        this.biases = new float[nextNodeSize];
+        this.biasGradients = new float[nextNodeSize];
+        this.optimizer = layer.getOptimizer();
+        this.weightState = new float[optimizer.getStateSize() * weights.length];
+        this.biasState = new float[optimizer.getStateSize() * biases.length];
+
+        double[] layerBiases = layer.getBiases();
+        for (int i = 0; i < nextNodeSize; i++) {
+            for (int j = 0; j < nodeSize; j++) {
+                this.weights[i * nodeSize + j] = (float) layer.getWeight(j, i);
+            }
+            this.biases[i] = (float) layerBiases[i];
+        }
+        this.step = layer.writeOptimizerState(this.weightState, this.biasState);
+    }
+
+    /**
+     * Write the weights and biases of this layer into the arrays of the given layer without allocating.
+     * The optimizer state of the layer is not changed.
+     * @param layer the layer that receives the weights and biases
+     * Pre-condition: layer has the same number of nodes and next nodes as this layer
+     */
+    public void copyTo(Layer layer) {
+        layer.readParameters(this.weights, this.biases);
+    }
+
+    /**
+     * Write the optimizer state and step of this layer into the given layer without allocating.
+     * @param layer the layer that receives the optimizer state
+     * Pre-condition: layer has the same number of nodes, next nodes and optimizer as this layer
+     */
+    void copyOptimizerStateTo(Layer layer) {
+        layer.readOptimizerState(this.weightState, this.biasState, this.step);
+    }
+
+    /**
+     * Write the output of the layer into the given array without allocating.
+     * @param inputs the inputs to the layer
+     * @param outputs the array that receives the output of the layer
+     * @param isBoolean whether the layer uses the boolean activation function
+     * Pre-condition: inputs.length >= nodeSize, outputs.length == nextNodeSize, inputs != outputs
+     */
+    public void getOutput(float[] inputs, float[] outputs, boolean isBoolean) {
+        for (int i = 0; i < this.nextNodeSize; i++) {
+            float sum = this.biases[i] + LinearAlgebra.dot(inputs, 0, this.weights, i * this.nodeSize, this.nodeSize);
+            if (isBoolean) {
+                outputs[i] = (float) (1 / (1 + Math.exp(-sum)));
+            } else {
+                outputs[i] = sum < 0 ? 0 : sum;
+            }
+        }
+    }
+
+    /**
+     * Backpropagate through the layer without allocating.
+     * The weight and bias gradients of this pass are added to the gradients of the layer.
+     * @param inputs the inputs of the layer in the forward pass
+     * @param outputs the outputs of the layer in the forward pass
+     * @param outputGradients the derivative of the cost with respect to each output of the layer;
+     *                        it is overwritten with the derivative with respect to each weighted sum
+     * @param inputGradients the array that receives the derivative of the cost with respect to
+     *                       each input of the layer, or null if it is not needed
+     * @param isBoolean whether the layer uses the boolean activation function
+     * Pre-condition: inputs.length >= nodeSize, outputs.length == outputGradients.length == nextNodeSize,
+     *                inputGradients == null or inputGradients.length == nodeSize
+     */
+    public void backward(float[] inputs, float[] outputs, float[] outputGradients, float[] inputGradients,
+                         boolean isBoolean) {
+        if (inputGradients != null) {
+            Arrays.fill(inputGradients, 0, this.nodeSize, 0);
+        }
+
+        for (int i = 0; i < this.nextNodeSize; i++) {
+            float delta;
+            if (isBoolean) {
+                delta = outputGradients[i] * outputs[i] * (1 - outputs[i]);
+            } else {
+                delta = outputs[i] > 0 ? outputGradients[i] : 0;
+            }
+            outputGradients[i] = delta;
+            this.biasGradients[i] += delta;
+            if (delta == 0) {
+                continue;
+            }
+            int offset = i * this.nodeSize;
+            LinearAlgebra.axpy(delta, inputs, 0, this.weightGradients, offset, this.nodeSize);
+            if (inputGradients != null) {
+                LinearAlgebra.axpy(delta, this.weights, offset, inputGradients, 0, this.nodeSize);
+            }
+        }
+    }
+
+    /**
+     * Reset the weight and bias gradients of the layer to zero.
+     */
+    public void clearGradients() {
+        Arrays.fill(this.weightGradients, 0);
+        Arrays.fill(this.biasGradients, 0);
+    }
+
+    /**
+     * Update the weights and biases of the layer from their gradients with one step of the optimizer.
+     * @param learnRate the learning rate
+     */
+    public void updateGradients(float learnRate) {
+        step++;
+        optimizer.update(this.weights, this.weightGradients, this.weightState, learnRate, step);
+        optimizer.update(this.biases, this.biasGradients, this.biasState, learnRate, step);
+    }
+
+    /**
+     * Get the sum of the squares of the weight and bias gradients of the layer.
+     * @return the squared Euclidean norm of the gradients
+     */
+    double getGradientSquaredNorm() {
+        return (double) LinearAlgebra.dot(weightGradients, 0, weightGradients, 0, weightGradients.length)
+                + LinearAlgebra.dot(biasGradients, 0, biasGradients, 0, nextNodeSize);
+    }
+
+    /**
+     * Get the number of nodes in the layer.
+     * @return the number of nodes in the layer
+     */
+    public int getNodeSize() {
+        return nodeSize;
+    }
+
+    /**
+     * Get the number of next nodes in the layer.
+     * @return the number of next nodes in the layer
+     */
+    public int getNextNodeSize() {
+        return nextNodeSize;
+    }
+}
@@ -0,0 +1,131 @@
+package cpen221.mp3.Model;
+
+class FloatTrainer {
+    private final FloatLayer[] layers;
+    private final float[][] activations;
+    private final float[][] gradients;
+    private final float[] inputValues;
+    private final int[] inputOffsets;
+    private final float[] expectedValues;
+    private final int[] expectedOffsets;
+
+    /*
+     ABSTRACTION FUNCTION:
+     - A float trainer trains a single-precision copy of the layers of a neural network
+     by backpropagation. activations[0] is the input of the network and activations[l + 1]
+     is the output of layer l; gradients[l + 1] is the derivative of the cost with respect
+     to activations[l + 1].
+     - inputValues holds the values of the input windows of the fit rounded to float, and
+     input window i starts at inputOffsets[i]; expectedValues and expectedOffsets hold the
+     expected output windows in the same way. They are converted once when the fit starts.
+
+     REPRESENTATION INVARIANT:
+     - layers.length > 0
+     - activations.length == gradients.length == layers.length + 1
+     - gradients[0] == null
+     - inputOffsets.length == expectedOffsets.length > 0
+     - every window of inputOffsets and expectedOffsets is within inputValues and expectedValues
+     */
+
+    /**
+     * Create a float trainer with the weights, biases and optimizer state of the given layers and
+     * the windows of a fit, rounded to float.
+     * @param source the layers of the neural network
+     * @param inputs the inputs of the neural network
+     * @param expectedOut the expected outputs of the neural network
+     * Pre-condition: source.length > 0, inputs.size() == expectedOut.size() > 0
+     */
+    FloatTrainer(Layer[] source, SeriesWindows inputs, SeriesWindows expectedOut) {
+        this.layers = new FloatLayer[source.length];
+        this.activations = new float[source.length + 1][];
+        this.gradients = new float[source.length + 1][];
+
+        this.activations[0] = new float[source[0].getNodeSize()];
+        for (int l = 0; l < source.length; l++) {
+            this.layers[l] = new FloatLayer(source[l]);
+            this.activations[l + 1] = new float[source[l].getNextNodeSize()];
+            this.gradients[l + 1] = new float[source[l].getNextNodeSize()];
+        }
+
+        this.inputValues = inputs.toFloat();
+        this.expectedValues = expectedOut.toFloat();
+        this.inputOffsets = new int[inputs.size()];
+        this.expectedOffsets = new int[inputs.size()];
+        for (int i = 0; i < inputs.size(); i++) {
+            this.inputOffsets[i] = inputs.floatOffset(i);
+            this.expectedOffsets[i] = expectedOut.floatOffset(i);
+        }
+    }
+
+    /**
+     * Make the float layers learn with one step of gradient descent over every window of the fit.
+     * @param learnRate the learning rate of the neural network
+     * @param isBoolean whether the neural network is predicting a boolean
+     * @return the cost of the neural network before it learned
+     */
+    double learn(double learnRate, boolean isBoolean) {
+        FloatLayer outputLayer = layers[layers.length - 1];
+        float[] input = activations[0];
+        float[] outputs = activations[layers.length];
+        float[] outputGradients = gradients[layers.length];
+        float scale = 1.0f / inputOffsets.length;
+        double cost = 0;
+
+        for (FloatLayer layer : layers) {
+            layer.clearGradients();
+        }
+
+        for (int i = 0; i < inputOffsets.length; i++) {
+            System.arraycopy(inputValues, inputOffsets[i], input, 0, input.length);
+            for (int l = 0; l < layers.length; l++) {
+                layers[l].getOutput(activations[l], activations[l + 1], isBoolean);
+            }
+            for (int node = 0; node < outputLayer.getNextNodeSize(); node++) {
+                float difference = outputs[node] - expectedValues[expectedOffsets[i] + node];
+                cost += Math.abs(difference);
+                outputGradients[node] = Math.signum(difference) * scale;
+            }
+            for (int l = layers.length - 1; l >= 0; l--) {
+                layers[l].backward(activations[l], activations[l + 1], gradients[l + 1], gradients[l], isBoolean);
+            }
+        }
+
+        for (FloatLayer layer : layers) {
+            layer.updateGradients((float) learnRate);
+        }
+        return cost / inputOffsets.length;
+    }
+
+    /**
+     * Get the Euclidean norm of the gradients of every weight and bias of the last call to learn.
+     * @return the norm of the gradients
+     */
+    double gradientNorm() {
+        double sum = 0;
+        for (FloatLayer layer : layers) {
+            sum += layer.getGradientSquaredNorm();
+        }
+        return Math.sqrt(sum);
+    }
+
+    /**
+     * Write the weights and biases of the float layers into the given layers.
+     * @param target the layers of the neural network
+     */
+    void copyTo(Layer[] target) {
+        for (int l = 0; l < layers.length; l++) {
+            layers[l].copyTo(target[l]);
+        }
+    }
+
+    /**
+     * Write the optimizer state of the float layers into the given layers, so that the next
+     * fit continues with it.
+     * @param target the layers of the neural network
+     */
+    void copyOptimizerStateTo(Layer[] target) {
+        for (int l = 0; l < layers.length; l++) {
+            layers[l].copyOptimizerStateTo(target[l]);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package cpen221.mp3.Model;
+
+interface ForwardPass {
+
+    /*
+     ABSTRACTION FUNCTION:
+     - A forward pass maps an input window of a trained model to the values of its last layer.
+     It lets every representation of trained parameters share the forecasting loop.
+
+     REPRESENTATION INVARIANT:
+     - true
+     */
+
+    /**
+     * Run a forward pass.
+     * @param inputs the input window
+     * @param isBoolean whether the model is predicting a boolean
+     * @return the output of the last layer, which may be a buffer that is overwritten
+     *         by the next forward pass
+     */
+    double[] forward(double[] inputs, boolean isBoolean);
+
+    /**
+     * Predict the next steps by feeding the predictions back into the input. Each forward
+     * pass predicts one step if horizon is 0, and horizon steps otherwise.
+     * @param pass the forward pass of the model
+     * @param horizon the number of steps of one forward pass, or 0 for one step
+     * @param currentInput the last input window, which is changed by this method
+     * @param steps the number of steps to predict
+     * @param isBoolean whether the model is predicting a boolean
+     * @return an array of doubles representing the predictions
+     */
+    static double[] rollout(ForwardPass pass, int horizon, double[] currentInput, int steps, boolean isBoolean) {
+        double[] predictions = new double[steps];
+        int stepsPerPass = horizon == 0 ? 1 : horizon;
+
+        for (int i = 0; i < steps; i += stepsPerPass) {
+            double[] outputs = pass.forward(currentInput, isBoolean);
+            int count = Math.min(stepsPerPass, steps - i);
+            for (int k = 0; k < count; k++) {
+                if (isBoolean) {
+                    predictions[i + k] = outputs[k] > 0.5 ? 1 : 0;
+                } else {
+                    predictions[i + k] = outputs[k];
+                }
+            }
+            if (i + count == steps) {
+                break;
+            }
+
+            int keep = Math.max(0, currentInput.length - count);
+            System.arraycopy(currentInput, currentInput.length - keep, currentInput, 0, keep);
+            for (int j = keep; j < currentInput.length; j++) {
+                currentInput[j] = predictions[i + count - currentInput.length + j];
+            }
+        }
+        return predictions;
+    }
+
+    /**
+     * Run a forward pass through flat parameters, where each layer is stored as its weights,
+     * with the weights of each next node contiguous, followed by its biases.
+     * @param parameters the array of the parameters
+     * @param offset the index of the first parameter of the model in parameters
+     * @param layerSizes the number of nodes in each layer of the model
+     * @param inputs the inputs of the model
+     * @param buffers two arrays with at least as many doubles as any layer after the first has nodes,
+     *                which receive the activations
+     * @param isBoolean whether the model uses the boolean activation function
+     * @return the output of the model, which is one of buffers
+     */
+    static double[] dense(double[] parameters, int offset, int[] layerSizes, double[] inputs, double[][] buffers,
+                          boolean isBoolean) {
+        double[] current = inputs;
+        int position = offset;
+
+        for (int l = 0; l < layerSizes.length - 1; l++) {
+            int nodeSize = layerSizes[l];
+            int nextNodeSize = layerSizes[l + 1];
+            int biasOffset = position + nodeSize * nextNodeSize;
+            double[] outputs = buffers[l % 2];
+            for (int i = 0; i < nextNodeSize; i++) {
+                double sum = parameters[biasOffset + i]
+                        + LinearAlgebra.dot(current, 0, parameters, position + i * nodeSize, nodeSize);
+                if (isBoolean) {
+                    outputs[i] = 1 / (1 + Math.exp(-sum));
+                } else {
+                    outputs[i] = sum < 0 ? 0 : sum;
+                }
+            }
+            current = outputs;
+            position = biasOffset + nextNodeSize;
+        }
+        return current;
+    }
+
+    /**
+     * Get the last input window of a data input.
+     * @param dataInput an array of doubles representing the data input
+     * @param width the number of values in the window
+     * @return a new array with the last width values of dataInput
+     * Pre-condition: dataInput.length >= width
+     */
+    static double[] lastWindow(double[] dataInput, int width) {
+        double[] window = new double[width];
+        System.arraycopy(dataInput, dataInput.length - width, window, 0, width);
+        return window;
+    }
+
+    /**
+     * Get the last input window of the differences of a data input.
+     * @param dataInput an array of doubles representing the data input
+     * @param width the number of differences in the window
+     * @return a new array with the last width differences between consecutive values of dataInput
+     * Pre-condition: dataInput.length > width
+     */
+    static double[] lastDifferenceWindow(double[] dataInput, int width) {
+        double[] window = new double[width];
+        int start = dataInput.length - 1 - width;
+        for (int i = 0; i < width; i++) {
+            window[i] = dataInput[start + i + 1] - dataInput[start + i];
+        }
+        return window;
+    }
+
+    /**
+     * Turn predicted differences into predicted values that continue a data input.
+     * @param dataInput an array of doubles representing the data input
+     * @param differences the predicted differences, which are replaced by the predicted values
+     * @return differences, holding the predicted values
+     * Pre-condition: dataInput.length > 0
+     */
+    static double[] integrate(double[] dataInput, double[] differences) {
+        double value = dataInput[dataInput.length - 1];
+        for (int i = 0; i < differences.length; i++) {
+            value += differences[i];
+            differences[i] = value;
+        }
+        return differences;
+    }
+}
@@ -0,0 +1,267 @@
+package cpen221.mp3.Model;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.net.URI;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+final class KernelCompiler {
+    private static final int MAX_PARAMETERS = 1000;
+    private static final String CLASS_NAME = "CompiledKernel";
+    private static final boolean HAS_COMPILER = ModuleLayer.boot().findModule("jdk.compiler").isPresent();
+
+    /*
+     ABSTRACTION FUNCTION:
+     - A kernel compiler turns the flat parameters of a trained model, laid out as in
+     ForwardPass.dense, into a class whose accept method runs its forward pass with every
+     loop unrolled, every weight and bias a constant and the activation function fixed, so
+     the forward pass has no loads of parameters, no bounds checks and no branch on isBoolean.
+     - The source of the class is compiled in memory with the system Java compiler and defined
+     as a hidden class of this package, which is unloaded once its kernel is unreachable.
+     HAS_COMPILER is true if the runtime has the jdk.compiler module. A runtime without it,
+     such as a JRE or a jlink image, never loads the classes of javax.tools, and its models
+     are not compiled, so they keep the forward pass of ForwardPass.dense.
+     - The sums are grouped exactly as LinearAlgebra.dot groups them, so a kernel gives the
+     same outputs as ForwardPass.dense to the last bit.
+     - Models with more than MAX_PARAMETERS parameters are not compiled, because HotSpot does
+     not compile methods of more than 8000 bytes of bytecode.
+     */
+
+    private KernelCompiler() {
+    }
+
+    /**
+     * Compile the forward pass of a model into a kernel. The kernel reads the input window from
+     * its first argument and writes the output of the last layer into its second argument.
+     * @param parameters the parameters of the model, laid out as in ForwardPass.dense
+     * @param offset the index of the first parameter of the model in parameters
+     * @param layerSizes the number of nodes in each layer of the model
+     * @param isBoolean whether the model uses the boolean activation function
+     * @return the kernel, or null if the runtime has no Java compiler, the model has more than
+     *         MAX_PARAMETERS parameters or the kernel cannot be compiled or defined
+     */
+    static BiConsumer<double[], double[]> compile(double[] parameters, int offset, int[] layerSizes,
+                                                  boolean isBoolean) {
+        if (!HAS_COMPILER || parameterCount(layerSizes) > MAX_PARAMETERS) {
+            return null;
+        }
+        byte[] bytes;
+        try {
+            bytes = Javac.compile(generate(parameters, offset, layerSizes, isBoolean));
+        } catch (LinkageError e) {
+            return null;
+        }
+        if (bytes == null) {
+            return null;
+        }
+        try {
+            MethodHandles.Lookup kernel = MethodHandles.lookup().defineHiddenClass(bytes, true);
+            @SuppressWarnings("unchecked")
+            BiConsumer<double[], double[]> instance = (BiConsumer<double[], double[]>) kernel
+                    .findConstructor(kernel.lookupClass(), MethodType.methodType(void.class)).invoke();
+            return instance;
+        } catch (Throwable e) {
+            return null;
+        }
+    }
+
+    /**
+     * Generate the source of the kernel of a model.
+     * @param parameters the parameters of the model, laid out as in ForwardPass.dense
+     * @param offset the index of the first parameter of the model in parameters
+     * @param layerSizes the number of nodes in each layer of the model
+     * @param isBoolean whether the model uses the boolean activation function
+     * @return the source of a class named CLASS_NAME in this package
+     */
+    static String generate(double[] parameters, int offset, int[] layerSizes, boolean isBoolean) {
+        StringBuilder source = new StringBuilder();
+        source.append("package ").append(KernelCompiler.class.getPackageName()).append(";\n\n");
+        source.append("public final class ").append(CLASS_NAME)
+                .append(" implements java.util.function.BiConsumer<double[], double[]> {\n");
+        source.append("    @Override\n");
+        source.append("    public void accept(double[] in, double[] out) {\n");
+        for (int j = 0; j < layerSizes[0]; j++) {
+            source.append("        double a0_").append(j).append(" = in[").append(j).append("];\n");
+        }
+
+        int position = offset;
+        for (int l = 0; l < layerSizes.length - 1; l++) {
+            int nodeSize = layerSizes[l];
+            int nextNodeSize = layerSizes[l + 1];
+            int biasOffset = position + nodeSize * nextNodeSize;
+            for (int i = 0; i < nextNodeSize; i++) {
+                String name = "a" + (l + 1) + "_" + i;
+                source.append("        double ").append(name).append(" = ")
+                        .append(literal(parameters[biasOffset + i])).append(" + ");
+                appendDot(source, parameters, position + i * nodeSize, l, nodeSize);
+                source.append(";\n");
+                if (isBoolean) {
+                    source.append("        ").append(name).append(" = 1.0 / (1.0 + Math.exp(-").append(name)
+                            .append("));\n");
+                } else {
+                    source.append("        ").append(name).append(" = ").append(name).append(" < 0.0 ? 0.0 : ")
+                            .append(name).append(";\n");
+                }
+            }
+            position = biasOffset + nextNodeSize;
+        }
+
+        int last = layerSizes.length - 1;
+        for (int i = 0; i < layerSizes[last]; i++) {
+            source.append("        out[").append(i).append("] = a").append(last).append('_').append(i).append(";\n");
+        }
+        source.append("    }\n}\n");
+        return source.toString();
+    }
+
+    /**
+     * Append the dot product of the activations of a layer and the weights of a next node,
+     * grouped into the four partial sums of LinearAlgebra.dot.
+     * @param source the source that is appended to
+     * @param parameters the parameters of the model
+     * @param weightOffset the index of the first weight of the next node
+     * @param layer the index of the layer whose activations are used
+     * @param nodeSize the number of nodes of the layer
+     */
+    private static void appendDot(StringBuilder source, double[] parameters, int weightOffset, int layer,
+                                  int nodeSize) {
+        int unrolled = nodeSize / 4 * 4;
+        source.append('(');
+        for (int k = 0; k < 4; k++) {
+            if (k == 0) {
+                source.append('(');
+            } else if (k == 2) {
+                source.append(" + (");
+            } else {
+                source.append(" + ");
+            }
+
+            StringBuilder sum = new StringBuilder("0.0");
+            for (int j = k; j < unrolled; j += 4) {
+                appendTerm(sum, parameters[weightOffset + j], layer, j);
+            }
+            if (k == 0) {
+                for (int j = unrolled; j < nodeSize; j++) {
+                    appendTerm(sum, parameters[weightOffset + j], layer, j);
+                }
+            }
+            source.append(sum);
+
+            if (k == 1 || k == 3) {
+                source.append(')');
+            }
+        }
+        source.append(')');
+    }
+
+    /**
+     * Add the product of an activation and a weight to a sum, keeping the sums to its left first.
+     * @param sum the source of the sum, which is changed
+     * @param weight the weight
+     * @param layer the index of the layer of the activation
+     * @param node the index of the node of the activation
+     */
+    private static void appendTerm(StringBuilder sum, double weight, int layer, int node) {
+        sum.insert(0, '(').append(" + a").append(layer).append('_').append(node).append(" * ")
+                .append(literal(weight)).append(')');
+    }
+
+    /**
+     * Write a double as a Java expression of exactly its value.
+     * @param value the double
+     * @return a hexadecimal literal of value, or a constant of Double if value is not finite
+     */
+    private static String literal(double value) {
+        if (Double.isNaN(value)) {
+            return "Double.NaN";
+        }
+        if (Double.isInfinite(value)) {
+            return value > 0 ? "Double.POSITIVE_INFINITY" : "Double.NEGATIVE_INFINITY";
+        }
+        return "(" + Double.toHexString(value) + ")";
+    }
+
+    /**
+     * Get the number of weights and biases of a model.
+     * @param layerSizes the number of nodes in each layer of the model
+     * @return the number of parameters of the model
+     */
+    private static long parameterCount(int[] layerSizes) {
+        long count = 0;
+        for (int l = 0; l < layerSizes.length - 1; l++) {
+            count += (long) (layerSizes[l] + 1) * layerSizes[l + 1];
+        }
+        return count;
+    }
+
+    private static final class Javac {
+        private static final JavaCompiler COMPILER = ToolProvider.getSystemJavaCompiler();
+
+        /*
+         ABSTRACTION FUNCTION:
+         - Javac compiles the source of kernels with the system Java compiler. It is a class of
+         its own so that javax.tools is only loaded when a kernel is compiled.
+
+         REPRESENTATION INVARIANT:
+         - COMPILER is null if the runtime has no Java compiler
+         - COMPILER is only used while holding the lock of Javac.class
+         */
+
+        /**
+         * Compile the source of a kernel in memory.
+         * @param source the source of the class CLASS_NAME
+         * @return the bytes of the class file, or null if the runtime has no Java compiler or the
+         *         source does not compile
+         */
+        private static synchronized byte[] compile(String source) {
+            if (COMPILER == null) {
+                return null;
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            JavaFileObject file = new SimpleJavaFileObject(URI.create("string:///" + CLASS_NAME + ".java"),
+                    JavaFileObject.Kind.SOURCE) {
+                @Override
+                public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                    return source;
+                }
+            };
+
+            DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+            StandardJavaFileManager standard = COMPILER.getStandardFileManager(diagnostics, null, null);
+            JavaFileManager manager = new ForwardingJavaFileManager<>(standard) {
+                @Override
+                public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind,
+                                                           FileObject sibling) {
+                    return new SimpleJavaFileObject(URI.create("bytes:///" + className + ".class"), kind) {
+                        @Override
+                        public OutputStream openOutputStream() {
+                            return bytes;
+                        }
+                    };
+                }
+            };
+
+            try (manager) {
+                Boolean compiled = COMPILER.getTask(new StringWriter(), manager, diagnostics,
+                        List.of("-g:none", "-proc:none"), null, List.of(file)).call();
+                return Boolean.TRUE.equals(compiled) ? bytes.toByteArray() : null;
+            } catch (IOException | RuntimeException e) {
+                return null;
+            }
+        }
+    }
+}
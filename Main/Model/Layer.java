@@ -1,26 +1,43 @@
 package cpen221.mp3.Model;
 
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+
 public class Layer {
     private int nodeSize;
     private int nextNodeSize;
-    private double[][] weights;
-    private double[][] weightGradients;
+    private WeightLayout layout;
+    private double[] weights;
+    private double[] weightGradients;
     private double[] biases;
     private double[] biasGradients;
+    private Optimizer optimizer;
+    private double[] weightState;
+    private double[] biasState;
+    private long step;
 
     /*
      ABSTRACTION FUNCTION:
      - A layer is a collection of nodes that are connected to the next layer.
      The layer has a number of nodes and next nodes, and each node has a weight
      and a bias. The layer also has a weight gradient and a bias gradient.
+     - The weight from node to nextNode is weights[node * nextNodeSize + nextNode]
+     if layout is ROW_MAJOR, and weights[nextNode * nodeSize + node] if layout is
+     COLUMN_MAJOR. weightGradients uses the same layout as weights.
+     - updateGradients changes the weights and biases with optimizer, whose state for the
+     weights and biases is weightState and biasState; step is the number of updates since
+     the state was cleared.
 
      REPRESENTATION INVARIANT:
      - nodeSize > 0
      - nextNodeSize > 0
-     - weights != null
-     - weightGradients != null
-     - biases != null
-     - biasGradients != null
+     - layout != null
+     - weights.length == weightGradients.length == nodeSize * nextNodeSize
+     - biases.length == biasGradients.length == nextNodeSize
+     - optimizer != null
+     - weightState.length == optimizer.getStateSize() * weights.length
+     - biasState.length == optimizer.getStateSize() * biases.length
+     - step >= 0
      */
 
     /**
@@ -31,20 +48,208 @@ public class Layer {
      * Post-condition: Creates a new layer with the given number of nodes and next nodes.
      */
     public Layer(int nodes, int nextNodes) {
+        this(nodes, nextNodes, WeightLayout.COLUMN_MAJOR);
+    }
+
+    /**
+     * Create a new layer with the given number of nodes and next nodes.
+     * @param nodes the number of nodes
+     * @param nextNodes the number of next nodes
+     * @param layout the order in which the weights are stored
+     * Pre-condition: nodes > 0, nextNodes > 0, layout != null
+     * Post-condition: Creates a new layer with the given number of nodes and next nodes.
+     */
+    public Layer(int nodes, int nextNodes, WeightLayout layout) {
         this.nodeSize = nodes;
         this.nextNodeSize = nextNodes;
-        this.weights = new double[nodeSize][nextNodeSize];
+        this.layout = layout;
+        this.weights = new double[nodeSize * nextNodeSize];
         this.biases = new double[nextNodeSize];
-        this.weightGradients = new double[nodeSize][nextNodeSize];
+        this.weightGradients = new double[nodeSize * nextNodeSize];
         this.biasGradients = new double[nextNodeSize];
 
-        for (int i = 0; i < nodeSize; i++) {
-            for (int j = 0; j < nextNodeSize; j++) {
-                this.weights[i][j] = 0.5;
+        Arrays.fill(this.weights, 0.5);
+        Arrays.fill(this.biases, 0.5);
+        setOptimizer(new SgdOptimizer());
+    }
+
+    /**
+     * Create a copy of this layer with the same weights, biases and optimizer state and cleared gradients.
+     * @return a new layer that does not share any array with this layer
+     */
+    public Layer copy() {
+        Layer copy = new Layer(nodeSize, nextNodeSize, layout);
+        System.arraycopy(this.weights, 0, copy.weights, 0, this.weights.length);
+        System.arraycopy(this.biases, 0, copy.biases, 0, this.nextNodeSize);
+        copy.optimizer = this.optimizer;
+        copy.weightState = this.weightState.clone();
+        copy.biasState = this.biasState.clone();
+        copy.step = this.step;
+        return copy;
+    }
+
+    /**
+     * Set the optimizer that updates the weights and biases of the layer.
+     * The state of the optimizer is kept if it is equal to the current optimizer,
+     * so that training can continue where it stopped, and cleared otherwise.
+     * @param optimizer the optimizer
+     * Pre-condition: optimizer != null
+     */
+    public void setOptimizer(Optimizer optimizer) {
+        if (optimizer.equals(this.optimizer)) {
+            return;
+        }
+        this.optimizer = optimizer;
+        clearOptimizerState();
+    }
+
+    /**
+     * Get the optimizer that updates the weights and biases of the layer.
+     * @return the optimizer
+     */
+    public Optimizer getOptimizer() {
+        return optimizer;
+    }
+
+    /**
+     * Clear the state of the optimizer, as if the layer was never updated.
+     */
+    void clearOptimizerState() {
+        this.weightState = new double[optimizer.getStateSize() * weights.length];
+        this.biasState = new double[optimizer.getStateSize() * biases.length];
+        this.step = 0;
+    }
+
+    /**
+     * Get the number of weights and biases of the layer.
+     * @return the number of parameters of the layer
+     */
+    int getParameterCount() {
+        return weights.length + biases.length;
+    }
+
+    /**
+     * Write the weights, in the order of the layout, and then the biases of the layer.
+     * @param buffer the buffer that receives the parameters
+     * Pre-condition: buffer has at least getParameterCount() doubles remaining
+     */
+    void writeParameters(DoubleBuffer buffer) {
+        buffer.put(weights);
+        buffer.put(biases);
+    }
+
+    /**
+     * Write the weights, in the order of the given layout, and then the biases of the layer.
+     * @param buffer the buffer that receives the parameters
+     * @param order the order of the weights that are written
+     * Pre-condition: buffer has at least getParameterCount() doubles remaining
+     */
+    void writeParameters(DoubleBuffer buffer, WeightLayout order) {
+        if (order == layout) {
+            writeParameters(buffer);
+            return;
+        }
+        if (order == WeightLayout.ROW_MAJOR) {
+            for (int node = 0; node < nodeSize; node++) {
+                for (int nextNode = 0; nextNode < nextNodeSize; nextNode++) {
+                    buffer.put(weights[index(node, nextNode)]);
+                }
+            }
+        } else {
+            for (int nextNode = 0; nextNode < nextNodeSize; nextNode++) {
+                for (int node = 0; node < nodeSize; node++) {
+                    buffer.put(weights[index(node, nextNode)]);
+                }
+            }
+        }
+        buffer.put(biases);
+    }
+
+    /**
+     * Read the weights, in the order of the layout, and then the biases of the layer.
+     * @param buffer the buffer that holds the parameters
+     * Pre-condition: buffer has at least getParameterCount() doubles remaining
+     */
+    void readParameters(DoubleBuffer buffer) {
+        buffer.get(weights);
+        buffer.get(biases);
+    }
+
+    /**
+     * Read single-precision weights, in COLUMN_MAJOR order, and biases into the arrays of the layer.
+     * @param weights the weights, where the weight from node to nextNode is weights[nextNode * nodeSize + node]
+     * @param biases the biases
+     * Pre-condition: weights.length == nodeSize * nextNodeSize, biases.length == nextNodeSize
+     */
+    void readParameters(float[] weights, float[] biases) {
+        for (int nextNode = 0; nextNode < nextNodeSize; nextNode++) {
+            for (int node = 0; node < nodeSize; node++) {
+                this.weights[index(node, nextNode)] = weights[nextNode * nodeSize + node];
             }
+            this.biases[nextNode] = biases[nextNode];
         }
-        for (int i = 0; i < nextNodeSize; i++) {
-            this.biases[i] = 0.5;
+    }
+
+    /**
+     * Write the optimizer state of the layer into single-precision arrays, with the weights in
+     * COLUMN_MAJOR order, so that a float layer can continue training where this layer stopped.
+     * @param weightState the array that receives the state of the weights
+     * @param biasState the array that receives the state of the biases
+     * @return the number of updates since the state was cleared
+     * Pre-condition: weightState.length == this.weightState.length, biasState.length == this.biasState.length
+     */
+    long writeOptimizerState(float[] weightState, float[] biasState) {
+        int length = weights.length;
+        for (int k = 0; k < optimizer.getStateSize(); k++) {
+            for (int nextNode = 0; nextNode < nextNodeSize; nextNode++) {
+                for (int node = 0; node < nodeSize; node++) {
+                    weightState[k * length + nextNode * nodeSize + node] =
+                            (float) this.weightState[k * length + index(node, nextNode)];
+                }
+            }
+        }
+        for (int i = 0; i < biasState.length; i++) {
+            biasState[i] = (float) this.biasState[i];
+        }
+        return step;
+    }
+
+    /**
+     * Read the optimizer state of a float layer, with the weights in COLUMN_MAJOR order,
+     * into the arrays of the layer.
+     * @param weightState the state of the weights
+     * @param biasState the state of the biases
+     * @param step the number of updates since the state was cleared
+     * Pre-condition: weightState.length == this.weightState.length, biasState.length == this.biasState.length,
+     *                step >= 0
+     */
+    void readOptimizerState(float[] weightState, float[] biasState, long step) {
+        int length = weights.length;
+        for (int k = 0; k < optimizer.getStateSize(); k++) {
+            for (int nextNode = 0; nextNode < nextNodeSize; nextNode++) {
+                for (int node = 0; node < nodeSize; node++) {
+                    this.weightState[k * length + index(node, nextNode)] =
+                            weightState[k * length + nextNode * nodeSize + node];
+                }
+            }
+        }
+        for (int i = 0; i < biasState.length; i++) {
+            this.biasState[i] = biasState[i];
+        }
+        this.step = step;
+    }
+
+    /**
+     * Get the index of a weight in the weights array.
+     * @param node the node of the weight
+     * @param nextNode the next node of the weight
+     * @return the index of the weight
+     */
+    private int index(int node, int nextNode) {
+        if (layout == WeightLayout.ROW_MAJOR) {
+            return node * nextNodeSize + nextNode;
+        } else {
+            return nextNode * nodeSize + node;
         }
     }
 
@@ -55,20 +260,144 @@ public class Layer {
      */
     public double[] getOutput(double[] inputs, boolean isBoolean) {
         double[] values = new double[this.nextNodeSize];
+        getOutput(inputs, values, isBoolean);
+        return values;
+    }
 
-        for (int i = 0; i < this.nextNodeSize; i++) {
-            double sum = biases[i];
+    /**
+     * Write the output of the layer into the given array without allocating.
+     * @param inputs the inputs to the layer
+     * @param outputs the array that receives the output of the layer
+     * @param isBoolean whether the layer uses the boolean activation function
+     * Pre-condition: inputs.length >= nodeSize, outputs.length == nextNodeSize, inputs != outputs
+     */
+    public void getOutput(double[] inputs, double[] outputs, boolean isBoolean) {
+        if (layout == WeightLayout.ROW_MAJOR) {
+            System.arraycopy(this.biases, 0, outputs, 0, this.nextNodeSize);
             for (int j = 0; j < this.nodeSize; j++) {
-                sum += inputs[j] * weights[j][i];
+                LinearAlgebra.axpy(inputs[j], this.weights, j * this.nextNodeSize, outputs, 0, this.nextNodeSize);
+            }
+        } else {
+            for (int i = 0; i < this.nextNodeSize; i++) {
+                outputs[i] = this.biases[i]
+                        + LinearAlgebra.dot(inputs, 0, this.weights, i * this.nodeSize, this.nodeSize);
             }
+        }
+
+        for (int i = 0; i < this.nextNodeSize; i++) {
             if (isBoolean) {
-                values[i] = activationFunctionBoolean(sum);
+                outputs[i] = activationFunctionBoolean(outputs[i]);
             } else {
-                values[i] = activationFunctionDouble(sum);
+                outputs[i] = activationFunctionDouble(outputs[i]);
             }
         }
+    }
 
-        return values;
+    /**
+     * Write the outputs of the layer for a block of input rows into the given arrays without allocating.
+     * The inputs and outputs are stored feature by feature: input i of row n is inputs[i][n]
+     * and output i of row n is written to outputs[i][n].
+     * @param inputs the inputs to the layer, one array per node
+     * @param rows the number of rows
+     * @param outputs the arrays that receive the outputs of the layer, one array per next node
+     * @param isBoolean whether the layer uses the boolean activation function
+     * Pre-condition: rows >= 0, inputs.length >= nodeSize, outputs.length >= nextNodeSize,
+     *                every array of inputs and outputs has at least rows elements,
+     *                no array of outputs is an array of inputs
+     */
+    public void getOutputs(double[][] inputs, int rows, double[][] outputs, boolean isBoolean) {
+        if (layout == WeightLayout.ROW_MAJOR) {
+            LinearAlgebra.gemm(inputs, rows, this.nodeSize, this.weights, this.nextNodeSize, 1,
+                    this.biases, this.nextNodeSize, outputs);
+        } else {
+            LinearAlgebra.gemm(inputs, rows, this.nodeSize, this.weights, 1, this.nodeSize,
+                    this.biases, this.nextNodeSize, outputs);
+        }
+
+        for (int i = 0; i < this.nextNodeSize; i++) {
+            double[] output = outputs[i];
+            if (isBoolean) {
+                for (int n = 0; n < rows; n++) {
+                    output[n] = activationFunctionBoolean(output[n]);
+                }
+            } else {
+                for (int n = 0; n < rows; n++) {
+                    output[n] = activationFunctionDouble(output[n]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Backpropagate through the layer without allocating.
+     * The weight and bias gradients of this pass are added to the gradients of the layer.
+     * @param inputs the inputs of the layer in the forward pass
+     * @param outputs the outputs of the layer in the forward pass
+     * @param outputGradients the derivative of the cost with respect to each output of the layer;
+     *                        it is overwritten with the derivative with respect to each weighted sum
+     * @param inputGradients the array that receives the derivative of the cost with respect to
+     *                       each input of the layer, or null if it is not needed
+     * @param isBoolean whether the layer uses the boolean activation function
+     * Pre-condition: inputs.length >= nodeSize, outputs.length == outputGradients.length == nextNodeSize,
+     *                inputGradients == null or inputGradients.length == nodeSize
+     */
+    public void backward(double[] inputs, double[] outputs, double[] outputGradients,
+                         double[] inputGradients, boolean isBoolean) {
+        backward(inputs, outputs, outputGradients, inputGradients, this.weightGradients, this.biasGradients,
+                isBoolean);
+    }
+
+    /**
+     * Backpropagate through the layer without allocating, adding the weight and bias gradients
+     * of this pass to the given arrays instead of the gradients of the layer.
+     * @param inputs the inputs of the layer in the forward pass
+     * @param outputs the outputs of the layer in the forward pass
+     * @param outputGradients the derivative of the cost with respect to each output of the layer;
+     *                        it is overwritten with the derivative with respect to each weighted sum
+     * @param inputGradients the array that receives the derivative of the cost with respect to
+     *                       each input of the layer, or null if it is not needed
+     * @param weightGradients the weight gradients, in the layout of the layer
+     * @param biasGradients the bias gradients
+     * @param isBoolean whether the layer uses the boolean activation function
+     * Pre-condition: inputs.length >= nodeSize, outputs.length == outputGradients.length == nextNodeSize,
+     *                inputGradients == null or inputGradients.length == nodeSize,
+     *                weightGradients.length == nodeSize * nextNodeSize, biasGradients.length == nextNodeSize
+     */
+    void backward(double[] inputs, double[] outputs, double[] outputGradients, double[] inputGradients,
+                  double[] weightGradients, double[] biasGradients, boolean isBoolean) {
+        for (int i = 0; i < this.nextNodeSize; i++) {
+            if (isBoolean) {
+                outputGradients[i] *= activationDerivativeBoolean(outputs[i]);
+            } else {
+                outputGradients[i] *= activationDerivativeDouble(outputs[i]);
+            }
+            biasGradients[i] += outputGradients[i];
+        }
+
+        if (inputGradients != null) {
+            Arrays.fill(inputGradients, 0, this.nodeSize, 0);
+        }
+        if (layout == WeightLayout.ROW_MAJOR) {
+            for (int j = 0; j < this.nodeSize; j++) {
+                int offset = j * this.nextNodeSize;
+                LinearAlgebra.axpy(inputs[j], outputGradients, 0, weightGradients, offset, this.nextNodeSize);
+                if (inputGradients != null) {
+                    inputGradients[j] = LinearAlgebra.dot(this.weights, offset, outputGradients, 0, this.nextNodeSize);
+                }
+            }
+        } else {
+            for (int i = 0; i < this.nextNodeSize; i++) {
+                double delta = outputGradients[i];
+                if (delta == 0) {
+                    continue;
+                }
+                int offset = i * this.nodeSize;
+                LinearAlgebra.axpy(delta, inputs, 0, weightGradients, offset, this.nodeSize);
+                if (inputGradients != null) {
+                    LinearAlgebra.axpy(delta, this.weights, offset, inputGradients, 0, this.nodeSize);
+                }
+            }
+        }
     }
 
     /**
@@ -93,6 +422,29 @@ public class Layer {
         }
     }
 
+    /**
+     * The derivative of the boolean activation function.
+     * @param output the output of the activation function
+     * @return the derivative of the activation function
+     */
+    private double activationDerivativeBoolean(double output) {
+        return output * (1 - output);
+    }
+
+    /**
+     * The derivative of the double activation function.
+     * The output is positive exactly when the input is, so the output is enough.
+     * @param output the output of the activation function
+     * @return the derivative of the activation function
+     */
+    private double activationDerivativeDouble(double output) {
+        if (output > 0) {
+            return 1;
+        } else {
+            return 0;
+        }
+    }
+
     /**
      * Get the cost of the node
      * @param output the output of the node
@@ -104,18 +456,51 @@ public class Layer {
     }
 
     /**
-     * Update the gradients of the layer.
+     * Get the derivative of the cost of the node with respect to its output.
+     * @param output the output of the node
+     * @param expected the expected output of the node
+     * @return the derivative of the cost of the node
+     */
+    public double nodeCostDerivative(double output, double expected) {
+        return Math.signum(output - expected);
+    }
+
+    /**
+     * Reset the weight and bias gradients of the layer to zero.
+     */
+    public void clearGradients() {
+        Arrays.fill(this.weightGradients, 0);
+        Arrays.fill(this.biasGradients, 0);
+    }
+
+    /**
+     * Add the given gradients to the weight and bias gradients of the layer.
+     * @param weightGradients the weight gradients, in the layout of the layer
+     * @param biasGradients the bias gradients
+     * Pre-condition: weightGradients.length == nodeSize * nextNodeSize, biasGradients.length == nextNodeSize
+     */
+    void addGradients(double[] weightGradients, double[] biasGradients) {
+        LinearAlgebra.axpy(1, weightGradients, 0, this.weightGradients, 0, this.weightGradients.length);
+        LinearAlgebra.axpy(1, biasGradients, 0, this.biasGradients, 0, this.nextNodeSize);
+    }
+
+    /**
+     * Get the sum of the squares of the weight and bias gradients of the layer.
+     * @return the squared Euclidean norm of the gradients
+     */
+    double getGradientSquaredNorm() {
+        return LinearAlgebra.dot(weightGradients, 0, weightGradients, 0, weightGradients.length)
+                + LinearAlgebra.dot(biasGradients, 0, biasGradients, 0, nextNodeSize);
+    }
+
+    /**
+     * Update the weights and biases of the layer from their gradients with one step of the optimizer.
      * @param learnRate the learning rate
      */
     public void updateGradients(double learnRate) {
-        for (int i = 0; i < this.nodeSize; i++) {
-            for (int j = 0; j < this.nextNodeSize; j++) {
-                this.weights[i][j] -= learnRate * this.weightGradients[i][j];
-            }
-        }
-        for (int i = 0; i < this.nextNodeSize; i++) {
-            this.biases[i] -= learnRate * this.biasGradients[i];
-        }
+        step++;
+        optimizer.update(this.weights, this.weightGradients, this.weightState, learnRate, step);
+        optimizer.update(this.biases, this.biasGradients, this.biasState, learnRate, step);
     }
 
     /**
@@ -134,20 +519,60 @@ public class Layer {
         return nextNodeSize;
     }
 
+    /**
+     * Get the order in which the weights of the layer are stored.
+     * @return the layout of the weights of the layer
+     */
+    public WeightLayout getLayout() {
+        return layout;
+    }
+
     /**
      * Get the weights of the layer.
-     * @return the weights of the layer
+     * The returned array is a copy, so changes to it only take effect through setWeights.
+     * @return the weights of the layer, indexed by node and then by next node
      */
     public double[][] getWeights() {
-        return weights;
+        double[][] view = new double[nodeSize][nextNodeSize];
+        for (int i = 0; i < nodeSize; i++) {
+            for (int j = 0; j < nextNodeSize; j++) {
+                view[i][j] = weights[index(i, j)];
+            }
+        }
+        return view;
     }
 
     /**
-     * Set the weight gradient of the layer.
-     * @param weights the weight gradient of the layer
+     * Set the weights of the layer.
+     * @param weights the weights of the layer, indexed by node and then by next node
+     * Pre-condition: weights is a nodeSize by nextNodeSize array
      */
     public void setWeights(double[][] weights) {
-        this.weights = weights;
+        for (int i = 0; i < nodeSize; i++) {
+            for (int j = 0; j < nextNodeSize; j++) {
+                this.weights[index(i, j)] = weights[i][j];
+            }
+        }
+    }
+
+    /**
+     * Get a weight of the layer.
+     * @param node the node of the weight
+     * @param nextNode the next node of the weight
+     * @return the weight from node to nextNode
+     */
+    public double getWeight(int node, int nextNode) {
+        return this.weights[index(node, nextNode)];
+    }
+
+    /**
+     * Set a weight of the layer.
+     * @param node the node of the weight
+     * @param nextNode the next node of the weight
+     * @param weight the new weight from node to nextNode
+     */
+    public void setWeight(int node, int nextNode, double weight) {
+        this.weights[index(node, nextNode)] = weight;
     }
 
     /**
@@ -157,7 +582,17 @@ public class Layer {
      * @param gradient the gradient of the weight
      */
     public void setWeightGradients(int node, int nextNode, double gradient) {
-        this.weightGradients[node][nextNode] = gradient;
+        this.weightGradients[index(node, nextNode)] = gradient;
+    }
+
+    /**
+     * Get the weight gradient of the layer.
+     * @param node the node of the weight gradient
+     * @param nextNode the next node of the weight gradient
+     * @return the gradient of the weight
+     */
+    public double getWeightGradient(int node, int nextNode) {
+        return this.weightGradients[index(node, nextNode)];
     }
 
     /**
@@ -184,4 +619,13 @@ public class Layer {
     public void setBiasGradients(int node, double gradient) {
         this.biasGradients[node] = gradient;
     }
+
+    /**
+     * Get the bias gradient of the layer.
+     * @param node the node of the bias gradient
+     * @return the gradient of the bias
+     */
+    public double getBiasGradient(int node) {
+        return this.biasGradients[node];
+    }
 }
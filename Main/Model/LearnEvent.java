@@ -0,0 +1,24 @@
+package cpen221.mp3.Model;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("cpen221.mp3.Learn")
+@Label("Learn")
+@Category("PredictionNN")
+@Description("One training iteration of a neural network")
+@StackTrace(false)
+class LearnEvent extends Event {
+    @Label("Iteration")
+    int iteration;
+
+    @Label("Cost")
+    double cost;
+
+    @Label("Forward Passes")
+    long forwardPasses;
+}
@@ -0,0 +1,166 @@
+package cpen221.mp3.Model;
+
+import java.nio.ByteBuffer;
+
+public final class LearningRateSchedule {
+    private static final LearningRateSchedule CONSTANT = new LearningRateSchedule(Kind.CONSTANT, 0, 1);
+
+    private enum Kind {
+        CONSTANT,
+        STEP,
+        EXPONENTIAL,
+        COSINE
+    }
+
+    private final Kind kind;
+    private final int period;
+    private final double factor;
+
+    /*
+     ABSTRACTION FUNCTION:
+     - A learning rate schedule gives the learning rate of every iteration of a fit
+     from the learning rate of the template:
+       - CONSTANT keeps the learning rate.
+       - STEP multiplies it by factor every period iterations.
+       - EXPONENTIAL multiplies it by factor every iteration.
+       - COSINE lowers it along half a cosine from the learning rate at the first
+         iteration to factor times the learning rate at the last iteration.
+
+     REPRESENTATION INVARIANT:
+     - kind != null
+     - period > 0 if kind == STEP
+     - factor > 0
+     */
+
+    private LearningRateSchedule(Kind kind, int period, double factor) {
+        this.kind = kind;
+        this.period = period;
+        this.factor = factor;
+    }
+
+    /**
+     * Get the schedule that keeps the learning rate of the template.
+     * @return the constant schedule
+     */
+    public static LearningRateSchedule constant() {
+        return CONSTANT;
+    }
+
+    /**
+     * Get a schedule that multiplies the learning rate by a factor every period iterations.
+     * @param period the number of iterations between changes of the learning rate
+     * @param factor the factor of each change
+     * @return the step schedule
+     * Pre-condition: period > 0, factor > 0
+     */
+    public static LearningRateSchedule step(int period, double factor) {
+        return new LearningRateSchedule(Kind.STEP, period, factor);
+    }
+
+    /**
+     * Get a schedule that multiplies the learning rate by a factor every iteration.
+     * @param factor the factor of each iteration
+     * @return the exponential schedule
+     * Pre-condition: factor > 0
+     */
+    public static LearningRateSchedule exponential(double factor) {
+        return new LearningRateSchedule(Kind.EXPONENTIAL, 0, factor);
+    }
+
+    /**
+     * Get a schedule that lowers the learning rate along half a cosine over the iterations of a fit.
+     * @param finalFactor the fraction of the learning rate left at the last iteration
+     * @return the cosine schedule
+     * Pre-condition: finalFactor > 0
+     */
+    public static LearningRateSchedule cosine(double finalFactor) {
+        return new LearningRateSchedule(Kind.COSINE, 0, finalFactor);
+    }
+
+    /**
+     * Get the learning rate of an iteration of a fit.
+     * @param learnRate the learning rate of the template
+     * @param iteration the index of the iteration in the fit
+     * @param iterations the largest number of iterations of the fit
+     * @return the learning rate of the iteration
+     * Pre-condition: 0 <= iteration < iterations
+     */
+    public double getLearnRate(double learnRate, int iteration, int iterations) {
+        switch (kind) {
+            case STEP:
+                return learnRate * Math.pow(factor, iteration / period);
+            case EXPONENTIAL:
+                return learnRate * Math.pow(factor, iteration);
+            case COSINE:
+                double progress = iterations > 1 ? (double) iteration / (iterations - 1) : 0;
+                return learnRate * (factor + (1 - factor) * 0.5 * (1 + Math.cos(Math.PI * progress)));
+            default:
+                return learnRate;
+        }
+    }
+
+    /**
+     * Write the schedule as an int kind, an int period and a double factor, as a model file stores it.
+     * @param buffer the buffer that receives the schedule
+     * Pre-condition: buffer has at least 16 bytes remaining
+     */
+    void write(ByteBuffer buffer) {
+        buffer.putInt(kind.ordinal());
+        buffer.putInt(period);
+        buffer.putDouble(factor);
+    }
+
+    /**
+     * Read a schedule written by write.
+     * @param buffer the buffer that holds the schedule
+     * @return the schedule, or null if the values are not a valid schedule
+     * Pre-condition: buffer has at least 16 bytes remaining
+     */
+    static LearningRateSchedule read(ByteBuffer buffer) {
+        int kindOrdinal = buffer.getInt();
+        int period = buffer.getInt();
+        double factor = buffer.getDouble();
+        if (kindOrdinal < 0 || kindOrdinal >= Kind.values().length || !(factor > 0)) {
+            return null;
+        }
+        Kind kind = Kind.values()[kindOrdinal];
+        if (kind == Kind.CONSTANT) {
+            return factor == 1 && period == 0 ? CONSTANT : null;
+        }
+        if (kind == Kind.STEP ? period <= 0 : period != 0) {
+            return null;
+        }
+        return new LearningRateSchedule(kind, period, factor);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof LearningRateSchedule)) {
+            return false;
+        }
+        LearningRateSchedule schedule = (LearningRateSchedule) other;
+        return kind == schedule.kind && period == schedule.period && Double.compare(factor, schedule.factor) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = kind.hashCode();
+        result = 31 * result + period;
+        result = 31 * result + Double.hashCode(factor);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        switch (kind) {
+            case STEP:
+                return "Step(" + period + ", " + factor + ")";
+            case EXPONENTIAL:
+                return "Exponential(" + factor + ")";
+            case COSINE:
+                return "Cosine(" + factor + ")";
+            default:
+                return "Constant";
+        }
+    }
+}
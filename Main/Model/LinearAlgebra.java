@@ -0,0 +1,224 @@
+package cpen221.mp3.Model;
+
+import java.util.Arrays;
+
+final class LinearAlgebra {
+    private static final int VECTOR_DOT_LENGTH = 8;
+    private static final int VECTOR_AXPY_LENGTH = 16;
+    private static final boolean VECTOR_KERNELS = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()
+            && VectorKernels.isSupported();
+
+    /*
+     ABSTRACTION FUNCTION:
+     This class provides the dot product and axpy kernels used by the layers.
+     The loops are unrolled by four with independent accumulators so that
+     the JIT compiler can vectorize them.
+     It also provides the matrix-matrix kernel of the batched forward pass. Its inputs and
+     outputs are stored feature by feature, with one array per feature, so its inner loop
+     runs over consecutive rows of separate arrays and can be vectorized. Four inputs are
+     added to an output at a time, so each output is loaded and stored once per four inputs.
+     Callers pass tiles of rows small enough for the arrays of a tile to stay in the cache.
+     If the runtime is started with --add-modules jdk.incubator.vector and the hardware has
+     vectors of at least four doubles, VECTOR_KERNELS is true and the dot products of at least
+     VECTOR_DOT_LENGTH elements, the axpys of at least VECTOR_AXPY_LENGTH elements and the
+     inner loop of the matrix-matrix kernel run on the kernels of VectorKernels instead, which
+     give the same results to the last bit. Otherwise VectorKernels is never loaded.
+
+     REPRESENTATION INVARIANT:
+     - This class has no state.
+     */
+
+    private LinearAlgebra() {
+    }
+
+    /**
+     * Get the dot product of two slices of arrays.
+     * @param a the first array
+     * @param aOffset the index of the first element of the slice of a
+     * @param b the second array
+     * @param bOffset the index of the first element of the slice of b
+     * @param length the length of the slices
+     * @return the dot product of the two slices
+     * Pre-condition: both slices are within the bounds of their arrays
+     */
+    static double dot(double[] a, int aOffset, double[] b, int bOffset, int length) {
+        if (VECTOR_KERNELS && length >= VECTOR_DOT_LENGTH) {
+            return VectorKernels.dot(a, aOffset, b, bOffset, length);
+        }
+        double sum0 = 0;
+        double sum1 = 0;
+        double sum2 = 0;
+        double sum3 = 0;
+        int i = 0;
+        for (; i + 3 < length; i += 4) {
+            sum0 += a[aOffset + i] * b[bOffset + i];
+            sum1 += a[aOffset + i + 1] * b[bOffset + i + 1];
+            sum2 += a[aOffset + i + 2] * b[bOffset + i + 2];
+            sum3 += a[aOffset + i + 3] * b[bOffset + i + 3];
+        }
+        for (; i < length; i++) {
+            sum0 += a[aOffset + i] * b[bOffset + i];
+        }
+        return (sum0 + sum1) + (sum2 + sum3);
+    }
+
+    /**
+     * Add alpha times a slice of x to a slice of y.
+     * @param alpha the factor of x
+     * @param x the array that is added
+     * @param xOffset the index of the first element of the slice of x
+     * @param y the array that is changed
+     * @param yOffset the index of the first element of the slice of y
+     * @param length the length of the slices
+     * Pre-condition: both slices are within the bounds of their arrays
+     */
+    static void axpy(double alpha, double[] x, int xOffset, double[] y, int yOffset, int length) {
+        if (VECTOR_KERNELS && length >= VECTOR_AXPY_LENGTH) {
+            VectorKernels.axpy(alpha, x, xOffset, y, yOffset, length);
+            return;
+        }
+        int i = 0;
+        for (; i + 3 < length; i += 4) {
+            y[yOffset + i] += alpha * x[xOffset + i];
+            y[yOffset + i + 1] += alpha * x[xOffset + i + 1];
+            y[yOffset + i + 2] += alpha * x[xOffset + i + 2];
+            y[yOffset + i + 3] += alpha * x[xOffset + i + 3];
+        }
+        for (; i < length; i++) {
+            y[yOffset + i] += alpha * x[xOffset + i];
+        }
+    }
+
+    /**
+     * Get the dot product of two slices of float arrays.
+     * @param a the first array
+     * @param aOffset the index of the first element of the slice of a
+     * @param b the second array
+     * @param bOffset the index of the first element of the slice of b
+     * @param length the length of the slices
+     * @return the dot product of the two slices
+     * Pre-condition: both slices are within the bounds of their arrays
+     */
+    static float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        if (VECTOR_KERNELS && length >= VECTOR_DOT_LENGTH) {
+            return VectorKernels.dot(a, aOffset, b, bOffset, length);
+        }
+        float sum0 = 0;
+        float sum1 = 0;
+        float sum2 = 0;
+        float sum3 = 0;
+        int i = 0;
+        for (; i + 3 < length; i += 4) {
+            sum0 += a[aOffset + i] * b[bOffset + i];
+            sum1 += a[aOffset + i + 1] * b[bOffset + i + 1];
+            sum2 += a[aOffset + i + 2] * b[bOffset + i + 2];
+            sum3 += a[aOffset + i + 3] * b[bOffset + i + 3];
+        }
+        for (; i < length; i++) {
+            sum0 += a[aOffset + i] * b[bOffset + i];
+        }
+        return (sum0 + sum1) + (sum2 + sum3);
+    }
+
+    /**
+     * Add alpha times a slice of x to a slice of y, for float arrays.
+     * @param alpha the factor of x
+     * @param x the array that is added
+     * @param xOffset the index of the first element of the slice of x
+     * @param y the array that is changed
+     * @param yOffset the index of the first element of the slice of y
+     * @param length the length of the slices
+     * Pre-condition: both slices are within the bounds of their arrays
+     */
+    static void axpy(float alpha, float[] x, int xOffset, float[] y, int yOffset, int length) {
+        if (VECTOR_KERNELS && length >= VECTOR_AXPY_LENGTH) {
+            VectorKernels.axpy(alpha, x, xOffset, y, yOffset, length);
+            return;
+        }
+        int i = 0;
+        for (; i + 3 < length; i += 4) {
+            y[yOffset + i] += alpha * x[xOffset + i];
+            y[yOffset + i + 1] += alpha * x[xOffset + i + 1];
+            y[yOffset + i + 2] += alpha * x[xOffset + i + 2];
+            y[yOffset + i + 3] += alpha * x[xOffset + i + 3];
+        }
+        for (; i < length; i++) {
+            y[yOffset + i] += alpha * x[xOffset + i];
+        }
+    }
+
+    /**
+     * Check whether the kernels run on jdk.incubator.vector.
+     * @return true if the kernels of VectorKernels are used
+     */
+    static boolean usesVectorKernels() {
+        return VECTOR_KERNELS;
+    }
+
+    /**
+     * Get the dot product of two slices of byte arrays, accumulated in an int.
+     * The loop is not unrolled, because the JIT compiler handles the widening products
+     * of a single accumulator better.
+     * @param a the first array
+     * @param aOffset the index of the first element of the slice of a
+     * @param b the second array
+     * @param bOffset the index of the first element of the slice of b
+     * @param length the length of the slices
+     * @return the dot product of the two slices
+     * Pre-condition: both slices are within the bounds of their arrays, length < 2^17
+     */
+    static int dot(byte[] a, int aOffset, byte[] b, int bOffset, int length) {
+        int sum = 0;
+        for (int i = 0; i < length; i++) {
+            sum += a[aOffset + i] * b[bOffset + i];
+        }
+        return sum;
+    }
+
+    /**
+     * Compute the weighted sums of a layer for a block of rows, where the inputs and outputs
+     * are stored feature by feature: input i of row n is a[i][n] and output j of row n is
+     * written to c[j][n].
+     * @param a the inputs, one array per input
+     * @param rows the number of rows
+     * @param k the number of inputs of each row
+     * @param w the weights, where the weight from input i to output j is w[i * wInputStride + j * wOutputStride]
+     * @param wInputStride the distance between the weights of consecutive inputs
+     * @param wOutputStride the distance between the weights of consecutive outputs
+     * @param bias the bias of each output
+     * @param m the number of outputs of each row
+     * @param c the outputs, one array per output, which receive the weighted sums
+     * Pre-condition: a.length >= k, c.length >= m, every array of a and c has at least rows elements,
+     *                no array of c is an array of a
+     */
+    static void gemm(double[][] a, int rows, int k, double[] w, int wInputStride, int wOutputStride,
+                     double[] bias, int m, double[][] c) {
+        for (int j = 0; j < m; j++) {
+            double[] cj = c[j];
+            int w0 = j * wOutputStride;
+            Arrays.fill(cj, 0, rows, bias[j]);
+
+            int i = 0;
+            for (; i + 3 < k; i += 4) {
+                double y0 = w[w0 + i * wInputStride];
+                double y1 = w[w0 + (i + 1) * wInputStride];
+                double y2 = w[w0 + (i + 2) * wInputStride];
+                double y3 = w[w0 + (i + 3) * wInputStride];
+                double[] a0 = a[i];
+                double[] a1 = a[i + 1];
+                double[] a2 = a[i + 2];
+                double[] a3 = a[i + 3];
+                if (VECTOR_KERNELS && rows >= VECTOR_AXPY_LENGTH) {
+                    VectorKernels.addWeighted(cj, rows, y0, a0, y1, a1, y2, a2, y3, a3);
+                    continue;
+                }
+                for (int n = 0; n < rows; n++) {
+                    cj[n] += y0 * a0[n] + y1 * a1[n] + y2 * a2[n] + y3 * a3[n];
+                }
+            }
+            for (; i < k; i++) {
+                axpy(w[w0 + i * wInputStride], a[i], 0, cj, 0, rows);
+            }
+        }
+    }
+}
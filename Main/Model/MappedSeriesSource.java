@@ -0,0 +1,151 @@
+package cpen221.mp3.Model;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public final class MappedSeriesSource implements SeriesSource {
+    private static final int SEGMENT_BYTES = 1 << 30;
+    private static final int CHUNK = 4096;
+
+    private final Precision precision;
+    private final long length;
+    private final int segmentShift;
+    private final long segmentMask;
+    private final DoubleBuffer[] doubleSegments;
+    private final FloatBuffer[] floatSegments;
+
+    /*
+     ABSTRACTION FUNCTION:
+     - A mapped series source is the series stored in a binary file as length little-endian
+     doubles if precision is DOUBLE, or floats if it is SINGLE, with nothing before or between them.
+     - The file is memory-mapped in segments of SEGMENT_BYTES bytes, because one mapping holds
+     at most 2 GB, so the series can be much larger than the heap. Value i is value
+     i & segmentMask of segment i >>> segmentShift, of doubleSegments if precision is DOUBLE
+     and of floatSegments otherwise. The pages of the file are read by the operating system
+     when they are first used and can be dropped again under memory pressure.
+
+     REPRESENTATION INVARIANT:
+     - precision != null, length >= 0
+     - 1 << segmentShift == SEGMENT_BYTES / the number of bytes of a value
+     - segmentMask == (1 << segmentShift) - 1
+     - exactly one of doubleSegments and floatSegments is null, as chosen by precision
+     - every segment is little-endian and all but the last have 1 << segmentShift values
+     - the segments hold length values in total
+     */
+
+    /**
+     * Create a series source of mapped segments.
+     */
+    private MappedSeriesSource(Precision precision, long length, int segmentShift, DoubleBuffer[] doubleSegments,
+                               FloatBuffer[] floatSegments) {
+        this.precision = precision;
+        this.length = length;
+        this.segmentShift = segmentShift;
+        this.segmentMask = (1L << segmentShift) - 1;
+        this.doubleSegments = doubleSegments;
+        this.floatSegments = floatSegments;
+    }
+
+    /**
+     * Open a binary series file by mapping it into memory. No value is read until it is used.
+     * @param path the file to open
+     * @param precision whether the file holds doubles or floats
+     * @return the series of the file
+     * @throws IOException if the file cannot be read or its size is not a whole number of values
+     */
+    public static MappedSeriesSource open(Path path, Precision precision) throws IOException {
+        int valueBytes = precision == Precision.DOUBLE ? Double.BYTES : Float.BYTES;
+        int segmentShift = Integer.numberOfTrailingZeros(SEGMENT_BYTES / valueBytes);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size % valueBytes != 0) {
+                throw new IOException("Series file has the wrong size: " + path);
+            }
+            long length = size / valueBytes;
+            int segmentCount = (int) ((size + SEGMENT_BYTES - 1) / SEGMENT_BYTES);
+            DoubleBuffer[] doubleSegments = precision == Precision.DOUBLE ? new DoubleBuffer[segmentCount] : null;
+            FloatBuffer[] floatSegments = precision == Precision.DOUBLE ? null : new FloatBuffer[segmentCount];
+
+            for (int s = 0; s < segmentCount; s++) {
+                long position = (long) s * SEGMENT_BYTES;
+                MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(SEGMENT_BYTES, size - position));
+                segment.order(ByteOrder.LITTLE_ENDIAN);
+                if (doubleSegments != null) {
+                    doubleSegments[s] = segment.asDoubleBuffer();
+                } else {
+                    floatSegments[s] = segment.asFloatBuffer();
+                }
+            }
+            return new MappedSeriesSource(precision, length, segmentShift, doubleSegments, floatSegments);
+        }
+    }
+
+    /**
+     * Write a series to a binary series file that open can map.
+     * @param series the series
+     * @param path the file to write, which is replaced if it exists
+     * @param precision whether the values are written as doubles or floats
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(SeriesSource series, Path path, Precision precision) throws IOException {
+        double[] chunk = new double[CHUNK];
+        try (SeriesFileWriter writer = new SeriesFileWriter(path, precision)) {
+            for (long index = 0; index < series.length(); index += CHUNK) {
+                int count = (int) Math.min(CHUNK, series.length() - index);
+                series.read(index, chunk, 0, count);
+                writer.append(chunk, count);
+            }
+        }
+    }
+
+    /**
+     * Get whether the values of the file are doubles or floats.
+     * @return the precision of the file
+     */
+    public Precision getPrecision() {
+        return precision;
+    }
+
+    @Override
+    public long length() {
+        return length;
+    }
+
+    @Override
+    public double get(long index) {
+        int segment = (int) (index >>> segmentShift);
+        int position = (int) (index & segmentMask);
+        if (doubleSegments != null) {
+            return doubleSegments[segment].get(position);
+        }
+        return floatSegments[segment].get(position);
+    }
+
+    @Override
+    public void read(long index, double[] destination, int offset, int length) {
+        while (length > 0) {
+            int segment = (int) (index >>> segmentShift);
+            int position = (int) (index & segmentMask);
+            int count = (int) Math.min(length, (1L << segmentShift) - position);
+            if (doubleSegments != null) {
+                doubleSegments[segment].get(position, destination, offset, count);
+            } else {
+                FloatBuffer floats = floatSegments[segment];
+                for (int i = 0; i < count; i++) {
+                    destination[offset + i] = floats.get(position + i);
+                }
+            }
+            index += count;
+            offset += count;
+            length -= count;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package cpen221.mp3.Model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+public class ModelCache {
+    private final int capacity;
+    private final LinkedHashMap<ModelKey, NeuralNetwork> entries;
+    private final ConcurrentHashMap<ModelKey, CompletableFuture<NeuralNetwork>> inFlight;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+
+    /*
+     ABSTRACTION FUNCTION:
+     - A model cache maps model keys to trained neural networks. It keeps at most
+     capacity networks and evicts the least recently used one when it is full.
+     - inFlight holds the trainings that are running, so that concurrent requests
+     for the same key wait for one training instead of starting their own.
+     - hits counts the requests that did not train, and misses counts the requests that did.
+
+     REPRESENTATION INVARIANT:
+     - capacity > 0
+     - entries.size() <= capacity
+     - entries is in access order and is only used while holding its lock
+     */
+
+    /**
+     * Create a new model cache.
+     * @param capacity the largest number of trained neural networks that are kept
+     * Pre-condition: capacity > 0
+     */
+    public ModelCache(int capacity) {
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ModelKey, NeuralNetwork> eldest) {
+                return size() > ModelCache.this.capacity;
+            }
+        };
+        this.inFlight = new ConcurrentHashMap<>();
+        this.hits = new AtomicLong();
+        this.misses = new AtomicLong();
+    }
+
+    /**
+     * Get the trained neural network of the given key, training it if it is not cached.
+     * If another thread is already training the same key, wait for its result instead.
+     * @param key the key of the neural network
+     * @param trainer trains and returns the neural network of the key
+     * @return the trained neural network of the key
+     * @throws RuntimeException if the trainer throws
+     */
+    public NeuralNetwork getOrTrain(ModelKey key, Supplier<NeuralNetwork> trainer) {
+        NeuralNetwork network = get(key);
+        if (network != null) {
+            hits.incrementAndGet();
+            return network;
+        }
+
+        CompletableFuture<NeuralNetwork> training = new CompletableFuture<>();
+        CompletableFuture<NeuralNetwork> running = inFlight.putIfAbsent(key, training);
+        if (running != null) {
+            hits.incrementAndGet();
+            return join(running);
+        }
+
+        try {
+            network = get(key);
+            if (network != null) {
+                hits.incrementAndGet();
+            } else {
+                misses.incrementAndGet();
+                network = trainer.get();
+                put(key, network);
+            }
+            training.complete(network);
+            return network;
+        } catch (RuntimeException | Error e) {
+            training.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, training);
+        }
+    }
+
+    /**
+     * Get the trained neural network of the given key without training it.
+     * @param key the key of the neural network
+     * @return the trained neural network of the key, or null if it is not cached
+     */
+    public NeuralNetwork get(ModelKey key) {
+        synchronized (entries) {
+            return entries.get(key);
+        }
+    }
+
+    /**
+     * Find the cached key with the longest data input that the given key extends by at most
+     * maxNewValues values.
+     * @param key the key with the extended data input
+     * @param maxNewValues the largest number of new values
+     * @return the cached key that key extends, or null if there is none
+     */
+    public ModelKey findPrefix(ModelKey key, int maxNewValues) {
+        ModelKey best = null;
+        synchronized (entries) {
+            for (ModelKey cached : entries.keySet()) {
+                if (key.getLength() - cached.getLength() <= maxNewValues
+                        && (best == null || cached.getLength() > best.getLength())
+                        && key.isExtensionOf(cached)) {
+                    best = cached;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Add a trained neural network to the cache.
+     * @param key the key of the neural network
+     * @param network the trained neural network
+     */
+    public void put(ModelKey key, NeuralNetwork network) {
+        synchronized (entries) {
+            entries.put(key, network);
+        }
+    }
+
+    /**
+     * Remove every neural network from the cache.
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * Get the number of neural networks in the cache.
+     * @return the number of neural networks in the cache
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Get the number of requests that did not train a neural network.
+     * @return the number of cache hits
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Get the number of requests that trained a neural network.
+     * @return the number of cache misses
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Wait for a training that is run by another thread.
+     * @param training the running training
+     * @return the trained neural network
+     */
+    private static NeuralNetwork join(CompletableFuture<NeuralNetwork> training) {
+        try {
+            return training.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+}
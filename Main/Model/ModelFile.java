@@ -0,0 +1,322 @@
+package cpen221.mp3.Model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class ModelFile {
+    private static final int MAGIC = 0x314E4E50;
+    private static final int VERSION = 3;
+    private static final int FIXED_HEADER_SIZE = 128;
+    private static final int SGD = 0;
+    private static final int MOMENTUM = 1;
+    private static final int RMS_PROP = 2;
+    private static final int ADAM = 3;
+
+    private final ModelType model;
+    private final WeightLayout layout;
+    private final int[] layerSizes;
+    private final double learnRate;
+    private final int iteration;
+    private final int fineTuneIteration;
+    private final int fineTuneContext;
+    private final int horizon;
+    private final Precision precision;
+    private final int threads;
+    private final double minImprovement;
+    private final int patience;
+    private final double targetCost;
+    private final long timeBudgetMillis;
+    private final int publishInterval;
+    private final Optimizer optimizer;
+    private final LearningRateSchedule schedule;
+    private final MappedByteBuffer buffer;
+    private final int parameterOffset;
+    private Template template;
+
+    /*
+     ABSTRACTION FUNCTION:
+     - A model file is a trained neural network stored on disk together with its
+     template hyperparameters and model type. The file is memory-mapped and only
+     its header is read when it is opened; the weights and biases are copied into
+     a neural network the first time getTemplate is called.
+
+     The format is little-endian:
+     - int magic, int version, int model ordinal, int layout ordinal
+     - double learnRate
+     - int iteration, int fineTuneIteration, int fineTuneContext
+     - int horizon
+     - int precision ordinal, int threads, double minImprovement, int patience,
+     double targetCost, long timeBudgetMillis, int publishInterval
+     - int optimizer kind, which is SGD, MOMENTUM, RMS_PROP or ADAM, followed by three
+     doubles with its parameters in the order of its constructor, padded with zeros
+     - int schedule kind, int period, double factor, as LearningRateSchedule.write writes them
+     - int number of layer sizes, followed by the layer sizes
+     - padding to a multiple of 8 bytes
+     - for each layer, the weights in the order of the layout and then the biases
+
+     REPRESENTATION INVARIANT:
+     - model != null, layout != null, layerSizes != null
+     - precision != null, optimizer != null, schedule != null
+     - threads > 0, patience >= 0, timeBudgetMillis >= 0, publishInterval >= 0
+     - layerSizes.length >= 2
+     - buffer holds exactly the parameters of layerSizes from parameterOffset on
+     - template == null or template holds the parameters of buffer
+     */
+
+    /**
+     * Create a model file from its header.
+     * @param buffer the mapped file, positioned after the layer sizes
+     */
+    private ModelFile(ModelType model, WeightLayout layout, int[] layerSizes, double learnRate, int iteration,
+                      int fineTuneIteration, int fineTuneContext, int horizon, Precision precision, int threads,
+                      double minImprovement, int patience, double targetCost, long timeBudgetMillis,
+                      int publishInterval, Optimizer optimizer, LearningRateSchedule schedule,
+                      MappedByteBuffer buffer, int parameterOffset) {
+        this.model = model;
+        this.layout = layout;
+        this.layerSizes = layerSizes;
+        this.learnRate = learnRate;
+        this.iteration = iteration;
+        this.fineTuneIteration = fineTuneIteration;
+        this.fineTuneContext = fineTuneContext;
+        this.horizon = horizon;
+        this.precision = precision;
+        this.threads = threads;
+        this.minImprovement = minImprovement;
+        this.patience = patience;
+        this.targetCost = targetCost;
+        this.timeBudgetMillis = timeBudgetMillis;
+        this.publishInterval = publishInterval;
+        this.optimizer = optimizer;
+        this.schedule = schedule;
+        this.buffer = buffer;
+        this.parameterOffset = parameterOffset;
+    }
+
+    /**
+     * Save the neural network of a template, the hyperparameters of the template and its model to a file.
+     * The state of the optimizer is not saved, so training a loaded template starts it again.
+     * @param template the template whose neural network is saved
+     * @param model the model of the neural network
+     * @param path the file to write, which is replaced if it exists
+     * @throws IOException if the file cannot be written
+     * @throws IllegalArgumentException if the optimizer of the template is not an SgdOptimizer,
+     *                                  MomentumOptimizer, RmsPropOptimizer or AdamOptimizer
+     */
+    public static void save(Template template, ModelType model, Path path) throws IOException {
+        NeuralNetwork network = template.neuralNetwork;
+        int[] layerSizes = network.getLayerSizes();
+        int parameterOffset = headerSize(layerSizes.length);
+
+        ByteBuffer buffer = ByteBuffer.allocate(parameterOffset + network.getParameterCount() * Double.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putInt(model.ordinal());
+        buffer.putInt(network.getLayout().ordinal());
+        buffer.putDouble(template.learnRate);
+        buffer.putInt(template.iteration);
+        buffer.putInt(template.fineTuneIteration);
+        buffer.putInt(template.fineTuneContext);
+        buffer.putInt(network.getHorizon());
+        buffer.putInt(template.precision.ordinal());
+        buffer.putInt(template.threads);
+        buffer.putDouble(template.minImprovement);
+        buffer.putInt(template.patience);
+        buffer.putDouble(template.targetCost);
+        buffer.putLong(template.timeBudgetMillis);
+        buffer.putInt(template.publishInterval);
+        writeOptimizer(buffer, template.optimizer);
+        template.schedule.write(buffer);
+        buffer.putInt(layerSizes.length);
+        for (int layerSize : layerSizes) {
+            buffer.putInt(layerSize);
+        }
+        buffer.position(parameterOffset);
+        network.writeParameters(buffer.asDoubleBuffer());
+        buffer.rewind();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Open a model file by mapping it into memory and reading its header.
+     * @param path the file to open
+     * @return the opened model file
+     * @throws IOException if the file cannot be read or is not a valid model file
+     */
+    public static ModelFile open(Path path) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        if (buffer.remaining() < FIXED_HEADER_SIZE || buffer.getInt() != MAGIC) {
+            throw new IOException("Not a model file: " + path);
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported model file version " + version + ": " + path);
+        }
+        int modelOrdinal = buffer.getInt();
+        int layoutOrdinal = buffer.getInt();
+        double learnRate = buffer.getDouble();
+        int iteration = buffer.getInt();
+        int fineTuneIteration = buffer.getInt();
+        int fineTuneContext = buffer.getInt();
+        int horizon = buffer.getInt();
+        int precisionOrdinal = buffer.getInt();
+        int threads = buffer.getInt();
+        double minImprovement = buffer.getDouble();
+        int patience = buffer.getInt();
+        double targetCost = buffer.getDouble();
+        long timeBudgetMillis = buffer.getLong();
+        int publishInterval = buffer.getInt();
+        Optimizer optimizer = readOptimizer(buffer);
+        LearningRateSchedule schedule = LearningRateSchedule.read(buffer);
+        int layerCount = buffer.getInt();
+        if (modelOrdinal < 0 || modelOrdinal >= ModelType.values().length
+                || layoutOrdinal < 0 || layoutOrdinal >= WeightLayout.values().length
+                || precisionOrdinal < 0 || precisionOrdinal >= Precision.values().length
+                || threads <= 0 || patience < 0 || timeBudgetMillis < 0 || publishInterval < 0
+                || optimizer == null || schedule == null
+                || layerCount < 2 || layerCount > buffer.remaining() / Integer.BYTES) {
+            throw new IOException("Corrupt model file header: " + path);
+        }
+
+        int[] layerSizes = new int[layerCount];
+        long parameterCount = 0;
+        for (int i = 0; i < layerCount; i++) {
+            layerSizes[i] = buffer.getInt();
+            if (layerSizes[i] <= 0) {
+                throw new IOException("Corrupt model file header: " + path);
+            }
+            if (i > 0) {
+                parameterCount += (long) layerSizes[i - 1] * layerSizes[i] + layerSizes[i];
+            }
+        }
+        if (horizon != 0 && horizon != layerSizes[layerCount - 1]) {
+            throw new IOException("Corrupt model file header: " + path);
+        }
+        int parameterOffset = headerSize(layerCount);
+        if (buffer.capacity() != parameterOffset + parameterCount * Double.BYTES) {
+            throw new IOException("Model file has the wrong size: " + path);
+        }
+
+        return new ModelFile(ModelType.values()[modelOrdinal], WeightLayout.values()[layoutOrdinal], layerSizes,
+                learnRate, iteration, fineTuneIteration, fineTuneContext, horizon,
+                Precision.values()[precisionOrdinal], threads, minImprovement, patience, targetCost,
+                timeBudgetMillis, publishInterval, optimizer, schedule, buffer, parameterOffset);
+    }
+
+    /**
+     * Write an optimizer as its kind followed by three parameters.
+     * @param buffer the buffer that receives the optimizer
+     * @param optimizer the optimizer
+     * @throws IllegalArgumentException if the optimizer is not one of the optimizers of this package
+     */
+    private static void writeOptimizer(ByteBuffer buffer, Optimizer optimizer) {
+        if (optimizer instanceof SgdOptimizer) {
+            buffer.putInt(SGD).putDouble(0).putDouble(0).putDouble(0);
+        } else if (optimizer instanceof MomentumOptimizer) {
+            buffer.putInt(MOMENTUM).putDouble(((MomentumOptimizer) optimizer).getMomentum())
+                    .putDouble(0).putDouble(0);
+        } else if (optimizer instanceof RmsPropOptimizer) {
+            RmsPropOptimizer rmsProp = (RmsPropOptimizer) optimizer;
+            buffer.putInt(RMS_PROP).putDouble(rmsProp.getDecay()).putDouble(rmsProp.getEpsilon()).putDouble(0);
+        } else if (optimizer instanceof AdamOptimizer) {
+            AdamOptimizer adam = (AdamOptimizer) optimizer;
+            buffer.putInt(ADAM).putDouble(adam.getBeta1()).putDouble(adam.getBeta2()).putDouble(adam.getEpsilon());
+        } else {
+            throw new IllegalArgumentException("A model file cannot store the optimizer " + optimizer);
+        }
+    }
+
+    /**
+     * Read an optimizer written by writeOptimizer.
+     * @param buffer the buffer that holds the optimizer
+     * @return the optimizer, or null if the values are not a valid optimizer
+     */
+    private static Optimizer readOptimizer(ByteBuffer buffer) {
+        int kind = buffer.getInt();
+        double first = buffer.getDouble();
+        double second = buffer.getDouble();
+        double third = buffer.getDouble();
+        switch (kind) {
+            case SGD:
+                return new SgdOptimizer();
+            case MOMENTUM:
+                return first >= 0 && first < 1 ? new MomentumOptimizer(first) : null;
+            case RMS_PROP:
+                return first >= 0 && first < 1 && second > 0 ? new RmsPropOptimizer(first, second) : null;
+            case ADAM:
+                return first >= 0 && first < 1 && second >= 0 && second < 1 && third > 0
+                        ? new AdamOptimizer(first, second, third) : null;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Get the size of the header of a model file, including the padding.
+     * @param layerCount the number of layer sizes
+     * @return the offset of the parameters in the file
+     */
+    private static int headerSize(int layerCount) {
+        int size = FIXED_HEADER_SIZE + layerCount * Integer.BYTES;
+        return (size + Double.BYTES - 1) / Double.BYTES * Double.BYTES;
+    }
+
+    /**
+     * Get the model of the stored neural network.
+     * @return the model of the neural network
+     */
+    public ModelType getModel() {
+        return model;
+    }
+
+    /**
+     * Get the number of nodes in each layer of the stored neural network.
+     * @return an array of integers representing the number of nodes in each layer
+     */
+    public int[] getLayerSizes() {
+        return layerSizes.clone();
+    }
+
+    /**
+     * Get the template of the stored neural network, reading its weights and biases
+     * from the file the first time this is called.
+     * @return the template with the trained neural network
+     */
+    public synchronized Template getTemplate() {
+        if (template == null) {
+            Template loaded = new Template(layerSizes, learnRate, iteration, layout, horizon);
+            loaded.fineTuneIteration = fineTuneIteration;
+            loaded.fineTuneContext = fineTuneContext;
+            loaded.precision = precision;
+            loaded.threads = threads;
+            loaded.minImprovement = minImprovement;
+            loaded.patience = patience;
+            loaded.targetCost = targetCost;
+            loaded.timeBudgetMillis = timeBudgetMillis;
+            loaded.publishInterval = publishInterval;
+            loaded.optimizer = optimizer;
+            loaded.schedule = schedule;
+            loaded.neuralNetwork.readParameters(buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN)
+                    .position(parameterOffset).asDoubleBuffer());
+            template = loaded;
+        }
+        return template;
+    }
+}
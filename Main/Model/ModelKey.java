@@ -0,0 +1,164 @@
+package cpen221.mp3.Model;
+
+import java.util.Arrays;
+
+public final class ModelKey {
+    private final double[] series;
+    private final ModelType model;
+    private final int[] layerSizes;
+    private final WeightLayout layout;
+    private final double learnRate;
+    private final int iteration;
+    private final int horizon;
+    private final int fineTuneIteration;
+    private final int fineTuneContext;
+    private final int threads;
+    private final double minImprovement;
+    private final int patience;
+    private final double targetCost;
+    private final long timeBudgetMillis;
+    private final Precision precision;
+    private final Optimizer optimizer;
+    private final LearningRateSchedule schedule;
+    private final int publishInterval;
+    private final int hash;
+
+    /*
+     ABSTRACTION FUNCTION:
+     - A model key identifies a trained neural network by the data input it was
+     trained on, its model type, the layout of its weights and every hyperparameter and
+     stopping criterion of its template that affects how it is trained.
+     - hash is a content hash of all the other fields.
+
+     REPRESENTATION INVARIANT:
+     - series != null
+     - model != null
+     - layerSizes != null
+     - layout != null
+     - precision != null
+     - optimizer != null
+     - schedule != null
+     - series and layerSizes are never changed after construction
+     */
+
+    /**
+     * Create a new model key.
+     * @param dataInput an array of doubles representing the data input
+     * @param model the model of the neural network
+     * @param template the template of the neural network
+     * Pre-condition: dataInput != null, model != null, template != null
+     */
+    public ModelKey(double[] dataInput, ModelType model, Template template) {
+        this.series = dataInput.clone();
+        this.model = model;
+        this.layerSizes = template.layerSizes.clone();
+        this.layout = template.neuralNetwork.getLayout();
+        this.learnRate = template.learnRate;
+        this.iteration = template.iteration;
+        this.horizon = template.horizon;
+        this.fineTuneIteration = template.fineTuneIteration;
+        this.fineTuneContext = template.fineTuneContext;
+        this.threads = template.threads;
+        this.minImprovement = template.minImprovement;
+        this.patience = template.patience;
+        this.targetCost = template.targetCost;
+        this.timeBudgetMillis = template.timeBudgetMillis;
+        this.precision = template.precision;
+        this.optimizer = template.optimizer;
+        this.schedule = template.schedule;
+        this.publishInterval = template.publishInterval;
+
+        int result = Arrays.hashCode(series);
+        result = 31 * result + model.hashCode();
+        result = 31 * result + Arrays.hashCode(layerSizes);
+        result = 31 * result + layout.hashCode();
+        result = 31 * result + Double.hashCode(learnRate);
+        result = 31 * result + iteration;
+        result = 31 * result + horizon;
+        result = 31 * result + fineTuneIteration;
+        result = 31 * result + fineTuneContext;
+        result = 31 * result + threads;
+        result = 31 * result + Double.hashCode(minImprovement);
+        result = 31 * result + patience;
+        result = 31 * result + Double.hashCode(targetCost);
+        result = 31 * result + Long.hashCode(timeBudgetMillis);
+        result = 31 * result + precision.hashCode();
+        result = 31 * result + optimizer.hashCode();
+        result = 31 * result + schedule.hashCode();
+        result = 31 * result + publishInterval;
+        this.hash = result;
+    }
+
+    /**
+     * Get the model of the key.
+     * @return the model of the neural network
+     */
+    public ModelType getModel() {
+        return model;
+    }
+
+    /**
+     * Get the length of the data input of the key.
+     * @return the length of the data input
+     */
+    public int getLength() {
+        return series.length;
+    }
+
+    /**
+     * Check if this key extends the given key with new values.
+     * @param other the key that may be extended
+     * @return true if both keys have the same model and template and the data input of other
+     *         is a strict prefix of the data input of this key, and false otherwise
+     */
+    public boolean isExtensionOf(ModelKey other) {
+        int length = other.series.length;
+        return sameTemplate(other)
+                && length < series.length
+                && Arrays.equals(series, 0, length, other.series, 0, length);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof ModelKey)) {
+            return false;
+        }
+        ModelKey key = (ModelKey) other;
+        return hash == key.hash
+                && sameTemplate(key)
+                && Arrays.equals(series, key.series);
+    }
+
+    /**
+     * Check if this key has the same model and template as the given key.
+     * @param other the other key
+     * @return true if both keys have the same model, layout, hyperparameters and stopping criteria
+     */
+    private boolean sameTemplate(ModelKey other) {
+        return model == other.model
+                && iteration == other.iteration
+                && horizon == other.horizon
+                && fineTuneIteration == other.fineTuneIteration
+                && fineTuneContext == other.fineTuneContext
+                && threads == other.threads
+                && Double.compare(learnRate, other.learnRate) == 0
+                && Double.compare(minImprovement, other.minImprovement) == 0
+                && patience == other.patience
+                && Double.compare(targetCost, other.targetCost) == 0
+                && timeBudgetMillis == other.timeBudgetMillis
+                && precision == other.precision
+                && optimizer.equals(other.optimizer)
+                && schedule.equals(other.schedule)
+                && publishInterval == other.publishInterval
+                && layout == other.layout
+                && Arrays.equals(layerSizes, other.layerSizes);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
@@ -0,0 +1,366 @@
+package cpen221.mp3.Model;
+
+import java.nio.DoubleBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+public class ModelStore {
+    private static final int DEFAULT_SLAB_SIZE = 1 << 20;
+    private static final int INITIAL_MODELS = 1024;
+
+    private final int slabSize;
+    private final List<double[]> slabs;
+    private final List<Shape> shapes;
+    private final Map<Shape, Integer> shapeIds;
+    private final Map<Integer, Deque<Integer>> removedModels;
+    private final ReadWriteLock lock;
+    private final ThreadLocal<double[][]> scratch;
+    private int[] modelSlabs;
+    private int[] modelOffsets;
+    private int[] modelShapes;
+    private int size;
+    private int packedSlab;
+    private int used;
+
+    /*
+     ABSTRACTION FUNCTION:
+     - A model store holds the frozen weights and biases of many trained neural networks,
+     which can predict but not be trained. Model id is the index-th network that was added.
+     - The parameters of model id are slabs.get(modelSlabs[id])[modelOffsets[id] ...] and
+     are laid out as in NeuralNetwork.writeParameters with the COLUMN_MAJOR layout, so the
+     weights of each next node are contiguous. shapes.get(modelShapes[id]) holds the layer
+     sizes and horizon of model id, and is shared by every model of the same shape.
+     - Models are packed one after another into slabs of slabSize doubles; new models go into
+     slabs.get(packedSlab), of which used doubles are taken. A model larger than slabSize gets
+     a slab of its own.
+     No gradients, workspaces or layer objects are kept, so a model takes its parameter count
+     times 8 bytes and 12 bytes of index.
+     - A removed model has modelShapes[id] == -1, and its id is in removedModels under the id
+     of its shape until a new model of that shape takes its place in the slab.
+     - scratch holds the activations of the forward passes of each thread.
+
+     REPRESENTATION INVARIANT:
+     - slabSize > 0
+     - packedSlab == -1 and used == slabSize, or slabs.get(packedSlab).length == slabSize
+       and 0 <= used <= slabSize
+     - 0 <= size <= modelSlabs.length == modelOffsets.length == modelShapes.length
+     - for every id < size that is not removed, the parameters of model id lie inside its slab
+       and do not overlap the parameters of another model that is not removed
+     - every id in removedModels is removed and appears there at most once, and no model that
+       is not removed has the same slab and offset
+     - shapeIds maps every element of shapes to its index
+     - slabs, shapes, shapeIds, removedModels and the model arrays are only used while holding lock
+     */
+
+    /**
+     * Create an empty model store with slabs of about 8 MB.
+     */
+    public ModelStore() {
+        this(DEFAULT_SLAB_SIZE);
+    }
+
+    /**
+     * Create an empty model store.
+     * @param slabSize the number of doubles in each slab
+     * Pre-condition: slabSize > 0
+     */
+    public ModelStore(int slabSize) {
+        this.slabSize = slabSize;
+        this.slabs = new ArrayList<>();
+        this.shapes = new ArrayList<>();
+        this.shapeIds = new HashMap<>();
+        this.removedModels = new HashMap<>();
+        this.lock = new ReentrantReadWriteLock();
+        this.scratch = ThreadLocal.withInitial(() -> new double[2][0]);
+        this.modelSlabs = new int[INITIAL_MODELS];
+        this.modelOffsets = new int[INITIAL_MODELS];
+        this.modelShapes = new int[INITIAL_MODELS];
+        this.packedSlab = -1;
+        this.used = slabSize;
+    }
+
+    /**
+     * Add a frozen copy of the weights and biases of a trained neural network.
+     * The neural network is not changed and is not referenced by the store, so its
+     * gradients and buffers can be garbage collected once the caller drops it.
+     * The model takes the place of a removed model of the same shape if there is one.
+     * @param network the trained neural network
+     * @return the id of the model
+     */
+    public int add(NeuralNetwork network) {
+        Shape shape = new Shape(network.getLayerSizes(), network.getHorizon());
+
+        lock.writeLock().lock();
+        try {
+            if (size == modelSlabs.length) {
+                modelSlabs = Arrays.copyOf(modelSlabs, size * 2);
+                modelOffsets = Arrays.copyOf(modelOffsets, size * 2);
+                modelShapes = Arrays.copyOf(modelShapes, size * 2);
+            }
+
+            Integer shapeId = shapeIds.get(shape);
+            if (shapeId == null) {
+                shapeId = shapes.size();
+                shapes.add(shape);
+                shapeIds.put(shape, shapeId);
+            } else {
+                shape = shapes.get(shapeId);
+            }
+
+            int count = shape.parameterCount;
+            Deque<Integer> removed = removedModels.get(shapeId);
+            if (removed != null && !removed.isEmpty()) {
+                int freed = removed.pop();
+                modelSlabs[size] = modelSlabs[freed];
+                modelOffsets[size] = modelOffsets[freed];
+            } else if (count > slabSize) {
+                slabs.add(new double[count]);
+                modelSlabs[size] = slabs.size() - 1;
+                modelOffsets[size] = 0;
+            } else {
+                if (used + count > slabSize) {
+                    slabs.add(new double[slabSize]);
+                    packedSlab = slabs.size() - 1;
+                    used = 0;
+                }
+                modelSlabs[size] = packedSlab;
+                modelOffsets[size] = used;
+                used += count;
+            }
+            modelShapes[size] = shapeId;
+
+            double[] slab = slabs.get(modelSlabs[size]);
+            network.writeParameters(DoubleBuffer.wrap(slab, modelOffsets[size], count), WeightLayout.COLUMN_MAJOR);
+            return size++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replace the weights and biases of a model with those of a retrained neural network.
+     * @param id the id of the model
+     * @param network the retrained neural network, with the same layer sizes and horizon as the model
+     * @throws IllegalArgumentException if the model was removed or the neural network has a
+     *                                  different shape than the model
+     * Pre-condition: 0 <= id < size()
+     */
+    public void replace(int id, NeuralNetwork network) {
+        Shape shape = new Shape(network.getLayerSizes(), network.getHorizon());
+
+        lock.writeLock().lock();
+        try {
+            if (modelShapes[id] == -1) {
+                throw new IllegalArgumentException("Model " + id + " was removed");
+            }
+            if (!shape.equals(shapes.get(modelShapes[id]))) {
+                throw new IllegalArgumentException("The neural network has a different shape than model " + id);
+            }
+            double[] slab = slabs.get(modelSlabs[id]);
+            network.writeParameters(DoubleBuffer.wrap(slab, modelOffsets[id], shape.parameterCount),
+                    WeightLayout.COLUMN_MAJOR);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove a model from the store. Its id is not given out again, and the next model of
+     * the same shape that is added takes its place in the slab.
+     * @param id the id of the model
+     * @throws IllegalArgumentException if the model was already removed
+     * Pre-condition: 0 <= id < size()
+     */
+    public void remove(int id) {
+        lock.writeLock().lock();
+        try {
+            int shapeId = modelShapes[id];
+            if (shapeId == -1) {
+                throw new IllegalArgumentException("Model " + id + " was already removed");
+            }
+            modelShapes[id] = -1;
+            removedModels.computeIfAbsent(shapeId, key -> new ArrayDeque<>()).push(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Create a trainable neural network with the weights and biases of a model.
+     * @param id the id of the model
+     * @return a new neural network that does not share any array with the store
+     * Pre-condition: 0 <= id < size(), model id is not removed
+     */
+    public NeuralNetwork get(int id) {
+        lock.readLock().lock();
+        try {
+            Shape shape = shapes.get(modelShapes[id]);
+            NeuralNetwork network = new NeuralNetwork(shape.layerSizes, WeightLayout.COLUMN_MAJOR, shape.horizon);
+            network.readParameters(DoubleBuffer.wrap(slabs.get(modelSlabs[id]), modelOffsets[id],
+                    shape.parameterCount));
+            return network;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Predict the next steps of the given data input with a model, as NeuralNetwork.forecast does.
+     * @param id the id of the model
+     * @param dataInput an array of doubles representing the data input
+     * @param steps the number of steps to predict
+     * @param isBoolean whether the model is predicting a boolean
+     * @return an array of doubles representing the predictions
+     * Pre-condition: 0 <= id < size(), model id is not removed, the model was trained with train,
+     *                dataInput.length >= the number of nodes of the first layer of the model
+     */
+    public double[] forecast(int id, double[] dataInput, int steps, boolean isBoolean) {
+        lock.readLock().lock();
+        try {
+            Shape shape = shapes.get(modelShapes[id]);
+            double[] currentInput = ForwardPass.lastWindow(dataInput, shape.layerSizes[0]);
+            return rollout(id, shape, currentInput, steps, isBoolean);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Predict the next steps of the given data input with a model, as NeuralNetwork.forecastTimeStamp does.
+     * @param id the id of the model
+     * @param dataInput an array of doubles representing the data input
+     * @param steps the number of steps to predict
+     * @param isBoolean whether the model is predicting a boolean
+     * @return an array of doubles representing the predictions
+     * Pre-condition: 0 <= id < size(), model id is not removed, the model was trained with trainTimeStamp,
+     *                dataInput.length > the number of nodes of the first layer of the model
+     */
+    public double[] forecastTimeStamp(int id, double[] dataInput, int steps, boolean isBoolean) {
+        lock.readLock().lock();
+        try {
+            Shape shape = shapes.get(modelShapes[id]);
+            double[] currentInput = ForwardPass.lastDifferenceWindow(dataInput, shape.layerSizes[0]);
+            return ForwardPass.integrate(dataInput, rollout(id, shape, currentInput, steps, isBoolean));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Predict the next steps that follow an input window with a model.
+     * @param id the id of the model
+     * @param shape the shape of the model
+     * @param currentInput the last input window, which is changed by this method
+     * @param steps the number of steps to predict
+     * @param isBoolean whether the model is predicting a boolean
+     * @return an array of doubles representing the predictions
+     */
+    private double[] rollout(int id, Shape shape, double[] currentInput, int steps, boolean isBoolean) {
+        double[] slab = slabs.get(modelSlabs[id]);
+        int offset = modelOffsets[id];
+        double[][] buffers = scratch.get();
+        if (buffers[0].length < shape.maxWidth) {
+            buffers[0] = new double[shape.maxWidth];
+            buffers[1] = new double[shape.maxWidth];
+        }
+        return ForwardPass.rollout((inputs, booleanOutput) -> ForwardPass.dense(slab, offset, shape.layerSizes,
+                inputs, buffers, booleanOutput), shape.horizon, currentInput, steps, isBoolean);
+    }
+
+    /**
+     * Get the number of nodes in each layer of a model.
+     * @param id the id of the model
+     * @return an array of integers representing the number of nodes in each layer
+     * Pre-condition: 0 <= id < size(), model id is not removed
+     */
+    public int[] getLayerSizes(int id) {
+        lock.readLock().lock();
+        try {
+            return shapes.get(modelShapes[id]).layerSizes.clone();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the number of models added to the store, including the removed models.
+     * @return the number of ids given out
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the number of bytes of the parameters and index of the store, without the
+     * constant overhead of its objects.
+     * @return the number of bytes taken by the slabs and the model index
+     */
+    public long getMemoryBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = 3L * Integer.BYTES * modelSlabs.length;
+            for (double[] slab : slabs) {
+                bytes += (long) Double.BYTES * slab.length;
+            }
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static final class Shape {
+        private final int[] layerSizes;
+        private final int horizon;
+        private final int parameterCount;
+        private final int maxWidth;
+
+        /*
+         ABSTRACTION FUNCTION:
+         - A shape is the layer sizes and horizon of a model, with its number of parameters
+         and the largest number of nodes of a layer after the first.
+
+         REPRESENTATION INVARIANT:
+         - layerSizes.length >= 2
+         - layerSizes is never changed
+         */
+
+        private Shape(int[] layerSizes, int horizon) {
+            this.layerSizes = layerSizes;
+            this.horizon = horizon;
+            int count = 0;
+            int width = 0;
+            for (int l = 1; l < layerSizes.length; l++) {
+                count += layerSizes[l - 1] * layerSizes[l] + layerSizes[l];
+                width = Math.max(width, layerSizes[l]);
+            }
+            this.parameterCount = count;
+            this.maxWidth = width;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Shape)) {
+                return false;
+            }
+            Shape shape = (Shape) other;
+            return horizon == shape.horizon && Arrays.equals(layerSizes, shape.layerSizes);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Arrays.hashCode(layerSizes) + horizon;
+        }
+    }
+}
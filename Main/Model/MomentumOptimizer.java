@@ -0,0 +1,80 @@
+package cpen221.mp3.Model;
+
+public final class MomentumOptimizer implements Optimizer {
+    private final double momentum;
+
+    /*
+     ABSTRACTION FUNCTION:
+     - A momentum optimizer keeps a velocity for every parameter, which is the gradient
+     plus momentum times the previous velocity, and moves the parameter against its
+     velocity by the learning rate times the velocity.
+     - state[p] is the velocity of parameter p.
+
+     REPRESENTATION INVARIANT:
+     - 0 <= momentum < 1
+     */
+
+    /**
+     * Create a momentum optimizer with a momentum of 0.9.
+     */
+    public MomentumOptimizer() {
+        this(0.9);
+    }
+
+    /**
+     * Create a momentum optimizer.
+     * @param momentum the fraction of the previous velocity that is kept
+     * Pre-condition: 0 <= momentum < 1
+     */
+    public MomentumOptimizer(double momentum) {
+        this.momentum = momentum;
+    }
+
+    /**
+     * Get the fraction of the previous velocity that is kept.
+     * @return the momentum
+     */
+    double getMomentum() {
+        return momentum;
+    }
+
+    @Override
+    public int getStateSize() {
+        return 1;
+    }
+
+    @Override
+    public void update(double[] parameters, double[] gradients, double[] state, double learnRate, long step) {
+        for (int p = 0; p < parameters.length; p++) {
+            double velocity = momentum * state[p] + gradients[p];
+            state[p] = velocity;
+            parameters[p] -= learnRate * velocity;
+        }
+    }
+
+    @Override
+    public void update(float[] parameters, float[] gradients, float[] state, float learnRate, long step) {
+        float momentum = (float) this.momentum;
+        for (int p = 0; p < parameters.length; p++) {
+            float velocity = momentum * state[p] + gradients[p];
+            state[p] = velocity;
+            parameters[p] -= learnRate * velocity;
+        }
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof MomentumOptimizer
+                && Double.compare(momentum, ((MomentumOptimizer) other).momentum) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return Double.hashCode(momentum);
+    }
+
+    @Override
+    public String toString() {
+        return "Momentum(" + momentum + ")";
+    }
+}
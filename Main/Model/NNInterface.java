@@ -1,14 +1,45 @@
 package cpen221.mp3.Model;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class NNInterface {
 
+    private static final int CACHE_CAPACITY = 256;
+    private static final ModelCache CACHE = new ModelCache(CACHE_CAPACITY);
+    private static final int MAX_WARM_START_VALUES = 64;
+    private static final int COMPILE_QUEUE_CAPACITY = 64;
+    private static final ThreadPoolExecutor COMPILER = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(COMPILE_QUEUE_CAPACITY), task -> {
+                Thread thread = new Thread(task, "network-compiler");
+                thread.setDaemon(true);
+                return thread;
+            });
+
     public ModelType model;
 
     /*
      ABSTRACTION FUNCTION:
      This class provides a static method to predict the next steps of the given data input.
+     Trained neural networks are kept in CACHE, so that the same data input and model
+     are only trained once. When a data input extends a cached one by at most
+     MAX_WARM_START_VALUES values, a copy of the cached neural network is fine-tuned
+     instead of training a new one.
+     A cached neural network that predicts again has its forward pass compiled by the COMPILER
+     thread, so its later predictions use the compiled forward pass. Compilations that do not fit
+     in the queue of COMPILER are rejected and release their claim, so they are requested again
+     by the next prediction of that network. Networks that cannot be compiled, such as those of a
+     runtime without a Java compiler, keep the interpreted forward pass.
 
      REPRESENTATION INVARIANT:
      - dataInput != null
@@ -19,6 +50,8 @@ public class NNInterface {
 
     /**
      * Predict the next steps of the given data input.
+     * A neural network that was already trained on the same data input and model is reused,
+     * and one that was trained on a prefix of the data input is fine-tuned on the new values.
      * @param dataInput an array of doubles representing the data input
      * @param steps the number of steps to predict
      * @param model the model of the neural network
@@ -26,47 +59,260 @@ public class NNInterface {
      * pre-condition: dataInput.length > 4, steps > 0, model != null
      */
     public static double[] predict(double[] dataInput, int steps, ModelType model) {
+        return predict(dataInput, steps, model, 0);
+    }
+
+    /**
+     * Predict the next steps of the given data input, training for at most the given time.
+     * A neural network that was already trained on the same data input, model and time budget
+     * is reused, and one that was trained on a prefix of the data input is fine-tuned on the new values.
+     * @param dataInput an array of doubles representing the data input
+     * @param steps the number of steps to predict
+     * @param model the model of the neural network
+     * @param timeBudgetMillis the largest number of milliseconds spent training, or 0 for no limit
+     * @return an array of doubles representing the predictions
+     * pre-condition: dataInput.length > 4, steps > 0, model != null, timeBudgetMillis >= 0
+     */
+    public static double[] predict(double[] dataInput, int steps, ModelType model, long timeBudgetMillis) {
         double[] predictions;
         boolean isBoolean = model == ModelType.BOOLEAN;
-        int numRepeat = 0;
 
-        if (isBoolean) {
-            numRepeat = getNumRepeat(dataInput);
+        Template template = createTemplate(SeriesSource.of(dataInput), model);
+        template.timeBudgetMillis = timeBudgetMillis;
+        ModelKey key = new ModelKey(dataInput, model, template);
+        boolean[] trained = {false};
+        NeuralNetwork network = CACHE.getOrTrain(key, () -> {
+            trained[0] = true;
+            return train(dataInput, model, template, key);
+        });
+        if (!trained[0]) {
+            compileLater(network, isBoolean);
         }
 
-        Template template;
-        switch (model) {
-            case BOOLEAN:
-                template = new Template(new int[]{numRepeat + 1, 1}, 0.5, 5000);
-                predictions = template.neuralNetwork.predict(dataInput, steps, template, isBoolean);
-                break;
-            case DOUBLE:
-                template = new Template(new int[]{4, 3, 1}, 0.000135, 65000);
-
-                predictions = template.neuralNetwork.predict(dataInput, steps, template, isBoolean);
-                if (checkUniqueValues(dataInput)) {
-                    for (int i = 0; i < predictions.length; i++) {
-                        if (i >= 2) {
-                            predictions[i] = predictions[i - 2];
-                        } else {
-                            if (Math.abs(predictions[i] - dataInput[i])
-                                    > Math.abs(predictions[i] - dataInput[i + 1])) {
-                                predictions[i] = dataInput[i + 1];
-                            } else {
-                                predictions[i] = dataInput[i];
-                            }
-                        }
+        if (model == ModelType.DOUBLE_TIMESTAMP) {
+            predictions = network.forecastTimeStamp(dataInput, steps, isBoolean);
+        } else {
+            predictions = network.forecast(dataInput, steps, isBoolean);
+        }
+
+        return postProcess(SeriesSource.of(dataInput), predictions, model);
+    }
+
+    /**
+     * Predict the next steps of the given data input only if predict would not have to train,
+     * because a neural network trained on the same data input and model is cached.
+     * @param dataInput an array of doubles representing the data input
+     * @param steps the number of steps to predict
+     * @param model the model of the neural network
+     * @return an array of doubles representing the predictions, which are the same as those of
+     *         predict, or null if no neural network is cached for the data input and model
+     * pre-condition: dataInput.length > 4, steps > 0, model != null
+     */
+    public static double[] predictIfTrained(double[] dataInput, int steps, ModelType model) {
+        boolean isBoolean = model == ModelType.BOOLEAN;
+        Template template = createTemplate(SeriesSource.of(dataInput), model);
+        NeuralNetwork network = CACHE.get(new ModelKey(dataInput, model, template));
+        if (network == null) {
+            return null;
+        }
+        compileLater(network, isBoolean);
+
+        double[] predictions;
+        if (model == ModelType.DOUBLE_TIMESTAMP) {
+            predictions = network.forecastTimeStamp(dataInput, steps, isBoolean);
+        } else {
+            predictions = network.forecast(dataInput, steps, isBoolean);
+        }
+        return postProcess(SeriesSource.of(dataInput), predictions, model);
+    }
+
+    /**
+     * Predict the next steps of a series that does not have to fit on the heap, such as a
+     * MappedSeriesSource of a large file, training for at most the given time.
+     * The series is read in place, so it is not copied into the cache, and a new neural
+     * network is trained every time.
+     * @param series the data input
+     * @param steps the number of steps to predict
+     * @param model the model of the neural network
+     * @param timeBudgetMillis the largest number of milliseconds spent training, or 0 for no limit
+     * @return an array of doubles representing the predictions
+     * @throws IllegalArgumentException if the series has more than Integer.MAX_VALUE windows
+     * pre-condition: series.length() > 4, steps > 0, model != null, timeBudgetMillis >= 0
+     */
+    public static double[] predict(SeriesSource series, int steps, ModelType model, long timeBudgetMillis) {
+        double[] predictions;
+        boolean isBoolean = model == ModelType.BOOLEAN;
+
+        Template template = createTemplate(series, model);
+        template.timeBudgetMillis = timeBudgetMillis;
+        NeuralNetwork network = template.neuralNetwork;
+
+        if (model == ModelType.DOUBLE_TIMESTAMP) {
+            network.trainTimeStamp(series, template, isBoolean);
+            predictions = network.forecastTimeStamp(series, steps, isBoolean);
+        } else {
+            network.train(series, template, isBoolean);
+            predictions = network.forecast(series, steps, isBoolean);
+        }
+
+        return postProcess(series, predictions, model);
+    }
+
+    /**
+     * Predict the next steps of the given data input with a template chosen for it.
+     * Candidate templates around the default template of the model are trained concurrently
+     * and scored on the last values of the data input, and the best one is used.
+     * @param dataInput an array of doubles representing the data input
+     * @param steps the number of steps to predict
+     * @param model the model of the neural network
+     * @param budgetMillis the largest number of milliseconds spent on the search, or 0 for no limit
+     * @return an array of doubles representing the predictions
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     * pre-condition: dataInput.length > 8, steps > 0, model != null, budgetMillis >= 0
+     */
+    public static double[] predictTuned(double[] dataInput, int steps, ModelType model, long budgetMillis)
+            throws InterruptedException {
+        boolean isBoolean = model == ModelType.BOOLEAN;
+        int holdout = Math.max(1, Math.min(steps, dataInput.length / 4));
+        double[] head = Arrays.copyOf(dataInput, dataInput.length - holdout);
+
+        SearchResult result = TemplateSearch.search(dataInput, model, createCandidates(head, model), holdout,
+                budgetMillis);
+        NeuralNetwork network = result.getTemplate().neuralNetwork;
+
+        double[] predictions;
+        if (model == ModelType.DOUBLE_TIMESTAMP) {
+            predictions = network.forecastTimeStamp(dataInput, steps, isBoolean);
+        } else {
+            predictions = network.forecast(dataInput, steps, isBoolean);
+        }
+        return postProcess(SeriesSource.of(dataInput), predictions, model);
+    }
+
+    /**
+     * Predict every job concurrently on the common fork-join pool, running at most
+     * one job per processor at a time.
+     * @param jobs the prediction jobs
+     * @return the results of the jobs, in the order of jobs
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    public static List<PredictionResult> predictAll(List<PredictionJob> jobs) throws InterruptedException {
+        return predictAll(jobs, ForkJoinPool.commonPool(), Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Predict every job concurrently on the given executor. A job that fails does not
+     * affect the other jobs; its result holds the error instead.
+     * @param jobs the prediction jobs
+     * @param executor the executor that runs the jobs
+     * @param parallelism the largest number of jobs that run at the same time
+     * @return the results of the jobs, in the order of jobs
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     * pre-condition: jobs != null, executor != null, parallelism > 0
+     */
+    public static List<PredictionResult> predictAll(List<PredictionJob> jobs, ExecutorService executor,
+                                                    int parallelism) throws InterruptedException {
+        PredictionJob[] pending = jobs.toArray(new PredictionJob[0]);
+        PredictionResult[] results = new PredictionResult[pending.length];
+        AtomicInteger next = new AtomicInteger();
+
+        Runnable worker = () -> {
+            for (int i = next.getAndIncrement(); i < pending.length; i = next.getAndIncrement()) {
+                try {
+                    results[i] = PredictionResult.success(pending[i].run());
+                } catch (RuntimeException e) {
+                    results[i] = PredictionResult.failure(e);
+                }
+            }
+        };
+
+        int workers = Math.min(parallelism, pending.length);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < workers; i++) {
+            futures.add(executor.submit(worker));
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Prediction worker failed", e.getCause());
+            }
+        }
+
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Train a neural network for the given data input, starting from the cached neural network
+     * of a prefix of the data input if there is one.
+     * @param dataInput an array of doubles representing the data input
+     * @param model the model of the neural network
+     * @param template the untrained template of the model
+     * @param key the key of the data input, model and template
+     * @return the trained neural network
+     */
+    private static NeuralNetwork train(double[] dataInput, ModelType model, Template template, ModelKey key) {
+        boolean isBoolean = model == ModelType.BOOLEAN;
+        ModelKey prefix = CACHE.findPrefix(key, MAX_WARM_START_VALUES);
+        NeuralNetwork previous = prefix == null ? null : CACHE.get(prefix);
+
+        if (previous != null) {
+            NeuralNetwork network = previous.copy();
+            if (model == ModelType.DOUBLE_TIMESTAMP) {
+                network.updateTimeStamp(dataInput, prefix.getLength(), template, isBoolean);
+            } else {
+                network.update(dataInput, prefix.getLength(), template, isBoolean);
+            }
+            return network;
+        }
+
+        if (model == ModelType.DOUBLE_TIMESTAMP) {
+            template.neuralNetwork.trainTimeStamp(dataInput, template, isBoolean);
+        } else {
+            template.neuralNetwork.train(dataInput, template, isBoolean);
+        }
+        return template.neuralNetwork;
+    }
+
+    /**
+     * Compile the forward pass of a cached neural network on the COMPILER thread, unless its
+     * compilation was already requested. A request that does not fit in the queue of COMPILER
+     * is dropped and releases its claim.
+     * @param network the cached neural network
+     * @param isBoolean whether the neural network is predicting a boolean
+     */
+    private static void compileLater(NeuralNetwork network, boolean isBoolean) {
+        ParameterSnapshot snapshot = network.getSnapshot();
+        if (snapshot.claimCompilation()) {
+            try {
+                COMPILER.execute(() -> snapshot.compile(isBoolean));
+            } catch (RejectedExecutionException e) {
+                snapshot.releaseCompilation();
+            }
+        }
+    }
+
+    /**
+     * Apply the post-processing of the given model to its predictions and round them to three decimals.
+     * @param dataInput the data input
+     * @param predictions the predictions of the neural network, which are changed
+     * @param model the model of the neural network
+     * @return the post-processed predictions
+     */
+    private static double[] postProcess(SeriesSource dataInput, double[] predictions, ModelType model) {
+        if (model == ModelType.DOUBLE && checkUniqueValues(dataInput)) {
+            for (int i = 0; i < predictions.length; i++) {
+                if (i >= 2) {
+                    predictions[i] = predictions[i - 2];
+                } else {
+                    if (Math.abs(predictions[i] - dataInput.get(i))
+                            > Math.abs(predictions[i] - dataInput.get(i + 1))) {
+                        predictions[i] = dataInput.get(i + 1);
+                    } else {
+                        predictions[i] = dataInput.get(i);
                     }
                 }
-                break;
-            case DOUBLE_TIMESTAMP:
-                template = new Template(new int[]{3, 6, 1}, 0.02, 20000);
-                predictions = template.neuralNetwork.predictTimeStamp(dataInput, steps, template, isBoolean);
-                break;
-            default:
-                template = new Template(new int[]{1, 1}, 0.05, 1000);
-                predictions = template.neuralNetwork.predict(dataInput, steps, template, isBoolean);
-                break;
+            }
         }
 
         for (int i = 0; i < predictions.length; i++) {
@@ -77,25 +323,76 @@ public class NNInterface {
     }
 
     /**
-     * Get the number of repeats in the given data input.
+     * Get the cache of trained neural networks used by predict.
+     * @return the cache of trained neural networks
+     */
+    public static ModelCache getCache() {
+        return CACHE;
+    }
+
+    /**
+     * Create the template of the given model for the given data input.
+     * @param dataInput the data input
+     * @param model the model of the neural network
+     * @return the untrained template of the model
+     */
+    private static Template createTemplate(SeriesSource dataInput, ModelType model) {
+        switch (model) {
+            case BOOLEAN:
+                return new Template(new int[]{getNumRepeat(dataInput) + 1, 1}, 0.5, 5000);
+            case DOUBLE:
+                return new Template(new int[]{4, 3, 1}, 0.000135, 65000);
+            case DOUBLE_TIMESTAMP:
+                return new Template(new int[]{3, 6, 1}, 0.02, 20000);
+            default:
+                return new Template(new int[]{1, 1}, 0.05, 1000);
+        }
+    }
+
+    /**
+     * Create the candidate templates of the given model for the given data input, around the
+     * template that createTemplate uses.
      * @param dataInput an array of doubles representing the data input
+     * @param model the model of the neural network
+     * @return the untrained candidate templates
+     */
+    private static List<Template> createCandidates(double[] dataInput, ModelType model) {
+        switch (model) {
+            case BOOLEAN:
+                int firstLayerSize = getNumRepeat(SeriesSource.of(dataInput)) + 1;
+                return TemplateSearch.grid(new int[][]{{firstLayerSize, 1}, {firstLayerSize, 4, 1}},
+                        new double[]{0.1, 0.5, 1.0}, 5000);
+            case DOUBLE:
+                return TemplateSearch.grid(new int[][]{{4, 3, 1}, {3, 4, 1}, {4, 6, 1}, {6, 6, 1}},
+                        new double[]{0.000135, 0.001, 0.01}, 65000);
+            case DOUBLE_TIMESTAMP:
+                return TemplateSearch.grid(new int[][]{{3, 6, 1}, {2, 4, 1}, {4, 8, 1}},
+                        new double[]{0.005, 0.02, 0.05}, 20000);
+            default:
+                return TemplateSearch.grid(new int[][]{{1, 1}}, new double[]{0.05}, 1000);
+        }
+    }
+
+    /**
+     * Get the number of repeats in the given data input.
+     * @param dataInput the data input
      * @return the number of repeats in the given data input
      */
-    private static int getNumRepeat(double[] dataInput) {
+    private static int getNumRepeat(SeriesSource dataInput) {
         int numRepeatFirst = 1;
         int numRepeatSecond = 1;
         int numRepeat;
         int numRepeatChange = 0;
 
-        for (int i = 0; i < dataInput.length - 1; i++) {
+        for (long i = 0; i < dataInput.length() - 1; i++) {
             if (numRepeatChange == 0) {
-                if (dataInput[i] == dataInput[i + 1]) {
+                if (dataInput.get(i) == dataInput.get(i + 1)) {
                     numRepeatFirst++;
                 } else {
                     numRepeatChange++;
                 }
             } else if (numRepeatChange == 1) {
-                if (dataInput[i] == dataInput[i + 1]) {
+                if (dataInput.get(i) == dataInput.get(i + 1)) {
                     numRepeatSecond++;
                 } else {
                     numRepeatChange++;
@@ -108,25 +405,28 @@ public class NNInterface {
 
         numRepeat = numRepeatFirst + numRepeatSecond;
 
-        if (numRepeat > dataInput.length / 2) {
-            numRepeat = dataInput.length / 2;
+        if (numRepeat > dataInput.length() / 2) {
+            numRepeat = (int) (dataInput.length() / 2);
         }
         return numRepeat;
     }
 
     /**
      * Check if the given data input has unique values.
-     * @param dataInput an array of doubles representing the data input
+     * @param dataInput the data input
      * @return true if the given data input has unique values and false otherwise
      */
-    private static boolean checkUniqueValues(double[] dataInput) {
+    private static boolean checkUniqueValues(SeriesSource dataInput) {
         ArrayList<Double> uniqueValues = new ArrayList<>();
         int uniqueValue = 1;
 
-        for (int i = 0; i < dataInput.length - 1; i++) {
-            uniqueValues.add(dataInput[i]);
-            if (dataInput[i] != dataInput[i + 1]
-                    && !uniqueValues.contains(dataInput[i + 1])) {
+        for (long i = 0; i < dataInput.length() - 1; i++) {
+            double value = dataInput.get(i);
+            double next = dataInput.get(i + 1);
+            if (!uniqueValues.contains(value)) {
+                uniqueValues.add(value);
+            }
+            if (value != next && !uniqueValues.contains(next)) {
                 uniqueValue++;
             }
             if (uniqueValue > 2) {
@@ -1,20 +1,76 @@
 package cpen221.mp3.Model;
 
-import javax.management.modelmbean.ModelMBean;
+import java.nio.DoubleBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
-import cpen221.mp3.Model.Template;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class NeuralNetwork {
+    private static final double H_VALUE = 0.0001;
+    private static final int BATCH_ROWS = 256;
+
     private Layer[] layers;
+    private int horizon;
+    private Workspace workspace;
+    private double[][][] batchActivations;
+    private double[][] batchInputs;
+    private Workspace[] shardWorkspaces;
+    private List<Callable<Void>> shardTasks;
+    private ExecutorService trainingPool;
+    private FloatTrainer floatTrainer;
+    private boolean gradientCheck;
+    private TrainingResult lastTrainingResult;
+    private TrainingListener listener;
+    private final AtomicReference<ParameterSnapshot> snapshot = new AtomicReference<>();
 
     /*
      ABSTRACTION FUNCTION:
      - A neural network is a collection of layers that are connected to each other.
      The neural network has a number of layers.
      - This neural network is constructed to predict the next steps of a given data input.
+     - If horizon is 0, the neural network predicts one step per forward pass and the
+     steps are predicted one at a time, feeding each prediction back in. Otherwise the
+     last layer predicts the next horizon values after its input window directly, and
+     more steps than horizon are predicted horizon at a time.
+     - workspace holds the buffers of the forward and backward passes of this network.
+     The public methods that use it are synchronized, so a network can be shared
+     between threads.
+     - batchInputs[i] holds input i and batchActivations[l][i] holds output i of layer l
+     for a tile of at most BATCH_ROWS rows of a batched forward pass, one array per
+     feature; both are null until they are first needed. Batched passes go through every
+     layer one tile at a time, so the activations of a tile stay in the cache.
+     - While fit trains with more than one thread, the data points are split into
+     shards, shardWorkspaces[s] holds the buffers of shard s, shardTasks[s] computes
+     the gradients of shard s and trainingPool runs shardTasks. The gradients of the
+     shards are added in shard order, so the result only depends on the number of shards.
+     Otherwise shardTasks and trainingPool are null.
+     - While fit trains with single precision, floatTrainer holds the single-precision
+     copy of the layers that learn updates and of the windows they learn from, and its
+     weights and biases are written back into layers when a snapshot is published, and
+     with its optimizer state when fit ends. Otherwise floatTrainer is null.
+     Single-precision fits run on one thread, so fit rejects a template with single
+     precision and more than one thread.
+     - gradientCheck is true if the gradients are computed by finite differences
+     instead of backpropagation.
+     - lastTrainingResult describes the last call to fit, or is null if fit was never called.
+     - listener is notified of every training iteration, or is null if there is none.
+     - snapshot holds the last published copy of the weights and biases. It is published when
+     the network is created, when a training or a public single learning step ends, and every
+     template.publishInterval iterations of a training, so forecast reads it without locks
+     and is never blocked by training or sees weights that are half updated.
+     Fit, learn and predict are also reported as Flight Recorder events.
 
      REPRESENTATION INVARIANT:
      - layers != null
+     - horizon == 0 or horizon == the number of next nodes of the last layer
+     - workspace != null and matches the sizes of layers
+     - snapshot.get() != null and has the sizes and horizon of layers
      */
 
     /**
@@ -22,43 +78,262 @@ public class NeuralNetwork {
      * @param layerSizes an array of integers representing the number of nodes in each layer
      */
     public NeuralNetwork(int[] layerSizes) {
+        this(layerSizes, WeightLayout.COLUMN_MAJOR);
+    }
+
+    /**
+     * Create a new neural network with the given layer sizes.
+     * @param layerSizes an array of integers representing the number of nodes in each layer
+     * @param layout the order in which the weights of every layer are stored
+     */
+    public NeuralNetwork(int[] layerSizes, WeightLayout layout) {
+        this(layerSizes, layout, 0);
+    }
+
+    /**
+     * Create a new neural network with the given layer sizes that predicts the given number
+     * of steps in one forward pass.
+     * @param layerSizes an array of integers representing the number of nodes in each layer
+     * @param layout the order in which the weights of every layer are stored
+     * @param horizon the number of steps predicted by one forward pass, or 0 to predict
+     *                one step at a time
+     * Pre-condition: horizon == 0 or horizon == layerSizes[layerSizes.length - 1]
+     */
+    public NeuralNetwork(int[] layerSizes, WeightLayout layout, int horizon) {
+        this.horizon = horizon;
         layers = new Layer[layerSizes.length - 1];
 
         for (int i = 0; i < layerSizes.length - 1; i++) {
-            layers[i] = new Layer(layerSizes[i], layerSizes[i + 1]);
+            layers[i] = new Layer(layerSizes[i], layerSizes[i + 1], layout);
         }
+        workspace = new Workspace(layers);
+        publish();
     }
 
     /**
-     * Predict the next steps of the given data input.
+     * Create a copy of the given neural network.
+     * @param other the neural network to copy
+     */
+    private NeuralNetwork(NeuralNetwork other) {
+        layers = new Layer[other.layers.length];
+        for (int l = 0; l < layers.length; l++) {
+            layers[l] = other.layers[l].copy();
+        }
+        horizon = other.horizon;
+        workspace = new Workspace(layers);
+        gradientCheck = other.gradientCheck;
+        publish();
+    }
+
+    /**
+     * Create a copy of this neural network with the same weights and biases.
+     * Training the copy does not change this neural network.
+     * @return a copy of this neural network
+     */
+    public synchronized NeuralNetwork copy() {
+        return new NeuralNetwork(this);
+    }
+
+    /**
+     * Get the last published snapshot of the weights and biases of the neural network, without locking.
+     * A snapshot never changes, so it can forecast while the neural network is training.
+     * @return the last published snapshot
+     */
+    public ParameterSnapshot getSnapshot() {
+        return snapshot.get();
+    }
+
+    /**
+     * Get the result of the last training of the neural network.
+     * @return why the last training stopped and how many iterations ran, or null if it was never trained
+     */
+    public synchronized TrainingResult getLastTrainingResult() {
+        return lastTrainingResult;
+    }
+
+    /**
+     * Set the listener that is notified of every training iteration.
+     * The gradient norm and the timing of each iteration are only computed while a listener is set.
+     * @param listener the training listener, or null to remove it
+     */
+    public synchronized void setTrainingListener(TrainingListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Set whether the gradients are computed by finite differences instead of backpropagation.
+     * Finite differences run a full pass over the data for every weight and bias, so this
+     * is only meant to check the gradients of backpropagation.
+     * @param gradientCheck true to compute the gradients by finite differences
+     */
+    public void setGradientCheck(boolean gradientCheck) {
+        this.gradientCheck = gradientCheck;
+    }
+
+    /**
+     * Get whether the gradients are computed by finite differences instead of backpropagation.
+     * @return true if the gradients are computed by finite differences
+     */
+    public boolean isGradientCheck() {
+        return gradientCheck;
+    }
+
+    /**
+     * Get the number of nodes in each layer of the neural network.
+     * @return an array of integers representing the number of nodes in each layer
+     */
+    public int[] getLayerSizes() {
+        int[] layerSizes = new int[layers.length + 1];
+        for (int l = 0; l < layers.length; l++) {
+            layerSizes[l] = layers[l].getNodeSize();
+        }
+        layerSizes[layers.length] = layers[layers.length - 1].getNextNodeSize();
+        return layerSizes;
+    }
+
+    /**
+     * Get the order in which the weights of the layers are stored.
+     * @return the layout of the weights
+     */
+    public WeightLayout getLayout() {
+        return layers[0].getLayout();
+    }
+
+    /**
+     * Get the number of steps predicted by one forward pass of the neural network.
+     * @return the number of steps of the last layer, or 0 if steps are predicted one at a time
+     */
+    public int getHorizon() {
+        return horizon;
+    }
+
+    /**
+     * Create an inference-only copy of the trained neural network whose weights, biases and
+     * activations are rounded to int8. The neural network is not changed.
+     * @param scale whether the weights of a layer get one scale or one per next node
+     * @return the quantized network
+     */
+    public synchronized QuantizedNetwork quantize(QuantizationScale scale) {
+        return new QuantizedNetwork(layers, horizon, scale);
+    }
+
+    /**
+     * Compile the forward pass of the trained neural network into a class of its own, with its
+     * weights and biases as constants and the given activation function. The forecasts of the
+     * neural network with that activation function use the compiled forward pass until it is
+     * trained again. The neural network does not wait for the compilation.
+     * @param isBoolean whether the neural network is predicting a boolean
+     * @return the compiled network, which gives the same predictions as the neural network
+     */
+    public CompiledNetwork compile(boolean isBoolean) {
+        return snapshot.get().compile(isBoolean);
+    }
+
+    /**
+     * Get the number of weights and biases of the neural network.
+     * @return the number of parameters of the neural network
+     */
+    synchronized int getParameterCount() {
+        int count = 0;
+        for (Layer layer : layers) {
+            count += layer.getParameterCount();
+        }
+        return count;
+    }
+
+    /**
+     * Write the parameters of every layer, from the first layer to the last.
+     * @param buffer the buffer that receives the parameters
+     * Pre-condition: buffer has at least getParameterCount() doubles remaining
+     */
+    synchronized void writeParameters(DoubleBuffer buffer) {
+        for (Layer layer : layers) {
+            layer.writeParameters(buffer);
+        }
+    }
+
+    /**
+     * Write the parameters of every layer, from the first layer to the last, with the weights
+     * of every layer in the order of the given layout.
+     * @param buffer the buffer that receives the parameters
+     * @param order the order of the weights that are written
+     * Pre-condition: buffer has at least getParameterCount() doubles remaining
+     */
+    synchronized void writeParameters(DoubleBuffer buffer, WeightLayout order) {
+        for (Layer layer : layers) {
+            layer.writeParameters(buffer, order);
+        }
+    }
+
+    /**
+     * Read the parameters of every layer, from the first layer to the last.
+     * @param buffer the buffer that holds the parameters
+     * Pre-condition: buffer has at least getParameterCount() doubles remaining
+     */
+    synchronized void readParameters(DoubleBuffer buffer) {
+        for (Layer layer : layers) {
+            layer.readParameters(buffer);
+        }
+        publish();
+    }
+
+    /**
+     * Compare the gradients of backpropagation with the gradients of finite differences
+     * for the given data input. The weights and biases of the network are not changed.
      * @param dataInput an array of doubles representing the data input
-     * @param steps the number of steps to predict
-     * @param template the template of the neural network
      * @param isBoolean whether the neural network is predicting a boolean
-     * @return an array of doubles representing the predictions
+     * @return the largest absolute difference between the two gradients of any weight or bias
      */
-    public double[] predict(double[] dataInput, int steps, Template template, boolean isBoolean) {
-        double[] predictions = new double[steps];
+    public synchronized double checkGradients(double[] dataInput, boolean isBoolean) {
+        SeriesWindows dataInputProcessed = processDataInput(dataInput, 0);
+        SeriesWindows dataOutputProcessed = processDataOutput(dataInput, 0);
 
-        double[][] dataInputProcessed = processDataInput(dataInput, template);
-        double[][] dataOutputProcessed = processDataOutput(dataInput, template);
-        fit(dataInputProcessed, dataOutputProcessed, template.learnRate, template.iteration, isBoolean);
-        double[] currentInput = dataInputProcessed[dataInputProcessed.length - 1];
+        computeGradients(dataInputProcessed, dataOutputProcessed, isBoolean);
+        double[][][] weightGradients = new double[layers.length][][];
+        double[][] biasGradients = new double[layers.length][];
+        for (int l = 0; l < layers.length; l++) {
+            Layer layer = layers[l];
+            weightGradients[l] = new double[layer.getNodeSize()][layer.getNextNodeSize()];
+            biasGradients[l] = new double[layer.getNextNodeSize()];
+            for (int node = 0; node < layer.getNodeSize(); node++) {
+                for (int nextNode = 0; nextNode < layer.getNextNodeSize(); nextNode++) {
+                    weightGradients[l][node][nextNode] = layer.getWeightGradient(node, nextNode);
+                }
+            }
+            for (int node = 0; node < layer.getNextNodeSize(); node++) {
+                biasGradients[l][node] = layer.getBiasGradient(node);
+            }
+        }
 
-        for (int i = 0; i < steps; i++) {
-            double prediction;
-            if (isBoolean) {
-                prediction = getOutput(currentInput, isBoolean)[0] > 0.5 ? 1 : 0;
-            } else {
-                prediction = getOutput(currentInput, isBoolean)[0];
+        computeGradientsFiniteDifference(dataInputProcessed, dataOutputProcessed, isBoolean);
+        double maxDifference = 0;
+        for (int l = 0; l < layers.length; l++) {
+            Layer layer = layers[l];
+            for (int node = 0; node < layer.getNodeSize(); node++) {
+                for (int nextNode = 0; nextNode < layer.getNextNodeSize(); nextNode++) {
+                    maxDifference = Math.max(maxDifference,
+                            Math.abs(weightGradients[l][node][nextNode] - layer.getWeightGradient(node, nextNode)));
+                }
             }
-            predictions[i] = prediction;
-            for (int j = 0; j < currentInput.length - 1; j++) {
-                currentInput[j] = currentInput[j + 1];
+            for (int node = 0; node < layer.getNextNodeSize(); node++) {
+                maxDifference = Math.max(maxDifference,
+                        Math.abs(biasGradients[l][node] - layer.getBiasGradient(node)));
             }
-            currentInput[currentInput.length - 1] = prediction;
         }
-        return predictions;
+        return maxDifference;
+    }
+
+    /**
+     * Predict the next steps of the given data input.
+     * @param dataInput an array of doubles representing the data input
+     * @param steps the number of steps to predict
+     * @param template the template of the neural network
+     * @param isBoolean whether the neural network is predicting a boolean
+     * @return an array of doubles representing the predictions
+     */
+    public synchronized double[] predict(double[] dataInput, int steps, Template template, boolean isBoolean) {
+        train(dataInput, template, isBoolean);
+        return forecast(dataInput, steps, isBoolean);
     }
 
     /**
@@ -69,83 +344,547 @@ public class NeuralNetwork {
      * @param isBoolean whether the neural network is predicting a boolean
      * @return an array of doubles representing the predictions
      */
-    public double[] predictTimeStamp(double[] dataInput, int steps, Template template, boolean isBoolean) {
-        double[] predictions = new double[steps];
-        double[] actualPredictions = new double[steps];
+    public synchronized double[] predictTimeStamp(double[] dataInput, int steps, Template template, boolean isBoolean) {
+        trainTimeStamp(dataInput, template, isBoolean);
+        return forecastTimeStamp(dataInput, steps, isBoolean);
+    }
 
-        double[][] dataInputProcessed = processDataInputTimeStamp(dataInput, template);
-        double[][] dataOutputProcessed = processDataOutputTimeStamp(dataInput, template);
-        fit(dataInputProcessed, dataOutputProcessed, template.learnRate, template.iteration, isBoolean);
-        double[] currentInput = dataInputProcessed[dataInputProcessed.length - 1];
+    /**
+     * Train the neural network on the values of the given data input.
+     * @param dataInput an array of doubles representing the data input
+     * @param template the template of the neural network
+     * @param isBoolean whether the neural network is predicting a boolean
+     * @return why training stopped and how many iterations ran
+     * @throws IllegalArgumentException if the template trains with single precision on more than one thread
+     */
+    public synchronized TrainingResult train(double[] dataInput, Template template, boolean isBoolean) {
+        return train(dataInput, template, template.iteration, isBoolean);
+    }
 
-        for (int i = 0; i < steps; i++) {
-            double prediction;
-            if (isBoolean) {
-                prediction = getOutput(currentInput, isBoolean)[0] > 0.5 ? 1 : 0;
-            } else {
-                prediction = getOutput(currentInput, isBoolean)[0];
+    /**
+     * Train the neural network on the values of the given series for the given number of iterations,
+     * continuing from its current weights and biases. The series is only read, so many neural
+     * networks can train on the same series at the same time.
+     * @param series an array of doubles representing the data input, or its differences
+     * @param template the template of the neural network
+     * @param iterations the largest number of iterations
+     * @param isBoolean whether the neural network is predicting a boolean
+     * @return why training stopped and how many iterations ran
+     */
+    synchronized TrainingResult train(double[] series, Template template, int iterations, boolean isBoolean) {
+        return train(SeriesSource.of(series), template, iterations, isBoolean);
+    }
+
+    /**
+     * Train the neural network on the values of the given series for the given number of iterations,
+     * continuing from its current weights and biases. The windows are read from the series as they
+     * are used, so a memory-mapped series does not have to fit on the heap.
+     * @param series the data input, or its differences
+     * @param template the template of the neural network
+     * @param iterations the largest number of iterations
+     * @param isBoolean whether the neural network is predicting a boolean
+     * @return why training stopped and how many iterations ran
+     */
+    synchronized TrainingResult train(SeriesSource series, Template template, int iterations, boolean isBoolean) {
+        SeriesWindows dataInputProcessed = processDataInput(series, 0);
+        SeriesWindows dataOutputProcessed = processDataOutput(series, 0);
+        return fit(dataInputProcessed, dataOutputProcessed, template, iterations, isBoolean);
+    }
+
+    /**
+     * Train the neural network on the values of the given series, such as a MappedSeriesSource of a
+     * series that is larger than the heap. The series is read in place and is not copied.
+     * @param series the data input
+     * @param template the template of the neural network
+     * @param isBoolean whether the neural network is predicting a boolean
+     * @return why training stopped and how many iterations ran
+     * @throws IllegalArgumentException if the series has more than Integer.MAX_VALUE windows, or the
+     *                                  template trains with single precision on more than one thread
+     */
+    public synchronized TrainingResult train(SeriesSource series, Template template, boolean isBoolean) {
+        return train(series, template, template.iteration, isBoolean);
+    }
+
+    /**
+     * Train the neural network on the differences between consecutive values of the given data input.
+     * @param dataInput an array of doubles representing the data input
+     * @param template the template of the neural network
+     * @param isBoolean whether the neural network is predicting a boolean
+     * @return why training stopped and how many iterations ran
+     * @throws IllegalArgumentException if the template trains with single precision on more than one thread
+     */
+    public synchronized TrainingResult trainTimeStamp(double[] dataInput, Template template, boolean isBoolean) {
+        return train(SeriesWindows.difference(dataInput, 0), template, template.iteration, isBoolean);
+    }
+
+    /**
+     * Train the neural network on the differences between consecutive values of the given series.
+     * The differences are computed as the windows are read, so they are not stored either.
+     * @param series the data input
+     * @param template the template of the neural network
+     * @param isBoolean whether the neural network is predicting a boolean
+     * @return why training stopped and how many iterations ran
+     * @throws IllegalArgumentException if the series has more than Integer.MAX_VALUE windows, or the
+     *                                  template trains with single precision on more than one thread
+     */
+    public synchronized TrainingResult trainTimeStamp(SeriesSource series, Template template, boolean isBoolean) {
+        return train(series.difference(), template, template.iteration, isBoolean);
+    }
+
+    /**
+     * Fine-tune the neural network after new values are appended to the data input it was trained on.
+     * Only the windows that contain a new value and template.fineTuneContext windows before them
+     * are used, for template.fineTuneIteration iterations, so the cost does not depend on the
+     * length of the previous data input.
+     * @param dataInput an array of doubles representing the extended data input
+     * @param previousLength the length of the data input the neural network was trained on
+     * @param template the template of the neural network
+     * @param isBoolean whether the neural network is predicting a boolean
+     * @return why training stopped and how many iterations ran
+     * @throws IllegalArgumentException if the template trains with single precision on more than one thread
+     * Pre-condition: the neural network is trained with train on the first previousLength values
+     *                of dataInput, previousLength < dataInput.length
+     */
+    public synchronized TrainingResult update(double[] dataInput, int previousLength, Template template, boolean isBoolean) {
+        int firstLayerSize = layers[0].getNodeSize();
+        int start = Math.max(0, previousLength - firstLayerSize - horizon - template.fineTuneContext);
+
+        SeriesWindows dataInputProcessed = processDataInput(dataInput, start);
+        SeriesWindows dataOutputProcessed = processDataOutput(dataInput, start);
+        return fit(dataInputProcessed, dataOutputProcessed, template, template.fineTuneIteration, isBoolean);
+    }
+
+    /**
+     * Fine-tune the neural network after new values are appended to the data input it was trained on.
+     * Only the windows that contain a new difference and template.fineTuneContext windows before them
+     * are used, for template.fineTuneIteration iterations, so the cost does not depend on the
+     * length of the previous data input.
+     * @param dataInput an array of doubles representing the extended data input
+     * @param previousLength the length of the data input the neural network was trained on
+     * @param template the template of the neural network
+     * @param isBoolean whether the neural network is predicting a boolean
+     * @return why training stopped and how many iterations ran
+     * @throws IllegalArgumentException if the template trains with single precision on more than one thread
+     * Pre-condition: the neural network is trained with trainTimeStamp on the first previousLength
+     *                values of dataInput, previousLength < dataInput.length
+     */
+    public synchronized TrainingResult updateTimeStamp(double[] dataInput, int previousLength, Template template,
+                                             boolean isBoolean) {
+        int firstLayerSize = layers[0].getNodeSize();
+        int start = Math.max(0, previousLength - firstLayerSize - horizon - template.fineTuneContext - 1);
+        double[] recentDifferences = SeriesWindows.difference(dataInput, start);
+
+        SeriesWindows dataInputProcessed = processDataInput(recentDifferences, 0);
+        SeriesWindows dataOutputProcessed = processDataOutput(recentDifferences, 0);
+        return fit(dataInputProcessed, dataOutputProcessed, template, template.fineTuneIteration, isBoolean);
+    }
+
+    /**
+     * Predict the next steps of the given data input with the trained neural network.
+     * The last published snapshot is used, so the forecast does not wait for a training.
+     * @param dataInput an array of doubles representing the data input
+     * @param steps the number of steps to predict
+     * @param isBoolean whether the neural network is predicting a boolean
+     * @return an array of doubles representing the predictions
+     * Pre-condition: the neural network is trained with train
+     */
+    public double[] forecast(double[] dataInput, int steps, boolean isBoolean) {
+        PredictEvent event = new PredictEvent();
+        event.begin();
+        double[] predictions = snapshot.get().forecast(dataInput, steps, isBoolean);
+        commitPredictEvent(event, steps, false);
+        return predictions;
+    }
+
+    /**
+     * Predict the next steps of the given data input with the trained neural network.
+     * The last published snapshot is used, so the forecast does not wait for a training.
+     * @param dataInput an array of doubles representing the data input
+     * @param steps the number of steps to predict
+     * @param isBoolean whether the neural network is predicting a boolean
+     * @return an array of doubles representing the predictions
+     * Pre-condition: the neural network is trained with trainTimeStamp
+     */
+    public double[] forecastTimeStamp(double[] dataInput, int steps, boolean isBoolean) {
+        PredictEvent event = new PredictEvent();
+        event.begin();
+        double[] predictions = snapshot.get().forecastTimeStamp(dataInput, steps, isBoolean);
+        commitPredictEvent(event, steps, true);
+        return predictions;
+    }
+
+    /**
+     * Predict the next steps of the given series with the trained neural network.
+     * Only the last window of the series is read.
+     * @param series the data input
+     * @param steps the number of steps to predict
+     * @param isBoolean whether the neural network is predicting a boolean
+     * @return an array of doubles representing the predictions
+     * Pre-condition: the neural network is trained with train
+     */
+    public double[] forecast(SeriesSource series, int steps, boolean isBoolean) {
+        return forecast(series.tail(layers[0].getNodeSize()), steps, isBoolean);
+    }
+
+    /**
+     * Predict the next steps of the given series with the trained neural network.
+     * Only the values of the last window of differences of the series are read.
+     * @param series the data input
+     * @param steps the number of steps to predict
+     * @param isBoolean whether the neural network is predicting a boolean
+     * @return an array of doubles representing the predictions
+     * Pre-condition: the neural network is trained with trainTimeStamp
+     */
+    public double[] forecastTimeStamp(SeriesSource series, int steps, boolean isBoolean) {
+        return forecastTimeStamp(series.tail(layers[0].getNodeSize() + 1), steps, isBoolean);
+    }
+
+    /**
+     * Predict the next steps that follow the given input window with the trained neural network.
+     * The last published snapshot is used, so the forecast does not wait for a training.
+     * @param window the last input window, which is not changed
+     * @param steps the number of steps to predict
+     * @param isBoolean whether the neural network is predicting a boolean
+     * @return an array of doubles representing the predictions
+     * Pre-condition: window.length == the number of nodes of the first layer
+     */
+    public double[] forecastWindow(double[] window, int steps, boolean isBoolean) {
+        return snapshot.get().forecastWindow(window, steps, isBoolean);
+    }
+
+    /**
+     * Run the neural network on a block of input rows with batched matrix-matrix passes.
+     * Row n of the inputs is inputs[offset + n * stride ...], so the overlapping windows of
+     * a series can be passed directly with a stride of 1.
+     * @param inputs the array of the inputs
+     * @param offset the index of the first input of the first row
+     * @param stride the distance between the first inputs of consecutive rows
+     * @param rows the number of rows
+     * @param isBoolean whether the neural network is predicting a boolean
+     * @return the outputs, where output i of row n is at n * the number of nodes of the last layer + i
+     * Pre-condition: rows >= 0, every row of inputs is within its bounds
+     */
+    public synchronized double[] forwardBatch(double[] inputs, int offset, int stride, int rows, boolean isBoolean) {
+        int width = layers[0].getNodeSize();
+        int outputSize = layers[layers.length - 1].getNextNodeSize();
+        double[] outputs = new double[rows * outputSize];
+        double[][] tileInputs = batchInputs();
+
+        for (int first = 0; first < rows; first += BATCH_ROWS) {
+            int tileRows = Math.min(BATCH_ROWS, rows - first);
+            for (int i = 0; i < width; i++) {
+                if (stride == 1) {
+                    System.arraycopy(inputs, offset + first + i, tileInputs[i], 0, tileRows);
+                } else {
+                    for (int row = 0; row < tileRows; row++) {
+                        tileInputs[i][row] = inputs[offset + (first + row) * stride + i];
+                    }
+                }
             }
-            predictions[i] = prediction;
-            for (int j = 0; j < currentInput.length - 1; j++) {
-                currentInput[j] = currentInput[j + 1];
+            double[][] tile = forwardTile(tileRows, isBoolean);
+            for (int node = 0; node < outputSize; node++) {
+                for (int row = 0; row < tileRows; row++) {
+                    outputs[(first + row) * outputSize + node] = tile[node][row];
+                }
             }
-            currentInput[currentInput.length - 1] = prediction;
+        }
+        return outputs;
+    }
 
-            if (i == 0) {
-                actualPredictions[i] = dataInput[dataInput.length - 1] + predictions[i];
-            } else {
-                actualPredictions[i] = actualPredictions[i - 1] + predictions[i];
+    /**
+     * Get the cost of the trained neural network on every window of the given data input,
+     * which is the cost train minimizes.
+     * @param dataInput an array of doubles representing the data input
+     * @param isBoolean whether the neural network is predicting a boolean
+     * @return the mean cost of the windows
+     * Pre-condition: dataInput is long enough to train the neural network with train
+     */
+    public synchronized double score(double[] dataInput, boolean isBoolean) {
+        return finalCost(processDataInput(dataInput, 0), processDataOutput(dataInput, 0), isBoolean);
+    }
+
+    /**
+     * Get the cost of the trained neural network on every window of the differences of the
+     * given data input, which is the cost trainTimeStamp minimizes.
+     * @param dataInput an array of doubles representing the data input
+     * @param isBoolean whether the neural network is predicting a boolean
+     * @return the mean cost of the windows
+     * Pre-condition: dataInput is long enough to train the neural network with trainTimeStamp
+     */
+    public synchronized double scoreTimeStamp(double[] dataInput, boolean isBoolean) {
+        double[] differences = SeriesWindows.difference(dataInput, 0);
+        return finalCost(processDataInput(differences, 0), processDataOutput(differences, 0), isBoolean);
+    }
+
+    /**
+     * Predict the next steps of every data input with the trained neural network, running
+     * one batched forward pass for all of the data inputs at each step.
+     * @param dataInputs the data inputs
+     * @param steps the number of steps to predict
+     * @param isBoolean whether the neural network is predicting a boolean
+     * @return the predictions of dataInputs[i] at index i
+     * Pre-condition: the neural network is trained with train, every data input has at least
+     *                as many values as the first layer has nodes
+     */
+    public synchronized double[][] forecastAll(double[][] dataInputs, int steps, boolean isBoolean) {
+        int firstLayerSize = layers[0].getNodeSize();
+        int count = dataInputs.length;
+        double[][] windows = new double[firstLayerSize][count];
+        for (int n = 0; n < count; n++) {
+            double[] dataInput = dataInputs[n];
+            for (int i = 0; i < firstLayerSize; i++) {
+                windows[i][n] = dataInput[dataInput.length - firstLayerSize + i];
             }
         }
-
-        return actualPredictions;
+        return rolloutAll(windows, count, steps, isBoolean);
     }
 
     /**
-     * Get the output of the neural network.
-     * @param inputs the inputs of the neural network
-     * @return the output of the neural network
+     * Predict the next steps of every data input with the trained neural network, running
+     * one batched forward pass for all of the data inputs at each step.
+     * @param dataInputs the data inputs
+     * @param steps the number of steps to predict
+     * @param isBoolean whether the neural network is predicting a boolean
+     * @return the predictions of dataInputs[i] at index i
+     * Pre-condition: the neural network is trained with trainTimeStamp, every data input has
+     *                more values than the first layer has nodes
      */
-    private double[] getOutput(double[] inputs, boolean isBoolean) {
-        double[] outputs = new double[inputs.length];
-        System.arraycopy(inputs, 0, outputs, 0, inputs.length);
-        for (Layer layer : layers) {
-            outputs = layer.getOutput(outputs, isBoolean);
+    public synchronized double[][] forecastAllTimeStamp(double[][] dataInputs, int steps, boolean isBoolean) {
+        int firstLayerSize = layers[0].getNodeSize();
+        int count = dataInputs.length;
+        double[][] windows = new double[firstLayerSize][count];
+        for (int n = 0; n < count; n++) {
+            double[] window = ForwardPass.lastDifferenceWindow(dataInputs[n], firstLayerSize);
+            for (int i = 0; i < firstLayerSize; i++) {
+                windows[i][n] = window[i];
+            }
         }
-        return outputs;
+
+        double[][] predictions = rolloutAll(windows, dataInputs.length, steps, isBoolean);
+        for (int n = 0; n < dataInputs.length; n++) {
+            ForwardPass.integrate(dataInputs[n], predictions[n]);
+        }
+        return predictions;
     }
 
     /**
-     * Get the cost of the neural network.
-     * @param input the inputs of the neural network
+     * Make the neural network learn from a single data point with one step of the optimizer
+     * of its layers, which is the optimizer of the template of the last fit.
+     * @param input the input of the neural network
      * @param expectedOut the expected output of the neural network
-     * @return the cost of the neural network
+     * @param learnRate the learning rate of the neural network
+     * @param isBoolean whether the neural network is predicting a boolean
+     * @return the cost of the data point before the neural network learned
+     * Pre-condition: input.length == the number of nodes of the first layer,
+     *                expectedOut.length == the number of nodes of the last layer
      */
-    private double costOneData(double[] input, double[] expectedOut, boolean isBoolean) {
-        double cost = 0;
+    public synchronized double learnOne(double[] input, double[] expectedOut, double learnRate, boolean isBoolean) {
+        return learnOne(input, expectedOut, learnRate, isBoolean, true);
+    }
+
+    /**
+     * Make the neural network learn from a single data point, and publish a snapshot only if asked,
+     * so that callers that learn from many data points in a row can publish less often.
+     * @param input the input of the neural network
+     * @param expectedOut the expected output of the neural network
+     * @param learnRate the learning rate of the neural network
+     * @param isBoolean whether the neural network is predicting a boolean
+     * @param publish whether a snapshot is published after the step
+     * @return the cost of the data point before the neural network learned
+     * Pre-condition: input.length == the number of nodes of the first layer,
+     *                expectedOut.length == the number of nodes of the last layer
+     */
+    synchronized double learnOne(double[] input, double[] expectedOut, double learnRate, boolean isBoolean,
+                                 boolean publish) {
         Layer outputLayer = layers[layers.length - 1];
+        double[][] activations = workspace.activations;
+        double[][] gradients = workspace.gradients;
 
-        for (int node = 0; node < outputLayer.getNextNodeSize(); node++) {
-            cost += outputLayer.nodeCost(getOutput(input, isBoolean)[node], expectedOut[node]);
+        workspace.clearGradients();
+        double[] outputs = forward(workspace, input, isBoolean);
+        double[] outputGradients = gradients[layers.length];
+        for (int node = 0; node < outputs.length; node++) {
+            workspace.cost += outputLayer.nodeCost(outputs[node], expectedOut[node]);
+            outputGradients[node] = outputLayer.nodeCostDerivative(outputs[node], expectedOut[node]);
+        }
+        for (int l = layers.length - 1; l >= 0; l--) {
+            layers[l].backward(activations[l], activations[l + 1], gradients[l + 1], gradients[l],
+                    workspace.weightGradients[l], workspace.biasGradients[l], isBoolean);
         }
 
-        return cost;
+        for (int l = 0; l < layers.length; l++) {
+            layers[l].clearGradients();
+            layers[l].addGradients(workspace.weightGradients[l], workspace.biasGradients[l]);
+            layers[l].updateGradients(learnRate);
+        }
+        if (publish) {
+            publish();
+        }
+        return workspace.cost;
+    }
+
+    /**
+     * Commit a predict event if Flight Recorder records it.
+     * @param event the started event
+     * @param steps the number of steps predicted
+     * @param timeStamp whether the differences between the values were predicted
+     */
+    private void commitPredictEvent(PredictEvent event, int steps, boolean timeStamp) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.layerSizes = Arrays.toString(getLayerSizes());
+            event.steps = steps;
+            event.timeStamp = timeStamp;
+            event.commit();
+        }
     }
 
     /**
-     * Get the final cost of the neural network.
+     * Predict the next steps of many input windows at once, as rollout does for one window.
+     * @param windows the input windows feature by feature, where input i of window n is
+     *                windows[i][n], which are changed by this method
+     * @param count the number of windows
+     * @param steps the number of steps to predict
+     * @param isBoolean whether the neural network is predicting a boolean
+     * @return the predictions of window i at index i
+     */
+    private double[][] rolloutAll(double[][] windows, int count, int steps, boolean isBoolean) {
+        int width = layers[0].getNodeSize();
+        int stepsPerPass = horizon == 0 ? 1 : horizon;
+        double[][] predictions = new double[count][steps];
+
+        for (int i = 0; i < steps; i += stepsPerPass) {
+            int stepCount = Math.min(stepsPerPass, steps - i);
+            for (int first = 0; first < count; first += BATCH_ROWS) {
+                int rows = Math.min(BATCH_ROWS, count - first);
+                for (int j = 0; j < width; j++) {
+                    System.arraycopy(windows[j], first, batchInputs()[j], 0, rows);
+                }
+                double[][] outputs = forwardTile(rows, isBoolean);
+                for (int k = 0; k < stepCount; k++) {
+                    for (int row = 0; row < rows; row++) {
+                        double output = outputs[k][row];
+                        predictions[first + row][i + k] = isBoolean ? (output > 0.5 ? 1 : 0) : output;
+                    }
+                }
+            }
+            if (i + stepCount == steps) {
+                break;
+            }
+
+            int keep = Math.max(0, width - stepCount);
+            double[][] shifted = new double[width][];
+            System.arraycopy(windows, width - keep, shifted, 0, keep);
+            System.arraycopy(windows, 0, shifted, keep, width - keep);
+            for (int j = keep; j < width; j++) {
+                for (int n = 0; n < count; n++) {
+                    shifted[j][n] = predictions[n][i + stepCount - width + j];
+                }
+            }
+            windows = shifted;
+        }
+        return predictions;
+    }
+
+    /**
+     * Run a forward pass through the neural network in the given workspace.
+     * @param workspace the workspace that holds the buffers of the pass
      * @param inputs the inputs of the neural network
+     * @return the output of the neural network, which is a buffer of the workspace
+     *         that is overwritten by the next forward pass
+     */
+    private double[] forward(Workspace workspace, double[] inputs, boolean isBoolean) {
+        System.arraycopy(inputs, 0, workspace.activations[0], 0, workspace.activations[0].length);
+        return propagate(workspace, isBoolean);
+    }
+
+    /**
+     * Run a forward pass through the neural network in the given workspace, reading the
+     * input directly from a window of a series.
+     * @param workspace the workspace that holds the buffers of the pass
+     * @param inputs the input windows of the neural network
+     * @param window the index of the input window
+     * @return the output of the neural network, which is a buffer of the workspace
+     *         that is overwritten by the next forward pass
+     */
+    private double[] forward(Workspace workspace, SeriesWindows inputs, int window, boolean isBoolean) {
+        inputs.copyWindow(window, workspace.activations[0]);
+        return propagate(workspace, isBoolean);
+    }
+
+    /**
+     * Run the layers of the neural network on the input held in the given workspace.
+     * @param workspace the workspace that holds the input and the buffers of the pass
+     * @return the output of the neural network, which is a buffer of the workspace
+     */
+    private double[] propagate(Workspace workspace, boolean isBoolean) {
+        double[][] activations = workspace.activations;
+        for (int l = 0; l < layers.length; l++) {
+            layers[l].getOutput(activations[l], activations[l + 1], isBoolean);
+        }
+        return activations[layers.length];
+    }
+
+    /**
+     * Get the final cost of the neural network, with batched forward passes over the input windows.
+     * @param inputs the inputs of the neural network, which are consecutive windows of their series
      * @param expectedOutputs the expected outputs of the neural network
      * @return the final cost of the neural network
      */
-    private double finalCost(double[][] inputs, double[][] expectedOutputs, boolean isBoolean) {
+    private double finalCost(SeriesWindows inputs, SeriesWindows expectedOutputs, boolean isBoolean) {
+        Layer outputLayer = layers[layers.length - 1];
+        int outputSize = outputLayer.getNextNodeSize();
+        double[][] tileInputs = batchInputs();
         double cost = 0;
 
-        for (int i = 0; i < inputs.length; i++) {
-            cost += costOneData(inputs[i], expectedOutputs[i], isBoolean);
+        for (int first = 0; first < inputs.size(); first += BATCH_ROWS) {
+            int rows = Math.min(BATCH_ROWS, inputs.size() - first);
+            for (int i = 0; i < tileInputs.length; i++) {
+                inputs.copyColumn(first, i, tileInputs[i], rows);
+            }
+            double[][] outputs = forwardTile(rows, isBoolean);
+            for (int row = 0; row < rows; row++) {
+                for (int node = 0; node < outputSize; node++) {
+                    cost += outputLayer.nodeCost(outputs[node][row], expectedOutputs.get(first + row, node));
+                }
+            }
         }
 
-        return cost / inputs.length;
+        return cost / inputs.size();
+    }
+
+    /**
+     * Get the arrays of the inputs of a tile of a batched forward pass, creating them if needed.
+     * @return the arrays, where input i of row n of the tile is at [i][n]
+     */
+    private double[][] batchInputs() {
+        if (batchInputs == null) {
+            batchInputs = new double[layers[0].getNodeSize()][BATCH_ROWS];
+        }
+        return batchInputs;
+    }
+
+    /**
+     * Run a batched forward pass through the neural network for the tile of input rows
+     * held in the arrays returned by batchInputs.
+     * @param rows the number of rows
+     * @return the outputs of the last layer, where output i of row n is at [i][n],
+     *         in arrays that are overwritten by the next batched pass
+     * Pre-condition: 0 < rows <= BATCH_ROWS
+     */
+    private double[][] forwardTile(int rows, boolean isBoolean) {
+        if (batchActivations == null) {
+            batchActivations = new double[layers.length][][];
+            for (int l = 0; l < layers.length; l++) {
+                batchActivations[l] = new double[layers[l].getNextNodeSize()][BATCH_ROWS];
+            }
+        }
+
+        layers[0].getOutputs(batchInputs(), rows, batchActivations[0], isBoolean);
+        for (int l = 1; l < layers.length; l++) {
+            layers[l].getOutputs(batchActivations[l - 1], rows, batchActivations[l], isBoolean);
+        }
+        return batchActivations[layers.length - 1];
     }
 
     /**
@@ -153,117 +892,427 @@ public class NeuralNetwork {
      * @param inputs the inputs of the neural network
      * @param expectedOut the expected outputs of the neural network
      * @param learnRate the learning rate of the neural network
+     * @return the cost of the neural network before it learned
+     */
+    private double learn(SeriesWindows inputs, SeriesWindows expectedOut, double learnRate, boolean isBoolean) {
+        if (floatTrainer != null) {
+            return floatTrainer.learn(learnRate, isBoolean);
+        }
+
+        double cost;
+        if (gradientCheck) {
+            cost = computeGradientsFiniteDifference(inputs, expectedOut, isBoolean);
+        } else {
+            cost = computeGradients(inputs, expectedOut, isBoolean);
+        }
+
+        for (Layer layer : layers) {
+            layer.updateGradients(learnRate);
+        }
+        return cost;
+    }
+
+    /**
+     * Compute the gradients of every layer by backpropagation, with one forward and
+     * one backward pass for each data point. The data points are split between the
+     * shard tasks if fit trains with more than one thread.
+     * @param inputs the inputs of the neural network
+     * @param expectedOut the expected outputs of the neural network
+     * @return the cost of the neural network
+     */
+    private double computeGradients(SeriesWindows inputs, SeriesWindows expectedOut, boolean isBoolean) {
+        if (trainingPool == null) {
+            accumulateGradients(workspace, inputs, expectedOut, 0, inputs.size(), isBoolean);
+            for (int l = 0; l < layers.length; l++) {
+                layers[l].clearGradients();
+                layers[l].addGradients(workspace.weightGradients[l], workspace.biasGradients[l]);
+            }
+            return workspace.cost / inputs.size();
+        }
+
+        runShardTasks();
+        double cost = 0;
+        for (Workspace shard : shardWorkspaces) {
+            cost += shard.cost;
+        }
+        for (int l = 0; l < layers.length; l++) {
+            layers[l].clearGradients();
+            for (Workspace shard : shardWorkspaces) {
+                layers[l].addGradients(shard.weightGradients[l], shard.biasGradients[l]);
+            }
+        }
+        return cost / inputs.size();
+    }
+
+    /**
+     * Backpropagate the data points from start to end in the given workspace, replacing
+     * the gradients and cost accumulated in the workspace.
+     * @param workspace the workspace that holds the buffers and receives the gradients
+     * @param inputs the inputs of the neural network
+     * @param expectedOut the expected outputs of the neural network
+     * @param start the index of the first data point
+     * @param end the index after the last data point
+     */
+    private void accumulateGradients(Workspace workspace, SeriesWindows inputs, SeriesWindows expectedOut,
+                                     int start, int end, boolean isBoolean) {
+        Layer outputLayer = layers[layers.length - 1];
+        double[][] activations = workspace.activations;
+        double[][] gradients = workspace.gradients;
+
+        workspace.clearGradients();
+        for (int i = start; i < end; i++) {
+            double[] outputs = forward(workspace, inputs, i, isBoolean);
+            double[] outputGradients = gradients[layers.length];
+            for (int node = 0; node < outputs.length; node++) {
+                workspace.cost += outputLayer.nodeCost(outputs[node], expectedOut.get(i, node));
+                outputGradients[node] = outputLayer.nodeCostDerivative(outputs[node], expectedOut.get(i, node)) / inputs.size();
+            }
+            for (int l = layers.length - 1; l >= 0; l--) {
+                layers[l].backward(activations[l], activations[l + 1], gradients[l + 1], gradients[l],
+                        workspace.weightGradients[l], workspace.biasGradients[l], isBoolean);
+            }
+        }
+    }
+
+    /**
+     * Run every shard task on the training pool and wait for all of them.
+     */
+    private void runShardTasks() {
+        try {
+            for (Future<Void> future : trainingPool.invokeAll(shardTasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Training was interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Training shard failed", e.getCause());
+        }
+    }
+
+    /**
+     * Compute the gradients of every layer by finite differences, with a full pass
+     * over the data for every weight and bias.
+     * @param inputs the inputs of the neural network
+     * @param expectedOut the expected outputs of the neural network
+     * @return the cost of the neural network
      */
-    private void learn(double[][] inputs, double[][] expectedOut, double learnRate, boolean isBoolean) {
+    private double computeGradientsFiniteDifference(SeriesWindows inputs, SeriesWindows expectedOut, boolean isBoolean) {
         double originalCost = finalCost(inputs, expectedOut, isBoolean);
         for (Layer layer : layers) {
-            double h_VALUE = 0.0001;
             for (int node = 0; node < layer.getNodeSize(); node++) {
                 for (int nextNode = 0; nextNode < layer.getNextNodeSize(); nextNode++) {
-                    double[][] weights = layer.getWeights();
-                    weights[node][nextNode] += h_VALUE;
-                    layer.setWeights(weights);
+                    double weight = layer.getWeight(node, nextNode);
+                    layer.setWeight(node, nextNode, weight + H_VALUE);
                     double newCost = finalCost(inputs, expectedOut, isBoolean);
-                    weights[node][nextNode] -= h_VALUE;
-                    double gradient = (newCost - originalCost) / h_VALUE;
+                    layer.setWeight(node, nextNode, weight);
+                    double gradient = (newCost - originalCost) / H_VALUE;
                     layer.setWeightGradients(node, nextNode, gradient);
                 }
             }
 
             for (int node = 0; node < layer.getNextNodeSize(); node++) {
                 double[] biases = layer.getBiases();
-                biases[node] += h_VALUE;
+                biases[node] += H_VALUE;
                 layer.setBiases(biases);
                 double newCost = finalCost(inputs, expectedOut, isBoolean);
-                biases[node] -= h_VALUE;
-                double gradient = (newCost - originalCost) / h_VALUE;
+                biases[node] -= H_VALUE;
+                double gradient = (newCost - originalCost) / H_VALUE;
                 layer.setBiasGradients(node, gradient);
             }
         }
+        return originalCost;
+    }
 
+    /**
+     * Fit the neural network until it runs the given number of iterations or meets one
+     * of the stopping criteria of the template.
+     * @param inputs the inputs of the neural network
+     * @param expectedOut the expected outputs of the neural network
+     * @param template the template with the learning rate, threads and stopping criteria
+     * @param iterations the largest number of iterations of the neural network
+     * @return why training stopped and how many iterations ran
+     * @throws IllegalArgumentException if the template trains with single precision on more than one thread
+     */
+    private TrainingResult fit(SeriesWindows inputs, SeriesWindows expectedOut, Template template, int iterations,
+                               boolean isBoolean) {
+        if (template.precision == Precision.SINGLE && template.threads > 1 && !gradientCheck) {
+            throw new IllegalArgumentException("Single-precision training runs on one thread, not "
+                    + template.threads);
+        }
+        long deadline = System.nanoTime() + template.timeBudgetMillis * 1_000_000L;
+        FitEvent event = new FitEvent();
+        event.begin();
+        long fitStart = System.nanoTime();
         for (Layer layer : layers) {
-            layer.updateGradients(learnRate);
+            layer.setOptimizer(template.optimizer);
+        }
+        if (template.precision == Precision.SINGLE && !gradientCheck) {
+            floatTrainer = new FloatTrainer(layers, inputs, expectedOut);
+            try {
+                lastTrainingResult = runIterations(inputs, expectedOut, template, iterations, deadline, isBoolean);
+            } finally {
+                floatTrainer.copyTo(layers);
+                floatTrainer.copyOptimizerStateTo(layers);
+                floatTrainer = null;
+                publish();
+            }
+            endFit(event, fitStart, inputs, template);
+            return lastTrainingResult;
+        }
+
+        int shards = Math.min(template.threads, inputs.size());
+        if (shards <= 1 || gradientCheck) {
+            try {
+                lastTrainingResult = runIterations(inputs, expectedOut, template, iterations, deadline, isBoolean);
+            } finally {
+                publish();
+            }
+            endFit(event, fitStart, inputs, template);
+            return lastTrainingResult;
+        }
+
+        if (shardWorkspaces == null || shardWorkspaces.length != shards) {
+            shardWorkspaces = new Workspace[shards];
+            for (int s = 0; s < shards; s++) {
+                shardWorkspaces[s] = new Workspace(layers);
+            }
+        }
+        shardTasks = new ArrayList<>();
+        for (int s = 0; s < shards; s++) {
+            Workspace shard = shardWorkspaces[s];
+            int start = (int) ((long) s * inputs.size() / shards);
+            int end = (int) ((long) (s + 1) * inputs.size() / shards);
+            shardTasks.add(() -> {
+                accumulateGradients(shard, inputs, expectedOut, start, end, isBoolean);
+                return null;
+            });
+        }
+        trainingPool = Executors.newFixedThreadPool(shards);
+
+        try {
+            lastTrainingResult = runIterations(inputs, expectedOut, template, iterations, deadline, isBoolean);
+            publish();
+            endFit(event, fitStart, inputs, template);
+            return lastTrainingResult;
+        } finally {
+            trainingPool.shutdown();
+            trainingPool = null;
+            shardTasks = null;
         }
     }
 
     /**
-     * Fit the neural network.
+     * Report the end of a fit to the listener and to Flight Recorder.
+     * @param event the started fit event
+     * @param start the value of System.nanoTime when the fit started
      * @param inputs the inputs of the neural network
-     * @param expectedOut the expected outputs of the neural network
-     * @param learnRate the learning rate of the neural network
-     * @param iterations the number of iterations of the neural network
+     * @param template the template with the learning rate and threads
      */
-    private void fit(double[][] inputs, double[][] expectedOut, double learnRate, int iterations, boolean isBoolean) {
-        for (int i = 0; i < iterations; i++) {
-            learn(inputs, expectedOut, learnRate, isBoolean);
+    private void endFit(FitEvent event, long start, SeriesWindows inputs, Template template) {
+        event.end();
+        if (listener != null) {
+            listener.onFitEnd(lastTrainingResult, System.nanoTime() - start);
+        }
+        if (event.shouldCommit()) {
+            event.layerSizes = Arrays.toString(getLayerSizes());
+            event.windows = inputs.size();
+            event.threads = template.threads;
+            event.learnRate = template.learnRate;
+            event.iterations = lastTrainingResult.getIterations();
+            event.stopReason = lastTrainingResult.getStopReason().name();
+            event.cost = lastTrainingResult.getCost();
+            event.commit();
         }
     }
 
     /**
-     * Process the data input so that it is usable by the model.
-     * @param dataInput the data input
-     * @param template the template of the neural network
-     * @return the processed data input
+     * Get the number of forward passes one call to learn runs.
+     * @param inputs the inputs of the neural network
+     * @return the number of forward passes of one iteration
      */
-    private double[][] processDataInput(double[] dataInput, Template template) {
-        int firstLayerSize = layers[0].getNodeSize();
-        double[][] dataInputProcessed = new double[dataInput.length - firstLayerSize + 1][firstLayerSize];
-        for (int i = 0; i < dataInput.length - firstLayerSize + 1; i++) {
-            System.arraycopy(dataInput, i, dataInputProcessed[i], 0, firstLayerSize);
+    private long forwardPassesPerIteration(SeriesWindows inputs) {
+        if (gradientCheck) {
+            return (long) inputs.size() * (getParameterCount() + 1);
         }
+        return inputs.size();
+    }
 
-        return dataInputProcessed;
+    /**
+     * Get the Euclidean norm of the gradients of every weight and bias.
+     * @return the norm of the gradients
+     */
+    private double gradientNorm() {
+        if (floatTrainer != null) {
+            return floatTrainer.gradientNorm();
+        }
+
+        double sum = 0;
+        for (Layer layer : layers) {
+            sum += layer.getGradientSquaredNorm();
+        }
+        return Math.sqrt(sum);
     }
 
     /**
-     * Process the data output so that it is usable by the model.
-     * @param dataInput the data input
-     * @param template the template of the neural network
-     * @return the processed data output
+     * Run learn until the given number of iterations or one of the stopping criteria of the template is met.
+     * Training has converged when the cost has not improved by more than template.minImprovement for
+     * template.patience iterations. A patience or time budget of zero disables that criterion; the
+     * time budget ends at the deadline, which fit sets when it is called so that its setup counts too.
+     * The learning rate of each iteration is given by template.schedule, and a snapshot is
+     * published every template.publishInterval iterations.
+     * Learn events are only created if Flight Recorder records them when the fit starts, so that
+     * the iterations do not allocate otherwise.
+     * @param inputs the inputs of the neural network
+     * @param expectedOut the expected outputs of the neural network
+     * @param template the template with the learning rate and stopping criteria
+     * @param iterations the largest number of iterations of the neural network
+     * @param deadline the end of the time budget of the template, in the time of System.nanoTime()
+     * @return why training stopped and how many iterations ran
      */
-    private double[][] processDataOutput(double[] dataInput, Template template) {
-        int lastLayerSize = layers[layers.length - 1].getNextNodeSize();
-        double[][] dataOutputProcessed = new double[dataInput.length - lastLayerSize + 1][lastLayerSize];
-        for (int i = 0; i < dataInput.length - lastLayerSize + 1; i++) {
-            try {
-                System.arraycopy(dataInput, i + 1, dataOutputProcessed[i], 0, lastLayerSize);
-            } catch (Exception e) {
-                System.arraycopy(dataInput, 0, dataOutputProcessed[i], 0, lastLayerSize);
+    private TrainingResult runIterations(SeriesWindows inputs, SeriesWindows expectedOut, Template template,
+                                         int iterations, long deadline, boolean isBoolean) {
+        double bestCost = Double.POSITIVE_INFINITY;
+        double cost = Double.NaN;
+        int iterationsWithoutImprovement = 0;
+
+        long forwardPasses = forwardPassesPerIteration(inputs);
+        boolean recordLearnEvents = new LearnEvent().isEnabled();
+
+        for (int i = 0; i < iterations; i++) {
+            if (template.timeBudgetMillis > 0 && System.nanoTime() - deadline >= 0) {
+                return new TrainingResult(StopReason.DEADLINE, i, cost);
+            }
+
+            LearnEvent event = recordLearnEvents ? new LearnEvent() : null;
+            if (event != null) {
+                event.begin();
+            }
+            long iterationStart = listener == null ? 0 : System.nanoTime();
+            double learnRate = template.schedule.getLearnRate(template.learnRate, i, iterations);
+            cost = learn(inputs, expectedOut, learnRate, isBoolean);
+            if (template.publishInterval > 0 && (i + 1) % template.publishInterval == 0) {
+                publish();
+            }
+            if (listener != null) {
+                listener.onIteration(i, cost, gradientNorm(), System.nanoTime() - iterationStart, forwardPasses);
+            }
+            if (event != null && event.shouldCommit()) {
+                event.iteration = i;
+                event.cost = cost;
+                event.forwardPasses = forwardPasses;
+                event.commit();
+            }
+
+            if (cost <= template.targetCost) {
+                return new TrainingResult(StopReason.TARGET_COST, i + 1, cost);
+            }
+            if (cost < bestCost - template.minImprovement) {
+                bestCost = cost;
+                iterationsWithoutImprovement = 0;
+            } else {
+                iterationsWithoutImprovement++;
+                if (template.patience > 0 && iterationsWithoutImprovement >= template.patience) {
+                    return new TrainingResult(StopReason.CONVERGED, i + 1, cost);
+                }
             }
         }
-        return dataOutputProcessed;
+        return new TrainingResult(StopReason.ITERATIONS, iterations, cost);
     }
 
-    private double[][] processDataInputTimeStamp(double[] dataInput, Template template) {
-        double[] newDataInput = new double[dataInput.length - 1];
-        for (int i = 0; i < dataInput.length - 1; i++) {
-            newDataInput[i] = dataInput[i + 1] - dataInput[i];
+    /**
+     * Publish a snapshot of the current weights and biases for the forecasts. While fit trains
+     * with single precision, the weights and biases of the float trainer are written back first.
+     */
+    synchronized void publish() {
+        if (floatTrainer != null) {
+            floatTrainer.copyTo(layers);
         }
+        ParameterSnapshot previous = snapshot.get();
+        snapshot.set(new ParameterSnapshot(layers, horizon, previous == null ? 0 : previous.getVersion() + 1));
+    }
+
+    /**
+     * Process the data input so that it is usable by the model.
+     * The windows are a view of dataInput, which must not change while they are used.
+     * @param dataInput the data input
+     * @param start the index of the first value that is used
+     * @return the input windows of the model
+     */
+    private SeriesWindows processDataInput(double[] dataInput, int start) {
+        return processDataInput(SeriesSource.of(dataInput), start);
+    }
 
+    /**
+     * Process the series so that it is usable by the model.
+     * The windows are a view of series, which must not change while they are used.
+     * @param series the series
+     * @param start the index of the first value that is used
+     * @return the input windows of the model
+     */
+    private SeriesWindows processDataInput(SeriesSource series, long start) {
         int firstLayerSize = layers[0].getNodeSize();
-        double[][] dataInputProcessed = new double[newDataInput.length - firstLayerSize + 1][firstLayerSize];
-        for (int i = 0; i < newDataInput.length - firstLayerSize + 1; i++) {
-            System.arraycopy(newDataInput, i, dataInputProcessed[i], 0, firstLayerSize);
+        if (horizon > 0) {
+            return new SeriesWindows(series, start, firstLayerSize, 0, directWindowCount(series, start));
         }
+        return new SeriesWindows(series, start, firstLayerSize, 0, windowCount(series, start, firstLayerSize));
+    }
 
-        return dataInputProcessed;
+    /**
+     * Process the data output so that it is usable by the model.
+     * The windows are a view of dataInput, which must not change while they are used.
+     * @param dataInput the data input
+     * @param start the index of the first value that is used
+     * @return the expected output windows of the model
+     */
+    private SeriesWindows processDataOutput(double[] dataInput, int start) {
+        return processDataOutput(SeriesSource.of(dataInput), start);
     }
 
-    private double[][] processDataOutputTimeStamp(double[] dataInput, Template template) {
-        double[] newDataInput = new double[dataInput.length - 1];
-        for (int i = 0; i < dataInput.length - 1; i++) {
-            newDataInput[i] = dataInput[i + 1] - dataInput[i];
+    /**
+     * Process the series so that it is usable as the expected output of the model.
+     * The windows are a view of series, which must not change while they are used.
+     * @param series the series
+     * @param start the index of the first value that is used
+     * @return the expected output windows of the model
+     */
+    private SeriesWindows processDataOutput(SeriesSource series, long start) {
+        int lastLayerSize = layers[layers.length - 1].getNextNodeSize();
+        if (horizon > 0) {
+            int firstLayerSize = layers[0].getNodeSize();
+            return new SeriesWindows(series, start, lastLayerSize, firstLayerSize, directWindowCount(series, start));
         }
+        return new SeriesWindows(series, start, lastLayerSize, 1, windowCount(series, start, lastLayerSize));
+    }
 
-        int lastLayerSize = layers[layers.length - 1].getNextNodeSize();
-        double[][] dataOutputProcessed = new double[newDataInput.length - lastLayerSize + 1][lastLayerSize];
-        for (int i = 0; i < newDataInput.length - lastLayerSize + 1; i++) {
-            try {
-                System.arraycopy(newDataInput, i + 1, dataOutputProcessed[i], 0, lastLayerSize);
-            } catch (Exception e) {
-                System.arraycopy(newDataInput, 0, dataOutputProcessed[i], 0, lastLayerSize);
-            }
+    /**
+     * Get the number of input windows that are followed by horizon values of the series.
+     * @param series the series
+     * @param start the index of the first value that is used
+     * @return the number of windows with a complete expected output
+     * Pre-condition: horizon > 0, series.length() - start >= the number of nodes of the first layer + horizon
+     */
+    private int directWindowCount(SeriesSource series, long start) {
+        return windowCount(series, start, layers[0].getNodeSize() + horizon);
+    }
+
+    /**
+     * Get the number of windows of the given width of the series.
+     * @param series the series
+     * @param start the index of the first value that is used
+     * @param width the number of values of a window
+     * @return the number of windows
+     * @throws IllegalArgumentException if the series has more than Integer.MAX_VALUE windows
+     * Pre-condition: series.length() - start >= width
+     */
+    private static int windowCount(SeriesSource series, long start, int width) {
+        long count = series.length() - start - width + 1;
+        if (count > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("A series can have at most " + Integer.MAX_VALUE + " windows");
         }
-        return dataOutputProcessed;
+        return (int) count;
     }
 }
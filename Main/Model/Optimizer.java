@@ -0,0 +1,46 @@
+package cpen221.mp3.Model;
+
+public interface Optimizer {
+
+    /*
+     ABSTRACTION FUNCTION:
+     - An optimizer is a rule that updates parameters from their gradients. The state
+     of the rule is kept by the caller in a primitive array with getStateSize() values
+     per parameter: value k of parameter p is state[k * parameters.length + p].
+     - step is the number of updates of the parameters so far, including this one.
+
+     REPRESENTATION INVARIANT:
+     - getStateSize() >= 0
+     - an optimizer is immutable, so equal optimizers can share the same state
+     */
+
+    /**
+     * Get the number of state values the optimizer keeps for each parameter.
+     * @return the number of state values per parameter
+     */
+    int getStateSize();
+
+    /**
+     * Update the parameters with one step of the optimizer.
+     * @param parameters the parameters, which are changed
+     * @param gradients the derivative of the cost with respect to each parameter
+     * @param state the state of the optimizer for these parameters, which is changed
+     * @param learnRate the learning rate of this step
+     * @param step the number of this step, starting at 1
+     * Pre-condition: gradients.length == parameters.length,
+     *                state.length == getStateSize() * parameters.length, step > 0
+     */
+    void update(double[] parameters, double[] gradients, double[] state, double learnRate, long step);
+
+    /**
+     * Update the single-precision parameters with one step of the optimizer.
+     * @param parameters the parameters, which are changed
+     * @param gradients the derivative of the cost with respect to each parameter
+     * @param state the state of the optimizer for these parameters, which is changed
+     * @param learnRate the learning rate of this step
+     * @param step the number of this step, starting at 1
+     * Pre-condition: gradients.length == parameters.length,
+     *                state.length == getStateSize() * parameters.length, step > 0
+     */
+    void update(float[] parameters, float[] gradients, float[] state, float learnRate, long step);
+}
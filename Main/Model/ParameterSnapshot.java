@@ -0,0 +1,219 @@
+package cpen221.mp3.Model;
+
+import java.nio.DoubleBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public final class ParameterSnapshot {
+    private static final ThreadLocal<double[][]> SCRATCH = ThreadLocal.withInitial(() -> new double[2][0]);
+
+    private final long version;
+    private final int[] layerSizes;
+    private final int horizon;
+    private final int maxWidth;
+    private final double[] parameters;
+    private final AtomicBoolean compilationClaimed;
+    private volatile CompiledNetwork compiled;
+
+    /*
+     ABSTRACTION FUNCTION:
+     - A parameter snapshot is an immutable copy of the weights and biases of a neural network
+     at one moment, so that any number of threads can forecast with it without locks while
+     the neural network keeps training. version counts the snapshots the neural network
+     published before this one.
+     - parameters holds every layer, from the first to the last, as its weights, with the
+     weights of each next node contiguous, followed by its biases.
+     - The activations of a forecast are kept in buffers of the calling thread, in SCRATCH.
+     - compiled is the last compiled network of the snapshot whose forward pass was compiled,
+     or null. Forecasts with the activation function of compiled use its compiled forward pass,
+     which gives the same predictions. compilationClaimed is set while a compilation is requested,
+     and cleared again if the request is dropped before it runs.
+
+     REPRESENTATION INVARIANT:
+     - version >= 0
+     - layerSizes.length >= 2 and every layer size is positive
+     - horizon == 0 or horizon == layerSizes[layerSizes.length - 1]
+     - maxWidth is the largest layer size after the first
+     - parameters.length == sum of (layerSizes[l] + 1) * layerSizes[l + 1]
+     - layerSizes and parameters are never changed after construction
+     - compiled == null or compiled.getSnapshot() == this and compiled.isCompiled()
+     */
+
+    /**
+     * Create a snapshot of the weights and biases of the given layers.
+     * @param layers the layers of the neural network
+     * @param horizon the number of steps of one forward pass, or 0 for one step
+     * @param version the number of snapshots published before this one
+     * Pre-condition: layers.length > 0, consecutive layers have matching sizes, version >= 0
+     */
+    ParameterSnapshot(Layer[] layers, int horizon, long version) {
+        this.version = version;
+        this.horizon = horizon;
+        this.layerSizes = new int[layers.length + 1];
+
+        int count = 0;
+        int width = 0;
+        for (int l = 0; l < layers.length; l++) {
+            layerSizes[l] = layers[l].getNodeSize();
+            count += layers[l].getParameterCount();
+            width = Math.max(width, layers[l].getNextNodeSize());
+        }
+        layerSizes[layers.length] = layers[layers.length - 1].getNextNodeSize();
+        this.maxWidth = width;
+
+        this.compilationClaimed = new AtomicBoolean();
+        this.parameters = new double[count];
+        DoubleBuffer buffer = DoubleBuffer.wrap(parameters);
+        for (Layer layer : layers) {
+            layer.writeParameters(buffer, WeightLayout.COLUMN_MAJOR);
+        }
+    }
+
+    /**
+     * Predict the next steps of the given data input, as NeuralNetwork.forecast does.
+     * @param dataInput an array of doubles representing the data input
+     * @param steps the number of steps to predict
+     * @param isBoolean whether the neural network is predicting a boolean
+     * @return an array of doubles representing the predictions
+     * Pre-condition: the neural network was trained with train,
+     *                dataInput.length >= the number of nodes of the first layer
+     */
+    public double[] forecast(double[] dataInput, int steps, boolean isBoolean) {
+        return rollout(ForwardPass.lastWindow(dataInput, layerSizes[0]), steps, isBoolean);
+    }
+
+    /**
+     * Predict the next steps of the given data input, as NeuralNetwork.forecastTimeStamp does.
+     * @param dataInput an array of doubles representing the data input
+     * @param steps the number of steps to predict
+     * @param isBoolean whether the neural network is predicting a boolean
+     * @return an array of doubles representing the predictions
+     * Pre-condition: the neural network was trained with trainTimeStamp,
+     *                dataInput.length > the number of nodes of the first layer
+     */
+    public double[] forecastTimeStamp(double[] dataInput, int steps, boolean isBoolean) {
+        double[] currentInput = ForwardPass.lastDifferenceWindow(dataInput, layerSizes[0]);
+        return ForwardPass.integrate(dataInput, rollout(currentInput, steps, isBoolean));
+    }
+
+    /**
+     * Predict the next steps that follow the given input window, as NeuralNetwork.forecastWindow does.
+     * @param window the last input window, which is not changed
+     * @param steps the number of steps to predict
+     * @param isBoolean whether the neural network is predicting a boolean
+     * @return an array of doubles representing the predictions
+     * Pre-condition: window.length == the number of nodes of the first layer
+     */
+    public double[] forecastWindow(double[] window, int steps, boolean isBoolean) {
+        return rollout(window.clone(), steps, isBoolean);
+    }
+
+    /**
+     * Compile the forward pass of the snapshot into a class of its own, with the weights and biases
+     * as constants and the given activation function, which is much faster for small networks.
+     * Compiling takes milliseconds, so it pays off for snapshots that forecast many times.
+     * If the forward pass is compiled, the forecasts of the snapshot with the same activation
+     * function use it from then on.
+     * @param isBoolean whether the compiled network uses the boolean activation function
+     * @return the compiled network, which falls back to the forward pass of the snapshot if the
+     *         runtime has no Java compiler or the snapshot is too large to compile
+     */
+    public CompiledNetwork compile(boolean isBoolean) {
+        CompiledNetwork network = new CompiledNetwork(this, isBoolean,
+                KernelCompiler.compile(parameters, 0, layerSizes, isBoolean));
+        if (network.isCompiled()) {
+            compiled = network;
+        }
+        return network;
+    }
+
+    /**
+     * Check whether forecasts of the snapshot use a compiled forward pass.
+     * @return true if the snapshot was compiled and false otherwise
+     */
+    public boolean isCompiled() {
+        return compiled != null;
+    }
+
+    /**
+     * Claim the compilation of the snapshot, so that it is requested only once.
+     * @return true for the first call and false for every later call
+     */
+    boolean claimCompilation() {
+        return compilationClaimed.compareAndSet(false, true);
+    }
+
+    /**
+     * Release a claim on the compilation of the snapshot whose request was dropped, so that the
+     * compilation can be claimed and requested again.
+     * Pre-condition: the compilation of the snapshot was claimed and will not run
+     */
+    void releaseCompilation() {
+        compilationClaimed.set(false);
+    }
+
+    /**
+     * Get the number of snapshots the neural network published before this one.
+     * @return the version of the snapshot
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Get the number of nodes in each layer of the snapshot.
+     * @return an array of integers representing the number of nodes in each layer
+     */
+    public int[] getLayerSizes() {
+        return layerSizes.clone();
+    }
+
+    /**
+     * Get the number of steps predicted by one forward pass of the snapshot.
+     * @return the number of steps of the last layer, or 0 if steps are predicted one at a time
+     */
+    public int getHorizon() {
+        return horizon;
+    }
+
+    /**
+     * Get the number of nodes of the first layer of the snapshot.
+     * @return the width of an input window
+     */
+    int getInputSize() {
+        return layerSizes[0];
+    }
+
+    /**
+     * Predict the next steps that follow an input window, with the compiled forward pass if
+     * there is one for the activation function.
+     * @param currentInput the last input window, which is changed by this method
+     * @param steps the number of steps to predict
+     * @param isBoolean whether the neural network is predicting a boolean
+     * @return an array of doubles representing the predictions
+     */
+    private double[] rollout(double[] currentInput, int steps, boolean isBoolean) {
+        CompiledNetwork network = compiled;
+        if (network != null && network.isBoolean() == isBoolean) {
+            return network.rollout(currentInput, steps);
+        }
+        return interpret(currentInput, steps, isBoolean);
+    }
+
+    /**
+     * Predict the next steps that follow an input window with the loops of ForwardPass.dense
+     * and the buffers of the calling thread.
+     * @param currentInput the last input window, which is changed by this method
+     * @param steps the number of steps to predict
+     * @param isBoolean whether the neural network is predicting a boolean
+     * @return an array of doubles representing the predictions
+     */
+    double[] interpret(double[] currentInput, int steps, boolean isBoolean) {
+        double[][] buffers = SCRATCH.get();
+        if (buffers[0].length < maxWidth) {
+            buffers[0] = new double[maxWidth];
+            buffers[1] = new double[maxWidth];
+        }
+        return ForwardPass.rollout((inputs, booleanOutput) -> ForwardPass.dense(parameters, 0, layerSizes, inputs,
+                buffers, booleanOutput), horizon, currentInput, steps, isBoolean);
+    }
+}
@@ -0,0 +1,6 @@
+package cpen221.mp3.Model;
+
+public enum Precision {
+    DOUBLE,
+    SINGLE
+}
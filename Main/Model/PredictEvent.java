@@ -0,0 +1,24 @@
+package cpen221.mp3.Model;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("cpen221.mp3.Predict")
+@Label("Predict")
+@Category("PredictionNN")
+@Description("Forecast of the next steps of a series by a trained neural network")
+@StackTrace(false)
+class PredictEvent extends Event {
+    @Label("Layer Sizes")
+    String layerSizes;
+
+    @Label("Steps")
+    int steps;
+
+    @Label("Time Stamp")
+    boolean timeStamp;
+}
@@ -0,0 +1,87 @@
+package cpen221.mp3.Model;
+
+import java.util.Arrays;
+
+public final class PredictionJob {
+    private final double[] dataInput;
+    private final int steps;
+    private final ModelType model;
+
+    /*
+     ABSTRACTION FUNCTION:
+     - A prediction job is a request to predict the next steps of dataInput with model.
+     Two jobs are equal if they request the same predictions.
+
+     REPRESENTATION INVARIANT:
+     - dataInput != null
+     - steps > 0
+     - model != null
+     */
+
+    /**
+     * Create a new prediction job.
+     * @param dataInput an array of doubles representing the data input
+     * @param steps the number of steps to predict
+     * @param model the model of the neural network
+     * Pre-condition: dataInput.length > 4, steps > 0, model != null
+     */
+    public PredictionJob(double[] dataInput, int steps, ModelType model) {
+        this.dataInput = dataInput.clone();
+        this.steps = steps;
+        this.model = model;
+    }
+
+    /**
+     * Get the data input of the job.
+     * @return an array of doubles representing the data input
+     */
+    public double[] getDataInput() {
+        return dataInput.clone();
+    }
+
+    /**
+     * Get the number of steps to predict.
+     * @return the number of steps to predict
+     */
+    public int getSteps() {
+        return steps;
+    }
+
+    /**
+     * Get the model of the job.
+     * @return the model of the neural network
+     */
+    public ModelType getModel() {
+        return model;
+    }
+
+    /**
+     * Run the job on the calling thread.
+     * @return an array of doubles representing the predictions
+     */
+    double[] run() {
+        return NNInterface.predict(dataInput, steps, model);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof PredictionJob)) {
+            return false;
+        }
+        PredictionJob job = (PredictionJob) other;
+        return steps == job.steps
+                && model == job.model
+                && Arrays.equals(dataInput, job.dataInput);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Arrays.hashCode(dataInput);
+        result = 31 * result + steps;
+        result = 31 * result + model.hashCode();
+        return result;
+    }
+}
@@ -0,0 +1,66 @@
+package cpen221.mp3.Model;
+
+public final class PredictionResult {
+    private final double[] predictions;
+    private final RuntimeException error;
+
+    /*
+     ABSTRACTION FUNCTION:
+     - A prediction result is either the predictions of a prediction job,
+     or the error that made the job fail.
+
+     REPRESENTATION INVARIANT:
+     - exactly one of predictions and error is null
+     */
+
+    private PredictionResult(double[] predictions, RuntimeException error) {
+        this.predictions = predictions;
+        this.error = error;
+    }
+
+    /**
+     * Create the result of a job that succeeded.
+     * @param predictions an array of doubles representing the predictions
+     * @return the result of the job
+     */
+    static PredictionResult success(double[] predictions) {
+        return new PredictionResult(predictions, null);
+    }
+
+    /**
+     * Create the result of a job that failed.
+     * @param error the error that made the job fail
+     * @return the result of the job
+     */
+    static PredictionResult failure(RuntimeException error) {
+        return new PredictionResult(null, error);
+    }
+
+    /**
+     * Check if the job succeeded.
+     * @return true if the job succeeded and false otherwise
+     */
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    /**
+     * Get the predictions of the job.
+     * @return an array of doubles representing the predictions
+     * @throws RuntimeException the error of the job if it failed
+     */
+    public double[] getPredictions() {
+        if (error != null) {
+            throw error;
+        }
+        return predictions.clone();
+    }
+
+    /**
+     * Get the error of the job.
+     * @return the error that made the job fail, or null if it succeeded
+     */
+    public RuntimeException getError() {
+        return error;
+    }
+}
@@ -0,0 +1,160 @@
+package cpen221.mp3.Model;
+
+final class QuantizedLayer {
+    private static final int MAX_LEVEL = 127;
+
+    private final int nodeSize;
+    private final int nextNodeSize;
+    private final byte[] weights;
+    private final float[] weightScales;
+    private final byte[] biases;
+    private final float biasScale;
+
+    /*
+     ABSTRACTION FUNCTION:
+     - A quantized layer is a trained layer whose weights and biases are rounded to int8.
+     The weight from node to nextNode is weights[nextNode * nodeSize + node] * weightScale(nextNode),
+     so the weights of each next node are contiguous, and the bias of nextNode is
+     biases[nextNode] * biasScale.
+     - weightScale(nextNode) is weightScales[nextNode] if the weights have one scale per next node,
+     and weightScales[0] if the whole layer has one scale.
+     - The inputs of a forward pass are also rounded to int8 with one scale for the input vector,
+     so the weighted sums are accumulated in ints and scaled back once per next node.
+
+     REPRESENTATION INVARIANT:
+     - nodeSize > 0
+     - nextNodeSize > 0
+     - weights.length == nodeSize * nextNodeSize
+     - biases.length == nextNodeSize
+     - weightScales.length == 1 or weightScales.length == nextNodeSize
+     - every scale is positive
+     - every element of weights and biases is between -MAX_LEVEL and MAX_LEVEL
+     */
+
+    /**
+     * Create a quantized copy of the given layer.
+     * @param layer the trained layer
+     * @param scale whether the weights get one scale for the layer or one per next node
+     */
+    QuantizedLayer(Layer layer, QuantizationScale scale) {
+        this.nodeSize = layer.getNodeSize();
+        this.nextNodeSize = layer.getNextNodeSize();
+        this.weights = new byte[nodeSize * nextNodeSize];
+        this.weightScales = new float[scale == QuantizationScale.PER_CHANNEL ? nextNodeSize : 1];
+        this.biases = new byte[nextNodeSize];
+
+        double[] values = new double[nodeSize * nextNodeSize];
+        for (int i = 0; i < nextNodeSize; i++) {
+            for (int j = 0; j < nodeSize; j++) {
+                values[i * nodeSize + j] = layer.getWeight(j, i);
+            }
+        }
+        if (weightScales.length == 1) {
+            weightScales[0] = quantize(values, 0, values.length, weights);
+        } else {
+            for (int i = 0; i < nextNodeSize; i++) {
+                weightScales[i] = quantize(values, i * nodeSize, nodeSize, weights);
+            }
+        }
+        this.biasScale = quantize(layer.getBiases(), 0, nextNodeSize, biases);
+    }
+
+    /**
+     * Write the output of the layer for the given int8 inputs into the given array without allocating.
+     * @param inputs the inputs to the layer, rounded to int8
+     * @param inputScale the scale of the inputs, so that input i is inputs[i] * inputScale
+     * @param outputs the array that receives the output of the layer
+     * @param isBoolean whether the layer uses the boolean activation function
+     * @return the largest magnitude of the outputs, so that they can be quantized without another pass
+     * Pre-condition: inputs.length >= nodeSize, outputs.length >= nextNodeSize
+     */
+    double getOutput(byte[] inputs, double inputScale, double[] outputs, boolean isBoolean) {
+        double max = 0;
+        for (int i = 0; i < this.nextNodeSize; i++) {
+            int sum = LinearAlgebra.dot(this.weights, i * this.nodeSize, inputs, 0, this.nodeSize);
+            float weightScale = weightScales.length == 1 ? weightScales[0] : weightScales[i];
+            double output = sum * (inputScale * weightScale) + this.biases[i] * (double) this.biasScale;
+            if (isBoolean) {
+                output = 1 / (1 + Math.exp(-output));
+            } else if (output < 0) {
+                output = 0;
+            }
+            outputs[i] = output;
+            if (output > max) {
+                max = output;
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Round a slice of values to int8 with one symmetric scale, so that the value with the
+     * largest magnitude becomes -MAX_LEVEL or MAX_LEVEL.
+     * @param values the values
+     * @param offset the index of the first value of the slice
+     * @param length the length of the slice
+     * @param destination the array that receives the rounded values at the same indices as the slice
+     * @return the scale of the rounded values, which is 1 if every value of the slice is 0
+     * Pre-condition: the slice is within the bounds of values and destination, every value is finite
+     */
+    static float quantize(double[] values, int offset, int length, byte[] destination) {
+        double max = 0;
+        for (int i = offset; i < offset + length; i++) {
+            double magnitude = Math.abs(values[i]);
+            if (magnitude > max) {
+                max = magnitude;
+            }
+        }
+        return quantize(values, offset, length, max, destination);
+    }
+
+    /**
+     * Round a slice of values whose largest magnitude is known to int8, as quantize does.
+     * @param values the values
+     * @param offset the index of the first value of the slice
+     * @param length the length of the slice
+     * @param max the largest magnitude of the values of the slice
+     * @param destination the array that receives the rounded values at the same indices as the slice
+     * @return the scale of the rounded values, which is 1 if every value of the slice is 0
+     * Pre-condition: the slice is within the bounds of values and destination, every value is finite
+     */
+    static float quantize(double[] values, int offset, int length, double max, byte[] destination) {
+        if (max == 0) {
+            for (int i = offset; i < offset + length; i++) {
+                destination[i] = 0;
+            }
+            return 1;
+        }
+
+        float scale = (float) (max / MAX_LEVEL);
+        double inverse = MAX_LEVEL / max;
+        for (int i = offset; i < offset + length; i++) {
+            destination[i] = (byte) Math.rint(values[i] * inverse);
+        }
+        return scale;
+    }
+
+    /**
+     * Get the number of bytes of the weights, biases and scales of the layer.
+     * @return the memory of the parameters of the layer
+     */
+    long getParameterBytes() {
+        return weights.length + biases.length + Float.BYTES * (weightScales.length + 1L);
+    }
+
+    /**
+     * Get the number of nodes in the layer.
+     * @return the number of nodes in the layer
+     */
+    int getNodeSize() {
+        return nodeSize;
+    }
+
+    /**
+     * Get the number of next nodes in the layer.
+     * @return the number of next nodes in the layer
+     */
+    int getNextNodeSize() {
+        return nextNodeSize;
+    }
+}
@@ -0,0 +1,124 @@
+package cpen221.mp3.Model;
+
+public class QuantizedNetwork {
+    private final QuantizedLayer[] layers;
+    private final int horizon;
+    private final byte[][] inputs;
+    private final double[][] outputs;
+
+    /*
+     ABSTRACTION FUNCTION:
+     - A quantized network is an inference-only copy of a trained neural network whose
+     layers are quantized to int8. It forecasts like the neural network it was made from,
+     with the error of the rounding of its weights, biases and activations.
+     - inputs[l] holds the input of layer l rounded to int8 and outputs[l] holds the output
+     of layer l during a forward pass. The public methods that use them are synchronized,
+     so a quantized network can be shared between threads.
+
+     REPRESENTATION INVARIANT:
+     - layers.length > 0
+     - layers[l].getNextNodeSize() == layers[l + 1].getNodeSize()
+     - horizon == 0 or horizon == the number of nodes of the last layer
+     - inputs.length == outputs.length == layers.length
+     - inputs[l].length == layers[l].getNodeSize()
+     - outputs[l].length == layers[l].getNextNodeSize()
+     */
+
+    /**
+     * Create a quantized copy of the given layers.
+     * @param source the trained layers
+     * @param horizon the number of steps of one forward pass, or 0 for one step
+     * @param scale whether the weights of a layer get one scale or one per next node
+     * Pre-condition: source.length > 0, consecutive layers have matching sizes
+     */
+    QuantizedNetwork(Layer[] source, int horizon, QuantizationScale scale) {
+        this.layers = new QuantizedLayer[source.length];
+        this.horizon = horizon;
+        this.inputs = new byte[source.length][];
+        this.outputs = new double[source.length][];
+        for (int l = 0; l < source.length; l++) {
+            this.layers[l] = new QuantizedLayer(source[l], scale);
+            this.inputs[l] = new byte[source[l].getNodeSize()];
+            this.outputs[l] = new double[source[l].getNextNodeSize()];
+        }
+    }
+
+    /**
+     * Predict the next steps of the given data input, as NeuralNetwork.forecast does.
+     * @param dataInput an array of doubles representing the data input
+     * @param steps the number of steps to predict
+     * @param isBoolean whether the neural network is predicting a boolean
+     * @return an array of doubles representing the predictions
+     * Pre-condition: the neural network was trained with train,
+     *                dataInput.length >= the number of nodes of the first layer
+     */
+    public synchronized double[] forecast(double[] dataInput, int steps, boolean isBoolean) {
+        double[] currentInput = ForwardPass.lastWindow(dataInput, layers[0].getNodeSize());
+        return ForwardPass.rollout(this::forward, horizon, currentInput, steps, isBoolean);
+    }
+
+    /**
+     * Predict the next steps of the given data input, as NeuralNetwork.forecastTimeStamp does.
+     * @param dataInput an array of doubles representing the data input
+     * @param steps the number of steps to predict
+     * @param isBoolean whether the neural network is predicting a boolean
+     * @return an array of doubles representing the predictions
+     * Pre-condition: the neural network was trained with trainTimeStamp,
+     *                dataInput.length > the number of nodes of the first layer
+     */
+    public synchronized double[] forecastTimeStamp(double[] dataInput, int steps, boolean isBoolean) {
+        double[] currentInput = ForwardPass.lastDifferenceWindow(dataInput, layers[0].getNodeSize());
+        return ForwardPass.integrate(dataInput,
+                ForwardPass.rollout(this::forward, horizon, currentInput, steps, isBoolean));
+    }
+
+    /**
+     * Get the number of nodes in each layer of the quantized network.
+     * @return an array of integers representing the number of nodes in each layer
+     */
+    public int[] getLayerSizes() {
+        int[] layerSizes = new int[layers.length + 1];
+        for (int l = 0; l < layers.length; l++) {
+            layerSizes[l] = layers[l].getNodeSize();
+        }
+        layerSizes[layers.length] = layers[layers.length - 1].getNextNodeSize();
+        return layerSizes;
+    }
+
+    /**
+     * Get the number of steps predicted by one forward pass of the quantized network.
+     * @return the number of steps of the last layer, or 0 if steps are predicted one at a time
+     */
+    public int getHorizon() {
+        return horizon;
+    }
+
+    /**
+     * Get the number of bytes of the quantized weights, biases and scales of every layer.
+     * @return the memory of the parameters of the quantized network
+     */
+    public long getParameterBytes() {
+        long bytes = 0;
+        for (QuantizedLayer layer : layers) {
+            bytes += layer.getParameterBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Run a forward pass through the quantized layers without allocating.
+     * @param window the input window
+     * @param isBoolean whether the neural network is predicting a boolean
+     * @return the output of the last layer, which is overwritten by the next forward pass
+     */
+    private double[] forward(double[] window, boolean isBoolean) {
+        float scale = QuantizedLayer.quantize(window, 0, layers[0].getNodeSize(), inputs[0]);
+        for (int l = 0; l < layers.length; l++) {
+            double max = layers[l].getOutput(inputs[l], scale, outputs[l], isBoolean);
+            if (l + 1 < layers.length) {
+                scale = QuantizedLayer.quantize(outputs[l], 0, layers[l].getNextNodeSize(), max, inputs[l + 1]);
+            }
+        }
+        return outputs[layers.length - 1];
+    }
+}
@@ -0,0 +1,98 @@
+package cpen221.mp3.Model;
+
+public final class RmsPropOptimizer implements Optimizer {
+    private final double decay;
+    private final double epsilon;
+
+    /*
+     ABSTRACTION FUNCTION:
+     - An RMSProp optimizer keeps a moving average of the square of the gradient of every
+     parameter, and moves the parameter against its gradient divided by the square root
+     of that average, so every parameter takes steps of about the learning rate.
+     - state[p] is the moving average of the squared gradient of parameter p.
+
+     REPRESENTATION INVARIANT:
+     - 0 <= decay < 1
+     - epsilon > 0
+     */
+
+    /**
+     * Create an RMSProp optimizer with a decay of 0.9 and an epsilon of 1e-8.
+     */
+    public RmsPropOptimizer() {
+        this(0.9, 1e-8);
+    }
+
+    /**
+     * Create an RMSProp optimizer.
+     * @param decay the fraction of the previous average that is kept
+     * @param epsilon the value added to the square root of the average to avoid dividing by zero
+     * Pre-condition: 0 <= decay < 1, epsilon > 0
+     */
+    public RmsPropOptimizer(double decay, double epsilon) {
+        this.decay = decay;
+        this.epsilon = epsilon;
+    }
+
+    /**
+     * Get the fraction of the previous average that is kept.
+     * @return the decay
+     */
+    double getDecay() {
+        return decay;
+    }
+
+    /**
+     * Get the value added to the square root of the average.
+     * @return the epsilon
+     */
+    double getEpsilon() {
+        return epsilon;
+    }
+
+    @Override
+    public int getStateSize() {
+        return 1;
+    }
+
+    @Override
+    public void update(double[] parameters, double[] gradients, double[] state, double learnRate, long step) {
+        for (int p = 0; p < parameters.length; p++) {
+            double gradient = gradients[p];
+            double average = decay * state[p] + (1 - decay) * gradient * gradient;
+            state[p] = average;
+            parameters[p] -= learnRate * gradient / (Math.sqrt(average) + epsilon);
+        }
+    }
+
+    @Override
+    public void update(float[] parameters, float[] gradients, float[] state, float learnRate, long step) {
+        float decay = (float) this.decay;
+        float epsilon = (float) this.epsilon;
+        for (int p = 0; p < parameters.length; p++) {
+            float gradient = gradients[p];
+            float average = decay * state[p] + (1 - decay) * gradient * gradient;
+            state[p] = average;
+            parameters[p] -= learnRate * gradient / ((float) Math.sqrt(average) + epsilon);
+        }
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof RmsPropOptimizer)) {
+            return false;
+        }
+        RmsPropOptimizer optimizer = (RmsPropOptimizer) other;
+        return Double.compare(decay, optimizer.decay) == 0 && Double.compare(epsilon, optimizer.epsilon) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Double.hashCode(decay) + Double.hashCode(epsilon);
+    }
+
+    @Override
+    public String toString() {
+        return "RMSProp(" + decay + ", " + epsilon + ")";
+    }
+}
@@ -0,0 +1,67 @@
+package cpen221.mp3.Model;
+
+public final class SearchResult {
+    private final Template template;
+    private final double holdoutError;
+    private final int candidates;
+    private final int rounds;
+
+    /*
+     ABSTRACTION FUNCTION:
+     - A search result is the best template found by a template search, with its
+     trained neural network and its mean absolute error on the holdout tail.
+     - candidates is the number of templates that were evaluated and rounds is the
+     number of pruning rounds that ran.
+
+     REPRESENTATION INVARIANT:
+     - template != null
+     - candidates > 0
+     - rounds > 0
+     */
+
+    /**
+     * Create a new search result.
+     * @param template the best template, with its trained neural network
+     * @param holdoutError the mean absolute error of the best template on the holdout tail
+     * @param candidates the number of templates that were evaluated
+     * @param rounds the number of pruning rounds that ran
+     */
+    SearchResult(Template template, double holdoutError, int candidates, int rounds) {
+        this.template = template;
+        this.holdoutError = holdoutError;
+        this.candidates = candidates;
+        this.rounds = rounds;
+    }
+
+    /**
+     * Get the best template.
+     * @return the best template, whose neural network is trained on the whole data input
+     */
+    public Template getTemplate() {
+        return template;
+    }
+
+    /**
+     * Get the error of the best template on the holdout tail.
+     * @return the mean absolute error of the forecast of the holdout tail
+     */
+    public double getHoldoutError() {
+        return holdoutError;
+    }
+
+    /**
+     * Get the number of templates that were evaluated.
+     * @return the number of candidates
+     */
+    public int getCandidates() {
+        return candidates;
+    }
+
+    /**
+     * Get the number of pruning rounds that ran.
+     * @return the number of rounds
+     */
+    public int getRounds() {
+        return rounds;
+    }
+}
@@ -0,0 +1,97 @@
+package cpen221.mp3.Model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+final class SeriesFileWriter implements Closeable {
+    private static final int BUFFER_BYTES = 1 << 20;
+
+    private final FileChannel channel;
+    private final Precision precision;
+    private final ByteBuffer buffer;
+    private long count;
+
+    /*
+     ABSTRACTION FUNCTION:
+     - A series file writer appends values to a binary series file, as little-endian doubles
+     if precision is DOUBLE and little-endian floats if it is SINGLE. The count values
+     appended so far are in the file, except for those still in buffer.
+
+     REPRESENTATION INVARIANT:
+     - channel is open until the writer is closed
+     - buffer is little-endian, direct and holds a whole number of values
+     - count >= 0
+     */
+
+    /**
+     * Create a writer of a new binary series file.
+     * @param path the file to write, which is replaced if it exists
+     * @param precision whether the values are written as doubles or floats
+     * @throws IOException if the file cannot be created
+     */
+    SeriesFileWriter(Path path, Precision precision) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+        this.precision = precision;
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Append values to the file.
+     * @param values the values
+     * @param length the number of values of the array, from the first, that are appended
+     * @throws IOException if the file cannot be written
+     * Pre-condition: 0 <= length <= values.length
+     */
+    void append(double[] values, int length) throws IOException {
+        for (int i = 0; i < length; i++) {
+            if (!buffer.hasRemaining()) {
+                flush();
+            }
+            if (precision == Precision.DOUBLE) {
+                buffer.putDouble(values[i]);
+            } else {
+                buffer.putFloat((float) values[i]);
+            }
+        }
+        count += length;
+    }
+
+    /**
+     * Get the number of values appended so far.
+     * @return the number of values of the file
+     */
+    long getCount() {
+        return count;
+    }
+
+    /**
+     * Write the buffered values and close the file.
+     * @throws IOException if the file cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Write the buffered values to the file.
+     * @throws IOException if the file cannot be written
+     */
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
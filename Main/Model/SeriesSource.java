@@ -0,0 +1,72 @@
+package cpen221.mp3.Model;
+
+public interface SeriesSource {
+
+    /*
+     ABSTRACTION FUNCTION:
+     - A series source is a read-only series of doubles that does not have to fit in an array
+     or on the heap. Value i of the series is get(i), for 0 <= i < length().
+
+     REPRESENTATION INVARIANT:
+     - length() >= 0
+     - the values of a series source do not change while it is used for training or forecasting
+     */
+
+    /**
+     * Get the number of values of the series.
+     * @return the length of the series
+     */
+    long length();
+
+    /**
+     * Get a value of the series.
+     * @param index the index of the value
+     * @return the value
+     * Pre-condition: 0 <= index < length()
+     */
+    double get(long index);
+
+    /**
+     * Copy consecutive values of the series into the given array.
+     * @param index the index of the first value that is copied
+     * @param destination the array that receives the values
+     * @param offset the index in destination of the first value
+     * @param length the number of values that are copied
+     * Pre-condition: 0 <= index, index + length <= length(), the values fit in destination from offset on
+     */
+    default void read(long index, double[] destination, int offset, int length) {
+        for (int i = 0; i < length; i++) {
+            destination[offset + i] = get(index + i);
+        }
+    }
+
+    /**
+     * Copy the last values of the series into a new array.
+     * @param count the number of values that are copied
+     * @return an array with the last count values of the series
+     * Pre-condition: 0 <= count <= length()
+     */
+    default double[] tail(int count) {
+        double[] values = new double[count];
+        read(length() - count, values, 0, count);
+        return values;
+    }
+
+    /**
+     * Get a view of the differences between consecutive values of the series, without copying them.
+     * @return a series whose value i is get(i + 1) - get(i)
+     * Pre-condition: length() > 0
+     */
+    default SeriesSource difference() {
+        return new DifferenceSeriesSource(this);
+    }
+
+    /**
+     * Get a series source of the values of an array, which are not copied.
+     * @param values the values of the series, which must not change while the source is used
+     * @return the series source of values
+     */
+    static SeriesSource of(double[] values) {
+        return new ArraySeriesSource(values);
+    }
+}
@@ -0,0 +1,174 @@
+package cpen221.mp3.Model;
+
+public final class SeriesWindows {
+    private final SeriesSource series;
+    private final long start;
+    private final int width;
+    private final int shift;
+    private final int count;
+
+    /*
+     ABSTRACTION FUNCTION:
+     - A series windows object is a read-only view of the overlapping windows of the values
+     of series from index start on, without copying them. Window i holds the width values
+     from series.get(start + i + shift). A window that would run past the end of the series
+     holds the first width values of the view instead. The series may be an array or a
+     memory-mapped file, so windows are only read when they are used.
+     - There are count windows. Unless a count is given, there is one for each window of
+     width values with no shift.
+
+     REPRESENTATION INVARIANT:
+     - series != null
+     - 0 <= start
+     - width > 0
+     - shift >= 0
+     - 0 < count <= series.length() - start - width + 1
+     - series is never changed through this view
+     */
+
+    /**
+     * Create a view of the windows of a series.
+     * @param series the values of the series, which are not copied
+     * @param start the index of the first value of the view
+     * @param width the number of values in each window
+     * @param shift the offset of each window from the start of the window of the same index with no shift
+     * Pre-condition: 0 <= start, width > 0, shift >= 0, series.length - start >= width
+     */
+    public SeriesWindows(double[] series, int start, int width, int shift) {
+        this(series, start, width, shift, series.length - start - width + 1);
+    }
+
+    /**
+     * Create a view of the first count windows of a series.
+     * @param series the values of the series, which are not copied
+     * @param start the index of the first value of the view
+     * @param width the number of values in each window
+     * @param shift the offset of each window from the start of the window of the same index with no shift
+     * @param count the number of windows
+     * Pre-condition: 0 <= start, width > 0, shift >= 0, 0 < count <= series.length - start - width + 1
+     */
+    public SeriesWindows(double[] series, int start, int width, int shift, int count) {
+        this(SeriesSource.of(series), start, width, shift, count);
+    }
+
+    /**
+     * Create a view of the first count windows of a series.
+     * @param series the values of the series, which are not copied
+     * @param start the index of the first value of the view
+     * @param width the number of values in each window
+     * @param shift the offset of each window from the start of the window of the same index with no shift
+     * @param count the number of windows
+     * Pre-condition: 0 <= start, width > 0, shift >= 0, 0 < count <= series.length() - start - width + 1
+     */
+    public SeriesWindows(SeriesSource series, long start, int width, int shift, int count) {
+        this.series = series;
+        this.start = start;
+        this.width = width;
+        this.shift = shift;
+        this.count = count;
+    }
+
+    /**
+     * Get the number of windows.
+     * @return the number of windows
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Get the number of values in each window.
+     * @return the width of the windows
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Get a value of a window.
+     * @param window the index of the window
+     * @param index the index of the value in the window
+     * @return the value
+     * Pre-condition: 0 <= window < size(), 0 <= index < getWidth()
+     */
+    public double get(int window, int index) {
+        return series.get(offset(window) + index);
+    }
+
+    /**
+     * Copy a window into the given array.
+     * @param window the index of the window
+     * @param destination the array that receives the values of the window
+     * Pre-condition: 0 <= window < size(), destination.length >= getWidth()
+     */
+    public void copyWindow(int window, double[] destination) {
+        series.read(offset(window), destination, 0, width);
+    }
+
+    /**
+     * Copy the values at the same index of consecutive windows into the given array, so that
+     * batched passes can read the inputs of many windows at once.
+     * @param window the index of the first window
+     * @param index the index of the value in the windows
+     * @param destination the array that receives value index of each window
+     * @param count the number of windows
+     * Pre-condition: 0 <= window, window + count <= size(), 0 <= index < getWidth(),
+     *                destination.length >= count, the windows do not run past the end of the series
+     */
+    void copyColumn(int window, int index, double[] destination, int count) {
+        series.read(offset(window) + index, destination, 0, count);
+    }
+
+    /**
+     * Copy every value that the windows read into a float array, so that a single-precision
+     * fit converts the series once instead of on every pass.
+     * @return an array where element k is the value at index start + k of the series, from the
+     *         first value of the view to the last value of any window
+     */
+    float[] toFloat() {
+        long length = Math.min(series.length() - start, (long) count - 1 + shift + width);
+        float[] values = new float[Math.toIntExact(length)];
+        for (int k = 0; k < values.length; k++) {
+            values[k] = (float) series.get(start + k);
+        }
+        return values;
+    }
+
+    /**
+     * Get the index of the first value of a window in the array returned by toFloat.
+     * @param window the index of the window
+     * @return the index of the first value of the window in the float copy of the view
+     * Pre-condition: 0 <= window < size()
+     */
+    int floatOffset(int window) {
+        return (int) (offset(window) - start);
+    }
+
+    /**
+     * Get the index in the series of the first value of a window.
+     * @param window the index of the window
+     * @return the index of the first value of the window
+     */
+    private long offset(int window) {
+        long offset = start + window + shift;
+        if (offset + width > series.length()) {
+            return start;
+        }
+        return offset;
+    }
+
+    /**
+     * Get the differences between consecutive values of a series, from the given index on.
+     * @param series the values of the series
+     * @param start the index of the first value that is used
+     * @return an array where element i is series[start + i + 1] - series[start + i]
+     * Pre-condition: 0 <= start < series.length
+     */
+    public static double[] difference(double[] series, int start) {
+        double[] differences = new double[series.length - start - 1];
+        for (int i = 0; i < differences.length; i++) {
+            differences[i] = series[start + i + 1] - series[start + i];
+        }
+        return differences;
+    }
+}
@@ -0,0 +1,43 @@
+package cpen221.mp3.Model;
+
+public final class SgdOptimizer implements Optimizer {
+
+    /*
+     ABSTRACTION FUNCTION:
+     - An SGD optimizer moves every parameter against its gradient by the learning rate
+     times the gradient. It has no state.
+
+     REPRESENTATION INVARIANT:
+     - true
+     */
+
+    @Override
+    public int getStateSize() {
+        return 0;
+    }
+
+    @Override
+    public void update(double[] parameters, double[] gradients, double[] state, double learnRate, long step) {
+        LinearAlgebra.axpy(-learnRate, gradients, 0, parameters, 0, parameters.length);
+    }
+
+    @Override
+    public void update(float[] parameters, float[] gradients, float[] state, float learnRate, long step) {
+        LinearAlgebra.axpy(-learnRate, gradients, 0, parameters, 0, parameters.length);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof SgdOptimizer;
+    }
+
+    @Override
+    public int hashCode() {
+        return SgdOptimizer.class.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "SGD";
+    }
+}
@@ -0,0 +1,8 @@
+package cpen221.mp3.Model;
+
+public enum StopReason {
+    ITERATIONS,
+    CONVERGED,
+    TARGET_COST,
+    DEADLINE
+}
@@ -0,0 +1,200 @@
+package cpen221.mp3.Model;
+
+public class StreamingForecaster {
+    private final NeuralNetwork network;
+    private final ModelType model;
+    private final boolean isBoolean;
+    private final double learnRate;
+    private final int publishInterval;
+    private final int windowSize;
+    private final int targetSize;
+    private final double[] ring;
+    private final double[] window;
+    private final double[] target;
+    private int head;
+    private int count;
+    private double lastValue;
+    private boolean hasLastValue;
+    private int unpublishedSteps;
+
+    /*
+     ABSTRACTION FUNCTION:
+     - A streaming forecaster predicts the next steps of a series that arrives one value
+     at a time, with a trained neural network and without keeping the history of the series.
+     - ring is a circular buffer of the last count inputs of the network, which are the
+     values of the series, or the differences between consecutive values if model is
+     DOUBLE_TIMESTAMP. The oldest input is ring[head] and the newest is
+     ring[(head + count - 1) % ring.length].
+     - lastValue is the newest value of the series if hasLastValue is true.
+     - If learnRate > 0, every new input also trains the network with one step of
+     gradient descent on the oldest window of the buffer, whose expected output is the
+     targetSize inputs after the start of that window, or the targetSize inputs after that
+     window if the network predicts several steps in one forward pass, as in NeuralNetwork.train.
+     - unpublishedSteps is the number of online updates that are not in the snapshot of the
+     network yet. A snapshot is published every publishInterval updates and before a forecast,
+     so that push does not allocate a snapshot for every value.
+     - window and target are scratch buffers, so that push does not allocate.
+
+     REPRESENTATION INVARIANT:
+     - network != null, model != null
+     - isBoolean == (model == ModelType.BOOLEAN)
+     - learnRate >= 0
+     - publishInterval >= 0
+     - 0 <= unpublishedSteps, and unpublishedSteps < publishInterval if publishInterval > 0
+     - windowSize == the number of nodes of the first layer of network
+     - targetSize == the number of nodes of the last layer of network
+     - ring.length == max(windowSize, targetSize) + 1 if network predicts one step at a time,
+       and windowSize + targetSize otherwise
+     - 0 <= head < ring.length
+     - 0 <= count <= ring.length
+     - window.length == windowSize, target.length == targetSize
+     */
+
+    /**
+     * Create a new streaming forecaster that does not train the neural network.
+     * @param network the trained neural network
+     * @param model the model the neural network was trained for
+     */
+    public StreamingForecaster(NeuralNetwork network, ModelType model) {
+        this(network, model, 0);
+    }
+
+    /**
+     * Create a new streaming forecaster that publishes the online updates every 100 values.
+     * @param network the trained neural network; it is trained further by push if learnRate > 0
+     * @param model the model the neural network was trained for
+     * @param learnRate the learning rate of the online updates, or 0 to disable them
+     * Pre-condition: network != null, model != null, learnRate >= 0
+     */
+    public StreamingForecaster(NeuralNetwork network, ModelType model, double learnRate) {
+        this(network, model, learnRate, 100);
+    }
+
+    /**
+     * Create a new streaming forecaster.
+     * @param network the trained neural network; it is trained further by push if learnRate > 0
+     * @param model the model the neural network was trained for
+     * @param learnRate the learning rate of the online updates, or 0 to disable them
+     * @param publishInterval the number of online updates between the snapshots published for
+     *                        other readers of the network, or 0 to publish only before a forecast
+     * Pre-condition: network != null, model != null, learnRate >= 0, publishInterval >= 0
+     */
+    public StreamingForecaster(NeuralNetwork network, ModelType model, double learnRate, int publishInterval) {
+        this.network = network;
+        this.model = model;
+        this.isBoolean = model == ModelType.BOOLEAN;
+        this.learnRate = learnRate;
+        this.publishInterval = publishInterval;
+        int[] layerSizes = network.getLayerSizes();
+        this.windowSize = layerSizes[0];
+        this.targetSize = layerSizes[layerSizes.length - 1];
+        this.ring = new double[network.getHorizon() == 0 ? Math.max(windowSize, targetSize) + 1
+                : windowSize + targetSize];
+        this.window = new double[windowSize];
+        this.target = new double[targetSize];
+    }
+
+    /**
+     * Add the next value of the series. This takes time proportional to the size of the
+     * neural network and not to the number of values pushed so far.
+     * @param value the next value of the series
+     */
+    public synchronized void push(double value) {
+        if (model == ModelType.DOUBLE_TIMESTAMP) {
+            if (hasLastValue) {
+                addInput(value - lastValue);
+            }
+        } else {
+            addInput(value);
+        }
+        lastValue = value;
+        hasLastValue = true;
+    }
+
+    /**
+     * Add every value of the series in order.
+     * @param values the next values of the series
+     */
+    public synchronized void pushAll(double[] values) {
+        for (double value : values) {
+            push(value);
+        }
+    }
+
+    /**
+     * Check if enough values were pushed to make a forecast.
+     * @return true if forecast can be called and false otherwise
+     */
+    public synchronized boolean isReady() {
+        return count >= windowSize;
+    }
+
+    /**
+     * Predict the next steps of the series from the values pushed so far.
+     * @param steps the number of steps to predict
+     * @return an array of doubles representing the predictions
+     * @throws IllegalStateException if not enough values were pushed
+     */
+    public synchronized double[] forecast(int steps) {
+        if (!isReady()) {
+            throw new IllegalStateException("At least " + (model == ModelType.DOUBLE_TIMESTAMP
+                    ? windowSize + 1 : windowSize) + " values must be pushed before forecasting");
+        }
+
+        if (unpublishedSteps > 0) {
+            network.publish();
+            unpublishedSteps = 0;
+        }
+        copyInputs(count - windowSize, window);
+        double[] predictions = network.forecastWindow(window, steps, isBoolean);
+        if (model == ModelType.DOUBLE_TIMESTAMP) {
+            double value = lastValue;
+            for (int i = 0; i < steps; i++) {
+                value += predictions[i];
+                predictions[i] = value;
+            }
+        }
+        return predictions;
+    }
+
+    /**
+     * Add an input of the neural network to the buffer, and train on the oldest window
+     * if the buffer is full and online updates are enabled. A snapshot is published
+     * every publishInterval updates.
+     * @param input the new input
+     */
+    private void addInput(double input) {
+        if (count == ring.length) {
+            ring[head] = input;
+            head = (head + 1) % ring.length;
+        } else {
+            ring[(head + count) % ring.length] = input;
+            count++;
+        }
+
+        if (learnRate > 0 && count == ring.length) {
+            copyInputs(0, window);
+            int targetStart = network.getHorizon() == 0 ? 1 : windowSize;
+            for (int i = 0; i < targetSize; i++) {
+                target[i] = ring[(head + targetStart + i) % ring.length];
+            }
+            network.learnOne(window, target, learnRate, isBoolean, false);
+            unpublishedSteps++;
+            if (publishInterval > 0 && unpublishedSteps == publishInterval) {
+                network.publish();
+                unpublishedSteps = 0;
+            }
+        }
+    }
+
+    /**
+     * Copy windowSize consecutive inputs from the buffer.
+     * @param from the index of the first input, where 0 is the oldest input in the buffer
+     * @param destination the array that receives the inputs
+     */
+    private void copyInputs(int from, double[] destination) {
+        for (int i = 0; i < windowSize; i++) {
+            destination[i] = ring[(head + from + i) % ring.length];
+        }
+    }
+}
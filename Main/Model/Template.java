@@ -4,12 +4,46 @@ package cpen221.mp3.Model;
 public class Template {
 
     public NeuralNetwork neuralNetwork;
+    public int[] layerSizes;
     public double learnRate;
     public int iteration;
+    public int horizon;
+    public int fineTuneIteration;
+    public int fineTuneContext;
+    public int threads;
+    public double minImprovement;
+    public int patience;
+    public double targetCost;
+    public long timeBudgetMillis;
+    public Precision precision;
+    public Optimizer optimizer;
+    public LearningRateSchedule schedule;
+    public int publishInterval;
 
     public Template(int[] layerSizes, double learnRate, int iteration) {
-        this.neuralNetwork = new NeuralNetwork(layerSizes);
+        this(layerSizes, learnRate, iteration, WeightLayout.COLUMN_MAJOR);
+    }
+
+    public Template(int[] layerSizes, double learnRate, int iteration, WeightLayout layout) {
+        this(layerSizes, learnRate, iteration, layout, 0);
+    }
+
+    public Template(int[] layerSizes, double learnRate, int iteration, WeightLayout layout, int horizon) {
+        this.neuralNetwork = new NeuralNetwork(layerSizes, layout, horizon);
+        this.layerSizes = layerSizes.clone();
         this.learnRate = learnRate;
         this.iteration = iteration;
+        this.horizon = horizon;
+        this.fineTuneIteration = Math.max(1, iteration / 20);
+        this.fineTuneContext = 32;
+        this.threads = 1;
+        this.minImprovement = 0;
+        this.patience = 0;
+        this.targetCost = 0;
+        this.timeBudgetMillis = 0;
+        this.precision = Precision.DOUBLE;
+        this.optimizer = new SgdOptimizer();
+        this.schedule = LearningRateSchedule.constant();
+        this.publishInterval = 100;
     }
 }
@@ -0,0 +1,289 @@
+package cpen221.mp3.Model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+public final class TemplateSearch {
+
+    /*
+     ABSTRACTION FUNCTION:
+     This class provides static methods to choose the template of a neural network for a
+     data input. Every candidate template is trained on the data input without its last
+     holdout values and scored by the mean absolute error of its forecast of those values.
+
+     The search runs in rounds of successive halving. In each round every surviving candidate
+     trains for 1 / rounds of its iterations more, concurrently and on the same read-only
+     training series, and the better half of the candidates survive to the next round. The
+     time budget is one deadline for the whole search: every fit may only train until that
+     deadline, no candidate starts training after it, and no round starts after it. The best
+     candidate is fine-tuned on the holdout values before it is returned, also only until
+     the deadline.
+
+     REPRESENTATION INVARIANT:
+     - dataInput != null
+     - candidates != null
+     - holdout > 0
+     - budgetMillis >= 0
+     - parallelism > 0
+     */
+
+    private TemplateSearch() {
+    }
+
+    /**
+     * Create a template for every combination of the given hyperparameters.
+     * @param layerSizes the numbers of nodes in each layer to try
+     * @param learnRates the learning rates to try
+     * @param iteration the number of iterations of every template
+     * @return the candidate templates
+     * Pre-condition: every element of layerSizes has length >= 2 and positive sizes,
+     *                learnRates are positive, iteration > 0
+     */
+    public static List<Template> grid(int[][] layerSizes, double[] learnRates, int iteration) {
+        List<Template> candidates = new ArrayList<>();
+        for (int[] sizes : layerSizes) {
+            for (double learnRate : learnRates) {
+                candidates.add(new Template(sizes, learnRate, iteration));
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Create templates with random hyperparameters. The layer sizes are chosen uniformly from the
+     * given ones and the learning rate is chosen uniformly on a log scale between the given bounds.
+     * @param count the number of templates
+     * @param layerSizes the numbers of nodes in each layer to choose from
+     * @param minLearnRate the smallest learning rate
+     * @param maxLearnRate the largest learning rate
+     * @param iteration the number of iterations of every template
+     * @param seed the seed of the random choices, so that the same arguments give the same templates
+     * @return the candidate templates
+     * Pre-condition: count > 0, layerSizes.length > 0, 0 < minLearnRate <= maxLearnRate, iteration > 0
+     */
+    public static List<Template> random(int count, int[][] layerSizes, double minLearnRate, double maxLearnRate,
+                                        int iteration, long seed) {
+        Random random = new Random(seed);
+        double logMin = Math.log(minLearnRate);
+        double logMax = Math.log(maxLearnRate);
+
+        List<Template> candidates = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int[] sizes = layerSizes[random.nextInt(layerSizes.length)];
+            double learnRate = Math.exp(logMin + random.nextDouble() * (logMax - logMin));
+            candidates.add(new Template(sizes, learnRate, iteration));
+        }
+        return candidates;
+    }
+
+    /**
+     * Find the best candidate template for the given data input, training the candidates
+     * concurrently on the common fork-join pool with at most one candidate per processor at a time.
+     * @param dataInput an array of doubles representing the data input
+     * @param model the model of the neural network
+     * @param candidates the candidate templates, whose neural networks are trained by the search
+     * @param holdout the number of values at the end of the data input used to score the candidates
+     * @param budgetMillis the largest number of milliseconds the search takes, or 0 for no limit
+     * @return the best template, fine-tuned on the whole data input if the budget is not spent
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     * Pre-condition: holdout > 0, budgetMillis >= 0
+     */
+    public static SearchResult search(double[] dataInput, ModelType model, List<Template> candidates, int holdout,
+                                      long budgetMillis) throws InterruptedException {
+        return search(dataInput, model, candidates, holdout, budgetMillis, ForkJoinPool.commonPool(),
+                Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Find the best candidate template for the given data input, training the candidates
+     * concurrently on the given executor. A candidate that cannot be trained on the data input,
+     * because its first layer is too large, is skipped, and a candidate whose training fails
+     * or diverges, or that is not trained in the first round because the budget is spent, is pruned.
+     * @param dataInput an array of doubles representing the data input
+     * @param model the model of the neural network
+     * @param candidates the candidate templates, whose neural networks are trained by the search
+     * @param holdout the number of values at the end of the data input used to score the candidates
+     * @param budgetMillis the largest number of milliseconds the search takes, or 0 for no limit
+     * @param executor the executor that trains the candidates
+     * @param parallelism the largest number of candidates that train at the same time
+     * @return the best template, fine-tuned on the whole data input if the budget is not spent
+     * @throws IllegalArgumentException if no candidate can be trained on the data input
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     * Pre-condition: holdout > 0, budgetMillis >= 0, executor != null, parallelism > 0
+     */
+    public static SearchResult search(double[] dataInput, ModelType model, List<Template> candidates, int holdout,
+                                      long budgetMillis, ExecutorService executor, int parallelism)
+            throws InterruptedException {
+        boolean isBoolean = model == ModelType.BOOLEAN;
+        boolean isTimeStamp = model == ModelType.DOUBLE_TIMESTAMP;
+        long deadline = System.nanoTime() + budgetMillis * 1_000_000L;
+
+        double[] head = Arrays.copyOf(dataInput, dataInput.length - holdout);
+        double[] tail = Arrays.copyOfRange(dataInput, head.length, dataInput.length);
+        double[] series = isTimeStamp ? SeriesWindows.difference(head, 0) : head;
+
+        List<Candidate> survivors = new ArrayList<>();
+        for (Template template : candidates) {
+            if (template.layerSizes[0] < series.length) {
+                survivors.add(new Candidate(template));
+            }
+        }
+        if (survivors.isEmpty()) {
+            throw new IllegalArgumentException("No candidate template fits a data input of length "
+                    + dataInput.length + " with a holdout of " + holdout);
+        }
+
+        int candidateCount = survivors.size();
+        int rounds = 1;
+        while ((1 << (rounds - 1)) < candidateCount) {
+            rounds++;
+        }
+
+        int round = 0;
+        while (round < rounds) {
+            if (round > 0 && budgetMillis > 0 && remainingMillis(deadline) <= 0) {
+                break;
+            }
+            int roundCount = rounds;
+            runConcurrently(survivors, candidate -> candidate.trainAndScore(series, head, tail,
+                    roundCount, budgetMillis > 0, deadline, isBoolean, isTimeStamp), executor, parallelism);
+            round++;
+
+            survivors.sort(Comparator.comparingDouble(candidate -> candidate.error));
+            if (round < rounds) {
+                survivors = new ArrayList<>(survivors.subList(0, (survivors.size() + 1) / 2));
+            }
+        }
+
+        Candidate best = survivors.get(0);
+        Template template = best.template;
+        long fineTuneMillis = budgetMillis > 0 ? remainingMillis(deadline) : 0;
+        if (budgetMillis == 0 || fineTuneMillis > 0) {
+            long budget = template.timeBudgetMillis;
+            template.timeBudgetMillis = fineTuneMillis;
+            try {
+                if (isTimeStamp) {
+                    template.neuralNetwork.updateTimeStamp(dataInput, head.length, template, isBoolean);
+                } else {
+                    template.neuralNetwork.update(dataInput, head.length, template, isBoolean);
+                }
+            } finally {
+                template.timeBudgetMillis = budget;
+            }
+        }
+
+        return new SearchResult(template, best.error, candidateCount, round);
+    }
+
+    /**
+     * Get the time left until a deadline, rounded up to whole milliseconds so that a fit with
+     * less than a millisecond left is still limited.
+     * @param deadline the deadline, in the time of System.nanoTime()
+     * @return the number of milliseconds left, or a number <= 0 if the deadline has passed
+     */
+    private static long remainingMillis(long deadline) {
+        long remainingNanos = deadline - System.nanoTime();
+        return remainingNanos <= 0 ? remainingNanos : (remainingNanos + 999_999L) / 1_000_000L;
+    }
+
+    /**
+     * Run the given action on every candidate, with at most parallelism candidates at the same time.
+     * @param candidates the candidates
+     * @param action the action to run on each candidate
+     * @param executor the executor that runs the actions
+     * @param parallelism the largest number of actions that run at the same time
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    private static void runConcurrently(List<Candidate> candidates, Consumer<Candidate> action,
+                                        ExecutorService executor, int parallelism) throws InterruptedException {
+        AtomicInteger next = new AtomicInteger();
+        Runnable worker = () -> {
+            for (int i = next.getAndIncrement(); i < candidates.size(); i = next.getAndIncrement()) {
+                action.accept(candidates.get(i));
+            }
+        };
+
+        int workers = Math.min(parallelism, candidates.size());
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < workers; i++) {
+            futures.add(executor.submit(worker));
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Search worker failed", e.getCause());
+            }
+        }
+    }
+
+    private static final class Candidate {
+        private final Template template;
+        private double error;
+
+        /*
+         ABSTRACTION FUNCTION:
+         - A candidate is a template being trained by the search, and error is the mean absolute
+         error of its forecast of the holdout values after its last round of training.
+
+         REPRESENTATION INVARIANT:
+         - template != null
+         - error >= 0 or error == Double.POSITIVE_INFINITY
+         */
+
+        private Candidate(Template template) {
+            this.template = template;
+            this.error = Double.POSITIVE_INFINITY;
+        }
+
+        /**
+         * Train the candidate for one round and score its forecast of the holdout values.
+         * A candidate that fails or diverges gets an infinite error. If the deadline has passed,
+         * the candidate is not trained and keeps the error of its last round.
+         * @param series the shared training series, which is not changed
+         * @param head the data input without the holdout values
+         * @param tail the holdout values
+         * @param rounds the number of rounds of the search
+         * @param hasDeadline whether training stops at the deadline
+         * @param deadline the end of the search, in the time of System.nanoTime()
+         * @param isBoolean whether the neural network is predicting a boolean
+         * @param isTimeStamp whether series holds the differences of head
+         */
+        private void trainAndScore(double[] series, double[] head, double[] tail, int rounds, boolean hasDeadline,
+                                   long deadline, boolean isBoolean, boolean isTimeStamp) {
+            long budgetMillis = hasDeadline ? remainingMillis(deadline) : 0;
+            if (hasDeadline && budgetMillis <= 0) {
+                return;
+            }
+            long budget = template.timeBudgetMillis;
+            try {
+                template.timeBudgetMillis = budgetMillis;
+                int iterations = (template.iteration + rounds - 1) / rounds;
+                template.neuralNetwork.train(series, template, iterations, isBoolean);
+
+                double[] predictions = isTimeStamp
+                        ? template.neuralNetwork.forecastTimeStamp(head, tail.length, isBoolean)
+                        : template.neuralNetwork.forecast(head, tail.length, isBoolean);
+                double sum = 0;
+                for (int i = 0; i < tail.length; i++) {
+                    sum += Math.abs(predictions[i] - tail[i]);
+                }
+                double mean = sum / tail.length;
+                error = mean < Double.POSITIVE_INFINITY ? mean : Double.POSITIVE_INFINITY;
+            } catch (RuntimeException e) {
+                error = Double.POSITIVE_INFINITY;
+            } finally {
+                template.timeBudgetMillis = budget;
+            }
+        }
+    }
+}
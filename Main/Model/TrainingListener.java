@@ -0,0 +1,28 @@
+package cpen221.mp3.Model;
+
+public interface TrainingListener {
+
+    /*
+     ABSTRACTION FUNCTION:
+     A training listener is notified by a neural network after every training
+     iteration and at the end of every call to fit.
+     */
+
+    /**
+     * Called after every training iteration.
+     * @param iteration the index of the iteration, starting at 0 for every call to fit
+     * @param cost the cost of the neural network before the iteration updated it
+     * @param gradientNorm the Euclidean norm of the gradients of all weights and biases
+     * @param elapsedNanos the time the iteration took
+     * @param forwardPasses the number of forward passes the iteration ran
+     */
+    void onIteration(int iteration, double cost, double gradientNorm, long elapsedNanos, long forwardPasses);
+
+    /**
+     * Called at the end of every call to fit.
+     * @param result why training stopped and how many iterations ran
+     * @param elapsedNanos the time the whole fit took
+     */
+    default void onFitEnd(TrainingResult result, long elapsedNanos) {
+    }
+}
@@ -0,0 +1,58 @@
+package cpen221.mp3.Model;
+
+public final class TrainingResult {
+    private final StopReason stopReason;
+    private final int iterations;
+    private final double cost;
+
+    /*
+     ABSTRACTION FUNCTION:
+     - A training result describes a call to fit: why it stopped, how many
+     iterations it ran and the cost of the neural network in its last iteration.
+
+     REPRESENTATION INVARIANT:
+     - stopReason != null
+     - iterations >= 0
+     */
+
+    /**
+     * Create a new training result.
+     * @param stopReason the reason training stopped
+     * @param iterations the number of iterations that ran
+     * @param cost the cost of the neural network in the last iteration, or NaN if no iteration ran
+     */
+    public TrainingResult(StopReason stopReason, int iterations, double cost) {
+        this.stopReason = stopReason;
+        this.iterations = iterations;
+        this.cost = cost;
+    }
+
+    /**
+     * Get the reason training stopped.
+     * @return the reason training stopped
+     */
+    public StopReason getStopReason() {
+        return stopReason;
+    }
+
+    /**
+     * Get the number of iterations that ran.
+     * @return the number of iterations that ran
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Get the cost of the neural network in the last iteration.
+     * @return the cost of the last iteration, or NaN if no iteration ran
+     */
+    public double getCost() {
+        return cost;
+    }
+
+    @Override
+    public String toString() {
+        return "TrainingResult{stopReason=" + stopReason + ", iterations=" + iterations + ", cost=" + cost + "}";
+    }
+}
@@ -0,0 +1,163 @@
+package cpen221.mp3.Model;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorSpecies;
+
+final class VectorKernels {
+    private static final VectorSpecies<Double> DOT_DOUBLES = DoubleVector.SPECIES_256;
+    private static final VectorSpecies<Float> DOT_FLOATS = FloatVector.SPECIES_128;
+    private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED;
+
+    /*
+     ABSTRACTION FUNCTION:
+     This class provides the kernels of LinearAlgebra on jdk.incubator.vector. LinearAlgebra
+     only loads it if the module is in the boot layer, so the runtime must be started with
+     --add-modules jdk.incubator.vector to use it.
+     Every kernel gives the same result as the scalar kernel of LinearAlgebra to the last bit,
+     so the results of a model do not depend on whether the module is present:
+     - a dot product keeps the four partial sums of the scalar kernel in the four lanes of one
+     vector, adds the rest of the slice to the first lane and adds the lanes in the same order.
+     - axpy and gemm work on every element independently and multiply and add separately,
+     without fused multiply-adds, so they round exactly as the scalar loops do.
+
+     REPRESENTATION INVARIANT:
+     - DOT_DOUBLES and DOT_FLOATS have four lanes
+     - This class has no other state.
+     */
+
+    private VectorKernels() {
+    }
+
+    /**
+     * Check whether the hardware runs vectors of the preferred species of doubles that are at
+     * least as wide as DOT_DOUBLES, so the kernels are faster than the scalar kernels.
+     * @return true if the kernels should be used
+     */
+    static boolean isSupported() {
+        return DOUBLES.vectorBitSize() >= DOT_DOUBLES.vectorBitSize();
+    }
+
+    /**
+     * Get the dot product of two slices of arrays, as LinearAlgebra.dot does.
+     * @param a the first array
+     * @param aOffset the index of the first element of the slice of a
+     * @param b the second array
+     * @param bOffset the index of the first element of the slice of b
+     * @param length the length of the slices
+     * @return the dot product of the two slices
+     * Pre-condition: both slices are within the bounds of their arrays
+     */
+    static double dot(double[] a, int aOffset, double[] b, int bOffset, int length) {
+        DoubleVector sums = DoubleVector.zero(DOT_DOUBLES);
+        int i = 0;
+        for (; i + 3 < length; i += 4) {
+            DoubleVector x = DoubleVector.fromArray(DOT_DOUBLES, a, aOffset + i);
+            DoubleVector y = DoubleVector.fromArray(DOT_DOUBLES, b, bOffset + i);
+            sums = sums.add(x.mul(y));
+        }
+        double sum0 = sums.lane(0);
+        for (; i < length; i++) {
+            sum0 += a[aOffset + i] * b[bOffset + i];
+        }
+        return (sum0 + sums.lane(1)) + (sums.lane(2) + sums.lane(3));
+    }
+
+    /**
+     * Add alpha times a slice of x to a slice of y, as LinearAlgebra.axpy does.
+     * @param alpha the factor of x
+     * @param x the array that is added
+     * @param xOffset the index of the first element of the slice of x
+     * @param y the array that is changed
+     * @param yOffset the index of the first element of the slice of y
+     * @param length the length of the slices
+     * Pre-condition: both slices are within the bounds of their arrays
+     */
+    static void axpy(double alpha, double[] x, int xOffset, double[] y, int yOffset, int length) {
+        int i = 0;
+        for (int bound = DOUBLES.loopBound(length); i < bound; i += DOUBLES.length()) {
+            DoubleVector product = DoubleVector.fromArray(DOUBLES, x, xOffset + i).mul(alpha);
+            DoubleVector.fromArray(DOUBLES, y, yOffset + i).add(product).intoArray(y, yOffset + i);
+        }
+        for (; i < length; i++) {
+            y[yOffset + i] += alpha * x[xOffset + i];
+        }
+    }
+
+    /**
+     * Get the dot product of two slices of float arrays, as LinearAlgebra.dot does.
+     * @param a the first array
+     * @param aOffset the index of the first element of the slice of a
+     * @param b the second array
+     * @param bOffset the index of the first element of the slice of b
+     * @param length the length of the slices
+     * @return the dot product of the two slices
+     * Pre-condition: both slices are within the bounds of their arrays
+     */
+    static float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        FloatVector sums = FloatVector.zero(DOT_FLOATS);
+        int i = 0;
+        for (; i + 3 < length; i += 4) {
+            FloatVector x = FloatVector.fromArray(DOT_FLOATS, a, aOffset + i);
+            FloatVector y = FloatVector.fromArray(DOT_FLOATS, b, bOffset + i);
+            sums = sums.add(x.mul(y));
+        }
+        float sum0 = sums.lane(0);
+        for (; i < length; i++) {
+            sum0 += a[aOffset + i] * b[bOffset + i];
+        }
+        return (sum0 + sums.lane(1)) + (sums.lane(2) + sums.lane(3));
+    }
+
+    /**
+     * Add alpha times a slice of x to a slice of y, for float arrays, as LinearAlgebra.axpy does.
+     * @param alpha the factor of x
+     * @param x the array that is added
+     * @param xOffset the index of the first element of the slice of x
+     * @param y the array that is changed
+     * @param yOffset the index of the first element of the slice of y
+     * @param length the length of the slices
+     * Pre-condition: both slices are within the bounds of their arrays
+     */
+    static void axpy(float alpha, float[] x, int xOffset, float[] y, int yOffset, int length) {
+        int i = 0;
+        for (int bound = FLOATS.loopBound(length); i < bound; i += FLOATS.length()) {
+            FloatVector product = FloatVector.fromArray(FLOATS, x, xOffset + i).mul(alpha);
+            FloatVector.fromArray(FLOATS, y, yOffset + i).add(product).intoArray(y, yOffset + i);
+        }
+        for (; i < length; i++) {
+            y[yOffset + i] += alpha * x[xOffset + i];
+        }
+    }
+
+    /**
+     * Add four inputs times their weights to an output for a block of rows, as the inner loop
+     * of LinearAlgebra.gemm does.
+     * @param c the output, which is changed
+     * @param rows the number of rows
+     * @param y0 the weight of a0
+     * @param a0 the first input
+     * @param y1 the weight of a1
+     * @param a1 the second input
+     * @param y2 the weight of a2
+     * @param a2 the third input
+     * @param y3 the weight of a3
+     * @param a3 the fourth input
+     * Pre-condition: every array has at least rows elements
+     */
+    static void addWeighted(double[] c, int rows, double y0, double[] a0, double y1, double[] a1,
+                            double y2, double[] a2, double y3, double[] a3) {
+        int n = 0;
+        for (int bound = DOUBLES.loopBound(rows); n < bound; n += DOUBLES.length()) {
+            DoubleVector sum = DoubleVector.fromArray(DOUBLES, a0, n).mul(y0)
+                    .add(DoubleVector.fromArray(DOUBLES, a1, n).mul(y1))
+                    .add(DoubleVector.fromArray(DOUBLES, a2, n).mul(y2))
+                    .add(DoubleVector.fromArray(DOUBLES, a3, n).mul(y3));
+            DoubleVector.fromArray(DOUBLES, c, n).add(sum).intoArray(c, n);
+        }
+        for (; n < rows; n++) {
+            c[n] += y0 * a0[n] + y1 * a1[n] + y2 * a2[n] + y3 * a3[n];
+        }
+    }
+}
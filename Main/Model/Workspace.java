@@ -0,0 +1,61 @@
+package cpen221.mp3.Model;
+
+import java.util.Arrays;
+
+public class Workspace {
+    final double[][] activations;
+    final double[][] gradients;
+    final double[][] weightGradients;
+    final double[][] biasGradients;
+    double cost;
+
+    /*
+     ABSTRACTION FUNCTION:
+     - A workspace holds the preallocated buffers of one forward and backward pass
+     through a neural network, so that the passes do not allocate.
+     - activations[0] is the input of the network and activations[l + 1] is the
+     output of layer l.
+     - gradients[l + 1] is the derivative of the cost with respect to activations[l + 1].
+     gradients[0] is null because the gradient of the input is never needed.
+     - weightGradients[l] and biasGradients[l] accumulate the gradients of layer l
+     over the data points that are backpropagated with this workspace, and cost
+     accumulates their cost.
+
+     REPRESENTATION INVARIANT:
+     - activations.length == gradients.length == number of layers + 1
+     - activations[l].length == gradients[l].length == size of the l-th layer of nodes, for l > 0
+     - gradients[0] == null
+     - weightGradients.length == biasGradients.length == number of layers
+     */
+
+    /**
+     * Create a new workspace for a neural network with the given layers.
+     * @param layers the layers of the neural network
+     * Pre-condition: layers.length > 0
+     */
+    Workspace(Layer[] layers) {
+        this.activations = new double[layers.length + 1][];
+        this.gradients = new double[layers.length + 1][];
+        this.weightGradients = new double[layers.length][];
+        this.biasGradients = new double[layers.length][];
+
+        this.activations[0] = new double[layers[0].getNodeSize()];
+        for (int l = 0; l < layers.length; l++) {
+            this.activations[l + 1] = new double[layers[l].getNextNodeSize()];
+            this.gradients[l + 1] = new double[layers[l].getNextNodeSize()];
+            this.weightGradients[l] = new double[layers[l].getNodeSize() * layers[l].getNextNodeSize()];
+            this.biasGradients[l] = new double[layers[l].getNextNodeSize()];
+        }
+    }
+
+    /**
+     * Reset the accumulated weight and bias gradients and cost to zero.
+     */
+    void clearGradients() {
+        cost = 0;
+        for (int l = 0; l < weightGradients.length; l++) {
+            Arrays.fill(weightGradients[l], 0);
+            Arrays.fill(biasGradients[l], 0);
+        }
+    }
+}
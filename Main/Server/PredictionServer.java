@@ -0,0 +1,395 @@
+package cpen221.mp3.Server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import cpen221.mp3.Model.ModelType;
+import cpen221.mp3.Model.PredictionJob;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * An HTTP server on localhost that predicts with a shared prediction service.
+ *
+ * A request is a line of the form {@code model=DOUBLE&steps=5&data=1.0,2.5,3.0,4.5,5.0}.
+ * POST /predict takes one request and answers with its predictions separated by commas.
+ * POST /batch-predict takes one request per line and answers with one line per request,
+ * holding its predictions or {@code error: } followed by the reason it failed.
+ * A request that cannot be parsed gets status 400, a request whose body is longer than
+ * MAX_BODY_BYTES gets status 413, and a request that is rejected because the service is
+ * overloaded gets status 503 and should be retried later.
+ *
+ * Start a server from the project directory with
+ * <pre>
+ *     mvn -B package -pl core -am -DskipTests
+ *     java -cp core/target/predictionnn-1.0-SNAPSHOT.jar cpen221.mp3.Server.PredictionServer 8080
+ * </pre>
+ * or, without Maven, with
+ * <pre>
+ *     javac --add-modules jdk.incubator.vector -d out $(find Main -name '*.java')
+ *     java -cp out cpen221.mp3.Server.PredictionServer 8080
+ * </pre>
+ * javac needs jdk.incubator.vector for VectorKernels. At run time the module is optional: with
+ * {@code java --add-modules jdk.incubator.vector} the kernels of LinearAlgebra use it.
+ * The system properties server.inferenceThreads, server.trainingThreads and server.queue set
+ * the number of inference threads, training threads and the capacity of each queue.
+ * main also turns on TCP_NODELAY for the HTTP server of the JVM with useTcpNoDelay; an
+ * application that creates a server itself should call it first.
+ */
+public class PredictionServer {
+    private static final int MAX_STEPS = 10000;
+    private static final int MAX_BODY_BYTES = 16 * 1024 * 1024;
+
+    private final HttpServer server;
+    private final ExecutorService exchangePool;
+    private final PredictionService service;
+
+    /*
+     ABSTRACTION FUNCTION:
+     - A prediction server answers the HTTP requests of server with service. exchangePool
+     only reads requests and hands them to service; the answer is sent by the thread that
+     completes the predictions, so no thread waits for a prediction.
+
+     REPRESENTATION INVARIANT:
+     - server, exchangePool and service are not null
+     - server is bound to the loopback address
+     */
+
+    /**
+     * Create a new prediction server on the loopback address. It does not accept requests until it is started.
+     * @param port the port of the server, or 0 for any free port
+     * @param service the service that predicts the requests
+     * @throws IOException if the server cannot be bound to the port
+     * Pre-condition: 0 <= port <= 65535, service != null
+     */
+    public PredictionServer(int port, PredictionService service) throws IOException {
+        this.service = service;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.exchangePool = Executors.newFixedThreadPool(2, task -> {
+            Thread thread = new Thread(task, "http-exchange");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server.setExecutor(exchangePool);
+        this.server.createContext("/predict", this::handlePredict);
+        this.server.createContext("/batch-predict", this::handleBatchPredict);
+    }
+
+    public static void main(String[] args) throws IOException {
+        useTcpNoDelay();
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        int processors = Runtime.getRuntime().availableProcessors();
+        PredictionService service = new PredictionService(
+                Integer.getInteger("server.inferenceThreads", processors),
+                Integer.getInteger("server.trainingThreads", Math.max(1, processors / 2)),
+                Integer.getInteger("server.queue", 256));
+        PredictionServer server = new PredictionServer(port, service);
+        server.start();
+        System.out.println("Listening on http://localhost:" + server.getPort());
+    }
+
+    /**
+     * Turn on TCP_NODELAY for the HTTP servers of this JVM by setting the system property
+     * sun.net.httpserver.nodelay, unless it is already set. The headers and body of an answer
+     * are written separately, so without it every answer waits for the delayed acknowledgement
+     * of the client, about 40 ms. The property is read once, so this must be called before the
+     * first HTTP server of the JVM is created, and it affects every HTTP server of the JVM.
+     */
+    public static void useTcpNoDelay() {
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    /**
+     * Start accepting requests.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stop accepting requests, wait at most the given time for the accepted requests and
+     * shut the prediction service down.
+     * @param timeoutMillis the largest number of milliseconds to wait
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    public void stop(long timeoutMillis) throws InterruptedException {
+        server.stop((int) Math.max(0, (timeoutMillis + 999) / 1000));
+        service.shutdown(timeoutMillis);
+        exchangePool.shutdown();
+    }
+
+    /**
+     * Get the port the server is bound to.
+     * @return the port of the server
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Get the prediction service of the server.
+     * @return the prediction service
+     */
+    public PredictionService getService() {
+        return service;
+    }
+
+    /**
+     * Write a prediction job as a request line of the server.
+     * @param job the prediction job
+     * @return the request line of the job
+     */
+    public static String format(PredictionJob job) {
+        StringBuilder line = new StringBuilder();
+        line.append("model=").append(job.getModel()).append("&steps=").append(job.getSteps()).append("&data=");
+        line.append(join(job.getDataInput()));
+        return line.toString();
+    }
+
+    /**
+     * Read a prediction job from a request line of the server.
+     * @param line the request line
+     * @return the prediction job of the line
+     * @throws IllegalArgumentException if the line is not a valid request
+     */
+    static PredictionJob parse(String line) {
+        ModelType model = null;
+        int steps = 0;
+        double[] dataInput = null;
+
+        for (String field : line.split("&")) {
+            int separator = field.indexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Field without a value: " + field);
+            }
+            String name = field.substring(0, separator);
+            String value = URLDecoder.decode(field.substring(separator + 1), StandardCharsets.UTF_8);
+            switch (name) {
+                case "model":
+                    model = ModelType.valueOf(value);
+                    break;
+                case "steps":
+                    steps = Integer.parseInt(value);
+                    break;
+                case "data":
+                    String[] values = value.split(",");
+                    dataInput = new double[values.length];
+                    for (int i = 0; i < values.length; i++) {
+                        dataInput[i] = Double.parseDouble(values[i].trim());
+                    }
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown field: " + name);
+            }
+        }
+
+        if (model == null || dataInput == null) {
+            throw new IllegalArgumentException("A request needs a model and data");
+        }
+        if (steps <= 0 || steps > MAX_STEPS) {
+            throw new IllegalArgumentException("steps must be between 1 and " + MAX_STEPS);
+        }
+        if (dataInput.length <= 4) {
+            throw new IllegalArgumentException("data needs more than 4 values");
+        }
+        return new PredictionJob(dataInput, steps, model);
+    }
+
+    /**
+     * Answer a request of /predict.
+     * @param exchange the exchange of the request
+     * @throws IOException if the request cannot be read or answered
+     */
+    private void handlePredict(HttpExchange exchange) throws IOException {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            respond(exchange, 405, "Only POST is supported");
+            return;
+        }
+
+        String body = readBody(exchange);
+        if (body == null) {
+            respond(exchange, 413, "A request can have at most " + MAX_BODY_BYTES + " bytes");
+            return;
+        }
+
+        PredictionJob job;
+        try {
+            job = parse(body.trim());
+        } catch (IllegalArgumentException e) {
+            respond(exchange, 400, String.valueOf(e.getMessage()));
+            return;
+        }
+
+        CompletableFuture<double[]> result;
+        try {
+            result = service.submit(job);
+        } catch (RejectedExecutionException e) {
+            respond(exchange, 503, "Overloaded, retry later");
+            return;
+        }
+
+        result.whenComplete((predictions, e) -> {
+            if (e == null) {
+                respondQuietly(exchange, 200, join(predictions));
+            } else {
+                Throwable cause = unwrap(e);
+                respondQuietly(exchange, statusOf(cause), String.valueOf(cause.getMessage()));
+            }
+        });
+    }
+
+    /**
+     * Answer a request of /batch-predict. The requests of the batch are predicted independently,
+     * so a request that fails or is rejected does not affect the others.
+     * @param exchange the exchange of the request
+     * @throws IOException if the request cannot be read or answered
+     */
+    private void handleBatchPredict(HttpExchange exchange) throws IOException {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            respond(exchange, 405, "Only POST is supported");
+            return;
+        }
+
+        String requests = readBody(exchange);
+        if (requests == null) {
+            respond(exchange, 413, "A batch can have at most " + MAX_BODY_BYTES + " bytes");
+            return;
+        }
+
+        List<CompletableFuture<double[]>> results = new ArrayList<>();
+        for (String line : requests.split("\n")) {
+            if (line.isBlank()) {
+                continue;
+            }
+            CompletableFuture<double[]> result;
+            try {
+                result = service.submit(parse(line.trim()));
+            } catch (IllegalArgumentException | RejectedExecutionException e) {
+                result = CompletableFuture.failedFuture(e);
+            }
+            results.add(result);
+        }
+        if (results.isEmpty()) {
+            respond(exchange, 400, "A batch needs at least one request");
+            return;
+        }
+
+        CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])).whenComplete((ignored, failure) -> {
+            StringBuilder body = new StringBuilder();
+            for (CompletableFuture<double[]> result : results) {
+                try {
+                    body.append(join(result.join()));
+                } catch (CompletionException e) {
+                    body.append("error: ").append(unwrap(e).getMessage());
+                }
+                body.append('\n');
+            }
+            respondQuietly(exchange, 200, body.toString().stripTrailing());
+        });
+    }
+
+    /**
+     * Read the body of a request, without reading more than MAX_BODY_BYTES + 1 bytes.
+     * @param exchange the exchange of the request
+     * @return the body of the request, or null if it is longer than MAX_BODY_BYTES
+     * @throws IOException if the body cannot be read
+     */
+    private static String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream body = exchange.getRequestBody()) {
+            byte[] bytes = body.readNBytes(MAX_BODY_BYTES + 1);
+            if (bytes.length > MAX_BODY_BYTES) {
+                return null;
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Answer a request with a plain text body.
+     * @param exchange the exchange of the request
+     * @param status the status code of the answer
+     * @param text the body of the answer, without its final line break
+     * @throws IOException if the answer cannot be sent
+     */
+    private static void respond(HttpExchange exchange, int status, String text) throws IOException {
+        byte[] body = (text + "\n").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        if (status == 503) {
+            exchange.getResponseHeaders().set("Retry-After", "1");
+        }
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(body);
+        }
+    }
+
+    /**
+     * Answer a request with a plain text body, closing the exchange if the answer cannot be sent,
+     * because the client has gone away.
+     * @param exchange the exchange of the request
+     * @param status the status code of the answer
+     * @param text the body of the answer, without its final line break
+     */
+    private static void respondQuietly(HttpExchange exchange, int status, String text) {
+        try {
+            respond(exchange, status, text);
+        } catch (IOException e) {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Get the status code of a failed prediction.
+     * @param cause the reason the prediction failed
+     * @return 503 if the prediction was rejected, 400 if its request was invalid and 500 otherwise,
+     *         also if the prediction failed with an error
+     */
+    private static int statusOf(Throwable cause) {
+        if (cause instanceof RejectedExecutionException) {
+            return 503;
+        }
+        if (cause instanceof IllegalArgumentException) {
+            return 400;
+        }
+        return 500;
+    }
+
+    /**
+     * Get the exception thrown by a prediction from the exception of its future.
+     * @param e the exception of the future
+     * @return the cause of e if e only wraps it, and e otherwise
+     */
+    private static Throwable unwrap(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    }
+
+    /**
+     * Join values with commas.
+     * @param values the values
+     * @return the values separated by commas
+     */
+    private static String join(double[] values) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                text.append(',');
+            }
+            text.append(values[i]);
+        }
+        return text.toString();
+    }
+}
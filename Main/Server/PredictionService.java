@@ -0,0 +1,192 @@
+package cpen221.mp3.Server;
+
+import cpen221.mp3.Model.NNInterface;
+import cpen221.mp3.Model.PredictionJob;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class PredictionService {
+    private final ThreadPoolExecutor inferencePool;
+    private final ThreadPoolExecutor trainingPool;
+    private final ConcurrentHashMap<PredictionJob, CompletableFuture<double[]>> inFlight;
+    private final AtomicLong completed;
+    private final AtomicLong coalesced;
+    private final AtomicLong rejected;
+    private final AtomicLong trained;
+
+    /*
+     ABSTRACTION FUNCTION:
+     - A prediction service predicts jobs in the background with NNInterface, whose cache
+     of trained neural networks is the pool of warm networks shared by every request.
+     - A job whose neural network is cached is predicted on inferencePool. Otherwise it is
+     handed to trainingPool, which trains the network, caches it and predicts the job, so
+     slow trainings never hold up the predictions of warm networks.
+     - inFlight holds the result of every job that is being predicted, so that a request for
+     the same job waits for that result instead of predicting it again.
+     - Both pools have bounded queues. A job that does not fit in the queue of its pool is
+     rejected instead of waiting, so a caller learns at once that the service is overloaded.
+     - completed counts the jobs that were predicted, coalesced counts the requests that
+     waited for another request of the same job, rejected counts the jobs that were rejected
+     and trained counts the jobs that were handed to trainingPool.
+
+     REPRESENTATION INVARIANT:
+     - inferencePool and trainingPool have bounded queues and reject tasks when they are full
+     - every future of inFlight is removed from inFlight once it is complete
+     */
+
+    /**
+     * Create a new prediction service.
+     * @param inferenceThreads the number of threads that predict with trained neural networks
+     * @param trainingThreads the number of threads that train neural networks
+     * @param queueCapacity the largest number of jobs that wait for each pool
+     * Pre-condition: inferenceThreads > 0, trainingThreads > 0, queueCapacity > 0
+     */
+    public PredictionService(int inferenceThreads, int trainingThreads, int queueCapacity) {
+        this.inferencePool = createPool("inference", inferenceThreads, queueCapacity);
+        this.trainingPool = createPool("training", trainingThreads, queueCapacity);
+        this.inFlight = new ConcurrentHashMap<>();
+        this.completed = new AtomicLong();
+        this.coalesced = new AtomicLong();
+        this.rejected = new AtomicLong();
+        this.trained = new AtomicLong();
+    }
+
+    /**
+     * Predict the given job in the background. If the same job is already being predicted,
+     * its result is returned instead.
+     * @param job the prediction job
+     * @return the predictions of the job, which may be shared with other requests and must not be changed;
+     *         it completes exceptionally with a RejectedExecutionException if the job is rejected
+     *         while it waits for training, or with the exception of the prediction if it fails
+     * @throws RejectedExecutionException if the queue of inference jobs is full
+     */
+    public CompletableFuture<double[]> submit(PredictionJob job) {
+        CompletableFuture<double[]> result = new CompletableFuture<>();
+        CompletableFuture<double[]> running = inFlight.putIfAbsent(job, result);
+        if (running != null) {
+            coalesced.incrementAndGet();
+            return running;
+        }
+
+        result.whenComplete((predictions, e) -> inFlight.remove(job, result));
+        try {
+            inferencePool.execute(() -> predict(job, result));
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            result.completeExceptionally(e);
+            throw e;
+        }
+        return result;
+    }
+
+    /**
+     * Stop accepting jobs and wait for the accepted jobs to finish.
+     * @param timeoutMillis the largest number of milliseconds to wait for each pool
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    public void shutdown(long timeoutMillis) throws InterruptedException {
+        inferencePool.shutdown();
+        inferencePool.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+        trainingPool.shutdown();
+        trainingPool.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Get the number of jobs that were predicted.
+     * @return the number of completed jobs
+     */
+    public long getCompleted() {
+        return completed.get();
+    }
+
+    /**
+     * Get the number of requests that waited for the result of an identical job.
+     * @return the number of coalesced requests
+     */
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+
+    /**
+     * Get the number of jobs that were rejected because a queue was full.
+     * @return the number of rejected jobs
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    /**
+     * Get the number of jobs whose neural network was not cached and had to be trained.
+     * @return the number of jobs handed to the training threads
+     */
+    public long getTrained() {
+        return trained.get();
+    }
+
+    /**
+     * Predict a job with a cached neural network, or hand it to the training threads.
+     * Any exception or error of the prediction completes the result, so that no request waits
+     * for it forever and the job is removed from inFlight.
+     * @param job the prediction job
+     * @param result receives the predictions of the job
+     */
+    private void predict(PredictionJob job, CompletableFuture<double[]> result) {
+        try {
+            double[] predictions = NNInterface.predictIfTrained(job.getDataInput(), job.getSteps(), job.getModel());
+            if (predictions != null) {
+                complete(result, predictions);
+                return;
+            }
+
+            trained.incrementAndGet();
+            trainingPool.execute(() -> {
+                try {
+                    complete(result, NNInterface.predict(job.getDataInput(), job.getSteps(), job.getModel()));
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            result.completeExceptionally(e);
+        } catch (Throwable e) {
+            result.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Complete the result of a job with its predictions.
+     * @param result the result of the job
+     * @param predictions the predictions of the job
+     */
+    private void complete(CompletableFuture<double[]> result, double[] predictions) {
+        completed.incrementAndGet();
+        result.complete(predictions);
+    }
+
+    /**
+     * Create a pool of daemon threads with a bounded queue that rejects tasks when it is full.
+     * @param name the prefix of the names of the threads
+     * @param threads the number of threads
+     * @param queueCapacity the largest number of tasks that wait in the queue
+     * @return the pool
+     */
+    private static ThreadPoolExecutor createPool(String name, int threads, int queueCapacity) {
+        AtomicInteger count = new AtomicInteger();
+        ThreadFactory factory = task -> {
+            Thread thread = new Thread(task, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), factory, new ThreadPoolExecutor.AbortPolicy());
+    }
+}
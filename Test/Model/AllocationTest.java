@@ -0,0 +1,86 @@
+package cpen221.mp3.Model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Steady-state training iterations, forward passes and forecast steps allocate nothing.
+ * Each check compares a call with twice the work of another, so the allocations made once per
+ * call cancel out: the windows and TrainingResult of a fit and the snapshot it publishes at its
+ * end, and the copy of the last window, the returned predictions and the PredictEvent of a forecast.
+ * Training runs on one thread, because the shards of several threads are run with invokeAll,
+ * which allocates its futures every iteration.
+ */
+public class AllocationTest {
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private static final int ITERATIONS = 500;
+    private static final int STEPS = 50;
+
+    @ParameterizedTest
+    @EnumSource(Precision.class)
+    public void trainingIterationsAllocateNothing(Precision precision) {
+        double[] dataInput = TestSeries.series(200, 1);
+        Template template = new Template(new int[]{4, 3, 1}, 0.0001, ITERATIONS);
+        template.precision = precision;
+        // A snapshot is an immutable copy of the parameters, so publishing one always allocates it.
+        // Only the snapshot at the end of each fit is kept here; the allocation of the periodic
+        // snapshots is one copy of the parameters per publishInterval iterations, by design.
+        template.publishInterval = 0;
+        NeuralNetwork network = template.neuralNetwork;
+        network.train(dataInput, template, false);
+
+        long single = allocatedBytes(() -> network.train(dataInput, template, ITERATIONS, false));
+        long twice = allocatedBytes(() -> network.train(dataInput, template, 2 * ITERATIONS, false));
+        assertEquals(single, twice, "bytes allocated by " + ITERATIONS + " more iterations");
+    }
+
+    @Test
+    public void forecastStepsAllocateNothing() {
+        double[] dataInput = TestSeries.series(200, 2);
+        NeuralNetwork network = new NeuralNetwork(new int[]{4, 3, 1});
+        network.forecast(dataInput, STEPS, false);
+
+        long single = allocatedBytes(() -> network.forecast(dataInput, STEPS, false));
+        long twice = allocatedBytes(() -> network.forecast(dataInput, 2 * STEPS, false));
+        assertEquals(STEPS * Double.BYTES, twice - single, "bytes allocated by " + STEPS + " more steps");
+    }
+
+    @Test
+    public void forwardPassesAllocateNothing() {
+        Layer[] layers = {new Layer(4, 3), new Layer(3, 1)};
+        double[][] activations = {TestSeries.series(4, 3), new double[3], new double[1]};
+        Runnable passes = () -> {
+            for (int i = 0; i < ITERATIONS; i++) {
+                for (int l = 0; l < layers.length; l++) {
+                    layers[l].getOutput(activations[l], activations[l + 1], false);
+                }
+            }
+        };
+        passes.run();
+
+        long single = allocatedBytes(passes);
+        long twice = allocatedBytes(() -> {
+            passes.run();
+            passes.run();
+        });
+        assertEquals(single, twice, "bytes allocated by " + ITERATIONS + " more forward passes");
+    }
+
+    /**
+     * Get the number of bytes the current thread allocates while running an operation.
+     * @param operation the operation
+     * @return the bytes allocated by the operation
+     */
+    private static long allocatedBytes(Runnable operation) {
+        long thread = Thread.currentThread().getId();
+        long before = THREADS.getThreadAllocatedBytes(thread);
+        operation.run();
+        return THREADS.getThreadAllocatedBytes(thread) - before;
+    }
+}
@@ -0,0 +1,102 @@
+package cpen221.mp3.Model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class BatchedForwardTest {
+    private static final int LENGTH = 700;
+    private static final double TOLERANCE = 1e-12;
+
+    /**
+     * The batched outputs of every overlapping window of a series, over more rows than one tile,
+     * are the outputs of a forward pass of each window on its own.
+     */
+    @ParameterizedTest
+    @EnumSource(WeightLayout.class)
+    public void overlappingWindowsMatchOneRowAtATime(WeightLayout layout) {
+        NeuralNetwork network = trained(new Template(new int[]{4, 8, 1}, 0.0001, 50, layout));
+        double[] series = TestSeries.series(LENGTH, 16);
+        int rows = LENGTH - 4 + 1 - 3;
+
+        double[] outputs = network.forwardBatch(series, 3, 1, rows, false);
+
+        assertEquals(rows, outputs.length);
+        for (int row = 0; row < rows; row++) {
+            double[] window = Arrays.copyOfRange(series, 3 + row, 3 + row + 4);
+            assertEquals(network.forecastWindow(window, 1, false)[0], outputs[row], TOLERANCE, "row " + row);
+        }
+    }
+
+    /**
+     * Rows with a stride of a whole window hold every output of a network with a horizon in order.
+     */
+    @Test
+    public void stridedRowsMatchOneRowAtATime() {
+        NeuralNetwork network = trained(new Template(new int[]{3, 6, 2}, 0.001, 50, WeightLayout.ROW_MAJOR, 2));
+        double[] series = TestSeries.series(LENGTH, 17);
+        int rows = LENGTH / 3;
+
+        double[] outputs = network.forwardBatch(series, 0, 3, rows, false);
+
+        for (int row = 0; row < rows; row++) {
+            double[] expected = network.forecastWindow(Arrays.copyOfRange(series, row * 3, row * 3 + 3), 2, false);
+            assertEquals(expected[0], outputs[2 * row], TOLERANCE, "row " + row);
+            assertEquals(expected[1], outputs[2 * row + 1], TOLERANCE, "row " + row);
+        }
+    }
+
+    /**
+     * Batched boolean outputs fall on the same side of one half as the forecasts of each window.
+     */
+    @Test
+    public void booleanRowsMatchOneRowAtATime() {
+        Template template = TestSeries.template(ModelType.BOOLEAN);
+        template.iteration = 200;
+        NeuralNetwork network = TestSeries.train(template, ModelType.BOOLEAN, TestSeries.booleanSeries(LENGTH));
+        double[] series = TestSeries.booleanSeries(LENGTH);
+        int rows = LENGTH - 2;
+
+        double[] outputs = network.forwardBatch(series, 0, 1, rows, true);
+
+        for (int row = 0; row < rows; row++) {
+            double[] window = Arrays.copyOfRange(series, row, row + 3);
+            assertEquals(network.forecastWindow(window, 1, true)[0], outputs[row] > 0.5 ? 1 : 0, "row " + row);
+        }
+    }
+
+    /**
+     * The batched score of a series is the mean absolute error of the output of each window
+     * against the expected output windows of training, which start one value after the window.
+     */
+    @Test
+    public void batchedScoreMatchesOneRowAtATime() {
+        NeuralNetwork network = trained(TestSeries.template(ModelType.DOUBLE));
+        double[] series = TestSeries.series(LENGTH, 18);
+        int windows = LENGTH - 4 + 1;
+
+        double cost = 0;
+        for (int i = 0; i < windows; i++) {
+            double prediction = network.forecastWindow(Arrays.copyOfRange(series, i, i + 4), 1, false)[0];
+            cost += Math.abs(prediction - series[i + 1]);
+        }
+
+        assertEquals(cost / windows, network.score(series, false), TOLERANCE);
+    }
+
+    /**
+     * Train the neural network of a template on a short series for a few iterations.
+     * @param template the template of the neural network
+     * @return the trained neural network
+     */
+    private static NeuralNetwork trained(Template template) {
+        template.iteration = 50;
+        return template.neuralNetwork.getHorizon() > 0
+                ? TestSeries.train(template, ModelType.DOUBLE_TIMESTAMP, TestSeries.series(120, 19))
+                : TestSeries.train(template, ModelType.DOUBLE, TestSeries.series(120, 19));
+    }
+}
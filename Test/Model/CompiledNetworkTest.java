@@ -0,0 +1,71 @@
+package cpen221.mp3.Model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CompiledNetworkTest {
+    private static final int LENGTH = 200;
+    private static final int STEPS = 10;
+
+    /**
+     * The compiled forward pass of a trained network gives the same forecasts to the last bit as
+     * the interpreted forward pass of its snapshot, for the input window of every prefix of the
+     * data input.
+     */
+    @ParameterizedTest
+    @EnumSource(ModelType.class)
+    public void compiledForecastsMatchInterpretedForecastsToTheBit(ModelType model) {
+        boolean isBoolean = model == ModelType.BOOLEAN;
+        boolean isTimeStamp = model == ModelType.DOUBLE_TIMESTAMP;
+        double[] dataInput = isBoolean ? TestSeries.booleanSeries(LENGTH) : TestSeries.series(LENGTH, 9);
+        Template template = TestSeries.template(model);
+        template.iteration = 500;
+        ParameterSnapshot snapshot = TestSeries.train(template, model, dataInput).getSnapshot();
+
+        CompiledNetwork compiled = snapshot.compile(isBoolean);
+        assertTrue(compiled.isCompiled());
+        assertTrue(snapshot.isCompiled());
+
+        int inputSize = snapshot.getInputSize();
+        for (int length = inputSize + 1; length <= LENGTH; length++) {
+            double[] prefix = Arrays.copyOf(dataInput, length);
+            double[] window = isTimeStamp ? ForwardPass.lastDifferenceWindow(prefix, inputSize)
+                    : ForwardPass.lastWindow(prefix, inputSize);
+            assertArrayEquals(bits(snapshot.interpret(window.clone(), STEPS, isBoolean)),
+                    bits(compiled.forecastWindow(window, STEPS)), model + " window of length " + length);
+        }
+    }
+
+    @Test
+    public void releasedCompilationsCanBeClaimedAgain() {
+        double[] dataInput = TestSeries.series(LENGTH, 9);
+        Template template = TestSeries.template(ModelType.DOUBLE);
+        template.iteration = 10;
+        ParameterSnapshot snapshot = TestSeries.train(template, ModelType.DOUBLE, dataInput).getSnapshot();
+
+        assertTrue(snapshot.claimCompilation());
+        assertFalse(snapshot.claimCompilation());
+        snapshot.releaseCompilation();
+        assertTrue(snapshot.claimCompilation());
+    }
+
+    /**
+     * Get the raw bits of every value of an array.
+     * @param values the values
+     * @return the raw bits of the values
+     */
+    private static long[] bits(double[] values) {
+        long[] bits = new long[values.length];
+        for (int i = 0; i < values.length; i++) {
+            bits[i] = Double.doubleToRawLongBits(values[i]);
+        }
+        return bits;
+    }
+}
@@ -0,0 +1,145 @@
+package cpen221.mp3.Model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LinearAlgebraTest {
+    private static final int MAX_LENGTH = 70;
+
+    @Test
+    public void testsRunWithVectorKernels() {
+        assertTrue(LinearAlgebra.usesVectorKernels() || !VectorKernels.isSupported());
+    }
+
+    @Test
+    public void vectorDotMatchesScalarDot() {
+        Random random = new Random(1);
+        for (int length = 0; length < MAX_LENGTH; length++) {
+            double[] a = randomDoubles(random, length + 3);
+            double[] b = randomDoubles(random, length + 5);
+            assertEquals(Double.doubleToLongBits(scalarDot(a, 3, b, 5, length)),
+                    Double.doubleToLongBits(VectorKernels.dot(a, 3, b, 5, length)), "length " + length);
+            assertEquals(Double.doubleToLongBits(scalarDot(a, 3, b, 5, length)),
+                    Double.doubleToLongBits(LinearAlgebra.dot(a, 3, b, 5, length)), "length " + length);
+
+            float[] c = randomFloats(random, length + 1);
+            float[] d = randomFloats(random, length);
+            assertEquals(Float.floatToIntBits(scalarDot(c, 1, d, 0, length)),
+                    Float.floatToIntBits(VectorKernels.dot(c, 1, d, 0, length)), "length " + length);
+        }
+    }
+
+    @Test
+    public void vectorAxpyMatchesScalarAxpy() {
+        Random random = new Random(2);
+        for (int length = 0; length < MAX_LENGTH; length++) {
+            double[] x = randomDoubles(random, length + 2);
+            double[] y = randomDoubles(random, length + 1);
+            double[] expected = y.clone();
+            double alpha = random.nextGaussian();
+            for (int i = 0; i < length; i++) {
+                expected[1 + i] += alpha * x[2 + i];
+            }
+            VectorKernels.axpy(alpha, x, 2, y, 1, length);
+            assertArrayEquals(expected, y, 0, "length " + length);
+
+            float[] u = randomFloats(random, length);
+            float[] v = randomFloats(random, length + 3);
+            float[] expectedFloats = v.clone();
+            float beta = (float) random.nextGaussian();
+            for (int i = 0; i < length; i++) {
+                expectedFloats[3 + i] += beta * u[i];
+            }
+            VectorKernels.axpy(beta, u, 0, v, 3, length);
+            assertArrayEquals(expectedFloats, v, 0, "length " + length);
+        }
+    }
+
+    @Test
+    public void vectorGemmMatchesScalarGemm() {
+        Random random = new Random(3);
+        int k = 7;
+        int m = 5;
+        for (int rows = 1; rows < MAX_LENGTH; rows += 3) {
+            double[][] a = new double[k][];
+            for (int i = 0; i < k; i++) {
+                a[i] = randomDoubles(random, rows);
+            }
+            double[] w = randomDoubles(random, k * m);
+            double[] bias = randomDoubles(random, m);
+            double[][] c = new double[m][rows];
+            LinearAlgebra.gemm(a, rows, k, w, m, 1, bias, m, c);
+
+            for (int j = 0; j < m; j++) {
+                double[] expected = new double[rows];
+                Arrays.fill(expected, bias[j]);
+                for (int n = 0; n < rows; n++) {
+                    for (int i = 0; i + 3 < k; i += 4) {
+                        expected[n] += w[i * m + j] * a[i][n] + w[(i + 1) * m + j] * a[i + 1][n]
+                                + w[(i + 2) * m + j] * a[i + 2][n] + w[(i + 3) * m + j] * a[i + 3][n];
+                    }
+                    for (int i = k / 4 * 4; i < k; i++) {
+                        expected[n] += w[i * m + j] * a[i][n];
+                    }
+                }
+                assertArrayEquals(expected, c[j], 0, "rows " + rows + ", output " + j);
+            }
+        }
+    }
+
+    /**
+     * The dot product of the scalar kernel of LinearAlgebra, with four partial sums.
+     */
+    private static double scalarDot(double[] a, int aOffset, double[] b, int bOffset, int length) {
+        double[] sums = new double[4];
+        int i = 0;
+        for (; i + 3 < length; i += 4) {
+            for (int k = 0; k < 4; k++) {
+                sums[k] += a[aOffset + i + k] * b[bOffset + i + k];
+            }
+        }
+        for (; i < length; i++) {
+            sums[0] += a[aOffset + i] * b[bOffset + i];
+        }
+        return (sums[0] + sums[1]) + (sums[2] + sums[3]);
+    }
+
+    /**
+     * The dot product of the scalar kernel of LinearAlgebra for float arrays, with four partial sums.
+     */
+    private static float scalarDot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        float[] sums = new float[4];
+        int i = 0;
+        for (; i + 3 < length; i += 4) {
+            for (int k = 0; k < 4; k++) {
+                sums[k] += a[aOffset + i + k] * b[bOffset + i + k];
+            }
+        }
+        for (; i < length; i++) {
+            sums[0] += a[aOffset + i] * b[bOffset + i];
+        }
+        return (sums[0] + sums[1]) + (sums[2] + sums[3]);
+    }
+
+    private static double[] randomDoubles(Random random, int length) {
+        double[] values = new double[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = random.nextGaussian();
+        }
+        return values;
+    }
+
+    private static float[] randomFloats(Random random, int length) {
+        float[] values = new float[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = (float) random.nextGaussian();
+        }
+        return values;
+    }
+}
@@ -0,0 +1,182 @@
+package cpen221.mp3.Model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ModelFileTest {
+    private static final int STEPS = 10;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void roundTripIsBitExact() throws IOException {
+        Template template = new Template(new int[]{4, 3, 1}, 0.000135, 2000);
+        template.fineTuneIteration = 77;
+        template.fineTuneContext = 48;
+        double[] dataInput = TestSeries.series(200, 3);
+        template.neuralNetwork.train(dataInput, template, false);
+        template.precision = Precision.SINGLE;
+        template.threads = 3;
+        template.minImprovement = 1e-7;
+        template.patience = 40;
+        template.targetCost = 0.01;
+        template.timeBudgetMillis = 2500;
+        template.publishInterval = 25;
+        template.optimizer = new AdamOptimizer(0.8, 0.99, 1e-7);
+        template.schedule = LearningRateSchedule.step(100, 0.5);
+
+        Template loaded = saveAndOpen(template, ModelType.DOUBLE);
+
+        assertSameTemplate(template, loaded);
+        assertArrayEquals(bits(template.neuralNetwork.forecast(dataInput, STEPS, false)),
+                bits(loaded.neuralNetwork.forecast(dataInput, STEPS, false)));
+    }
+
+    @Test
+    public void roundTripIsBitExactWithHorizon() throws IOException {
+        Template template = new Template(new int[]{3, 6, 2}, 0.02, 2000, WeightLayout.ROW_MAJOR, 2);
+        double[] dataInput = TestSeries.series(200, 4);
+        template.neuralNetwork.trainTimeStamp(dataInput, template, false);
+
+        Template loaded = saveAndOpen(template, ModelType.DOUBLE_TIMESTAMP);
+
+        assertSameTemplate(template, loaded);
+        assertArrayEquals(bits(template.neuralNetwork.forecastTimeStamp(dataInput, STEPS, false)),
+                bits(loaded.neuralNetwork.forecastTimeStamp(dataInput, STEPS, false)));
+    }
+
+    @Test
+    public void optimizersAndSchedulesRoundTrip() throws IOException {
+        Optimizer[] optimizers = {new SgdOptimizer(), new MomentumOptimizer(0.75),
+                new RmsPropOptimizer(0.95, 1e-6), new AdamOptimizer()};
+        LearningRateSchedule[] schedules = {LearningRateSchedule.constant(), LearningRateSchedule.step(10, 0.9),
+                LearningRateSchedule.exponential(0.999), LearningRateSchedule.cosine(0.01)};
+        for (int i = 0; i < optimizers.length; i++) {
+            Template template = new Template(new int[]{3, 1}, 0.5, 100);
+            template.optimizer = optimizers[i];
+            template.schedule = schedules[i];
+            assertSameTemplate(template, saveAndOpen(template, ModelType.BOOLEAN));
+        }
+    }
+
+    @Test
+    public void unknownOptimizersAreRejected() {
+        Template template = new Template(new int[]{3, 1}, 0.5, 100);
+        template.optimizer = new Optimizer() {
+            @Override
+            public int getStateSize() {
+                return 0;
+            }
+
+            @Override
+            public void update(double[] parameters, double[] gradients, double[] state, double learnRate,
+                               long step) {
+            }
+
+            @Override
+            public void update(float[] parameters, float[] gradients, float[] state, float learnRate, long step) {
+            }
+        };
+        assertThrows(IllegalArgumentException.class,
+                () -> ModelFile.save(template, ModelType.BOOLEAN, directory.resolve("unknown.model")));
+    }
+
+    @Test
+    public void hugeLayerCountsAreRejected() throws IOException {
+        Path path = directory.resolve("huge.model");
+        ModelFile.save(new Template(new int[]{3, 1}, 0.5, 100), ModelType.BOOLEAN, path);
+        byte[] bytes = Files.readAllBytes(path);
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).putInt(124, 0x40000001);
+        Files.write(path, bytes);
+        assertThrows(IOException.class, () -> ModelFile.open(path));
+    }
+
+    @Test
+    public void olderVersionsAreRejected() throws IOException {
+        Path path = directory.resolve("old.model");
+        ModelFile.save(new Template(new int[]{3, 1}, 0.5, 100), ModelType.BOOLEAN, path);
+        byte[] bytes = Files.readAllBytes(path);
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).putInt(4, 2);
+        Files.write(path, bytes);
+        assertThrows(IOException.class, () -> ModelFile.open(path));
+    }
+
+    /**
+     * Save a template to a file in the temporary directory and open it again.
+     * @param template the template to save
+     * @param model the model of the template, which the opened file must report
+     * @return the template of the opened file
+     */
+    private Template saveAndOpen(Template template, ModelType model) throws IOException {
+        Path path = directory.resolve(model + ".model");
+        ModelFile.save(template, model, path);
+        ModelFile file = ModelFile.open(path);
+        assertEquals(model, file.getModel());
+        assertArrayEquals(template.layerSizes, file.getLayerSizes());
+        return file.getTemplate();
+    }
+
+    /**
+     * Check that a loaded template has the same hyperparameters and the same parameters to the
+     * last bit as the saved template.
+     * @param expected the saved template
+     * @param actual the loaded template
+     */
+    private static void assertSameTemplate(Template expected, Template actual) {
+        assertArrayEquals(expected.layerSizes, actual.layerSizes);
+        assertEquals(Double.doubleToRawLongBits(expected.learnRate), Double.doubleToRawLongBits(actual.learnRate));
+        assertEquals(expected.iteration, actual.iteration);
+        assertEquals(expected.fineTuneIteration, actual.fineTuneIteration);
+        assertEquals(expected.fineTuneContext, actual.fineTuneContext);
+        assertEquals(expected.horizon, actual.horizon);
+        assertEquals(expected.precision, actual.precision);
+        assertEquals(expected.threads, actual.threads);
+        assertEquals(Double.doubleToRawLongBits(expected.minImprovement),
+                Double.doubleToRawLongBits(actual.minImprovement));
+        assertEquals(expected.patience, actual.patience);
+        assertEquals(Double.doubleToRawLongBits(expected.targetCost), Double.doubleToRawLongBits(actual.targetCost));
+        assertEquals(expected.timeBudgetMillis, actual.timeBudgetMillis);
+        assertEquals(expected.publishInterval, actual.publishInterval);
+        assertEquals(expected.optimizer, actual.optimizer);
+        assertEquals(expected.schedule, actual.schedule);
+        assertEquals(expected.neuralNetwork.getLayout(), actual.neuralNetwork.getLayout());
+        assertEquals(expected.neuralNetwork.getHorizon(), actual.neuralNetwork.getHorizon());
+        assertArrayEquals(parameters(expected.neuralNetwork), parameters(actual.neuralNetwork));
+    }
+
+    /**
+     * Get the bits of the weights and biases of a neural network in the order of its layout.
+     * @param network the neural network
+     * @return the raw bits of every parameter
+     */
+    private static long[] parameters(NeuralNetwork network) {
+        double[] parameters = new double[network.getParameterCount()];
+        network.writeParameters(DoubleBuffer.wrap(parameters));
+        return bits(parameters);
+    }
+
+    /**
+     * Get the raw bits of every value of an array.
+     * @param values the values
+     * @return the raw bits of the values
+     */
+    private static long[] bits(double[] values) {
+        long[] bits = new long[values.length];
+        for (int i = 0; i < values.length; i++) {
+            bits[i] = Double.doubleToRawLongBits(values[i]);
+        }
+        return bits;
+    }
+}
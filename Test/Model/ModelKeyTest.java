@@ -0,0 +1,72 @@
+package cpen221.mp3.Model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ModelKeyTest {
+    private static final double[] DATA_INPUT = TestSeries.series(40, 11);
+
+    @Test
+    public void equalTemplatesGiveEqualKeys() {
+        ModelKey first = new ModelKey(DATA_INPUT, ModelType.DOUBLE, template());
+        ModelKey second = new ModelKey(DATA_INPUT.clone(), ModelType.DOUBLE, template());
+        assertEquals(first, second);
+        assertEquals(first.hashCode(), second.hashCode());
+    }
+
+    @Test
+    public void everyTrainingSettingIsPartOfTheKey() {
+        ModelKey key = new ModelKey(DATA_INPUT, ModelType.DOUBLE, template());
+        List<Consumer<Template>> changes = List.of(
+                template -> template.learnRate *= 2,
+                template -> template.iteration++,
+                template -> template.fineTuneIteration++,
+                template -> template.fineTuneContext++,
+                template -> template.threads++,
+                template -> template.minImprovement = 1e-6,
+                template -> template.patience = 10,
+                template -> template.targetCost = 0.01,
+                template -> template.timeBudgetMillis = 1000,
+                template -> template.precision = Precision.SINGLE,
+                template -> template.optimizer = new AdamOptimizer(),
+                template -> template.schedule = LearningRateSchedule.cosine(0.1),
+                template -> template.publishInterval++);
+        for (int i = 0; i < changes.size(); i++) {
+            Template changed = template();
+            changes.get(i).accept(changed);
+            assertNotEquals(key, new ModelKey(DATA_INPUT, ModelType.DOUBLE, changed), "change " + i);
+        }
+
+        Template rowMajor = new Template(new int[]{4, 3, 1}, 0.000135, 1000, WeightLayout.ROW_MAJOR);
+        assertNotEquals(key, new ModelKey(DATA_INPUT, ModelType.DOUBLE, rowMajor));
+        assertNotEquals(key, new ModelKey(DATA_INPUT, ModelType.DOUBLE_TIMESTAMP, template()));
+    }
+
+    @Test
+    public void onlyTheSameTemplateIsExtended() {
+        double[] prefix = Arrays.copyOf(DATA_INPUT, 30);
+        ModelKey key = new ModelKey(DATA_INPUT, ModelType.DOUBLE, template());
+        assertTrue(key.isExtensionOf(new ModelKey(prefix, ModelType.DOUBLE, template())));
+
+        Template threads = template();
+        threads.threads = 2;
+        assertFalse(key.isExtensionOf(new ModelKey(prefix, ModelType.DOUBLE, threads)));
+        assertFalse(key.isExtensionOf(key));
+    }
+
+    /**
+     * Create the template every key of this test starts from.
+     * @return a new template
+     */
+    private static Template template() {
+        return new Template(new int[]{4, 3, 1}, 0.000135, 1000);
+    }
+}
@@ -0,0 +1,113 @@
+package cpen221.mp3.Model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ModelStoreTest {
+    private static final int[] SHAPE = {4, 3, 1};
+    private static final int PARAMETERS = 19;
+    private static final int SLAB_SIZE = 5 * PARAMETERS;
+    private static final int STEPS = 10;
+    private static final double TOLERANCE = 1e-12;
+    private static final double[] DATA_INPUT = TestSeries.series(100, 15);
+
+    @Test
+    public void storedModelsForecastLikeTheirNetworks() {
+        ModelStore store = new ModelStore(SLAB_SIZE);
+        NeuralNetwork network = trained(SHAPE, 1);
+        Template template = new Template(new int[]{3, 6, 1}, 0.02, 100);
+        NeuralNetwork timeStamp = TestSeries.train(template, ModelType.DOUBLE_TIMESTAMP, DATA_INPUT);
+
+        int id = store.add(network);
+        int timeStampId = store.add(timeStamp);
+
+        assertArrayEquals(network.forecast(DATA_INPUT, STEPS, false),
+                store.forecast(id, DATA_INPUT, STEPS, false), TOLERANCE);
+        assertArrayEquals(timeStamp.forecastTimeStamp(DATA_INPUT, STEPS, false),
+                store.forecastTimeStamp(timeStampId, DATA_INPUT, STEPS, false), TOLERANCE);
+        assertArrayEquals(TestSeries.parameters(network), TestSeries.parameters(store.get(id)));
+        assertArrayEquals(new int[]{3, 6, 1}, store.getLayerSizes(timeStampId));
+    }
+
+    @Test
+    public void replacedModelsTakeTheNewParameters() {
+        ModelStore store = new ModelStore(SLAB_SIZE);
+        int first = store.add(trained(SHAPE, 1));
+        NeuralNetwork second = trained(SHAPE, 2);
+        int other = store.add(second);
+
+        NeuralNetwork retrained = trained(SHAPE, 3);
+        store.replace(first, retrained);
+
+        assertArrayEquals(TestSeries.parameters(retrained), TestSeries.parameters(store.get(first)));
+        assertArrayEquals(TestSeries.parameters(second), TestSeries.parameters(store.get(other)));
+        assertThrows(IllegalArgumentException.class, () -> store.replace(first, trained(new int[]{3, 1}, 1)));
+    }
+
+    @Test
+    public void modelsArePackedIntoSlabs() {
+        ModelStore store = new ModelStore(SLAB_SIZE);
+        long empty = store.getMemoryBytes();
+        for (int i = 0; i < 5; i++) {
+            store.add(trained(SHAPE, i));
+            assertEquals(empty + (long) Double.BYTES * SLAB_SIZE, store.getMemoryBytes());
+        }
+        store.add(trained(SHAPE, 5));
+        assertEquals(empty + 2L * Double.BYTES * SLAB_SIZE, store.getMemoryBytes());
+
+        int[] large = {16, 8, 1};
+        store.add(new NeuralNetwork(large));
+        assertEquals(empty + (2L * SLAB_SIZE + 16 * 8 + 8 + 8 + 1) * Double.BYTES, store.getMemoryBytes());
+        assertEquals(7, store.size());
+    }
+
+    @Test
+    public void removedModelsLeaveTheirPlaceToTheNextModelOfTheirShape() {
+        ModelStore store = new ModelStore(SLAB_SIZE);
+        NeuralNetwork[] networks = new NeuralNetwork[5];
+        for (int i = 0; i < networks.length; i++) {
+            networks[i] = trained(SHAPE, i);
+            store.add(networks[i]);
+        }
+        long full = store.getMemoryBytes();
+
+        store.remove(2);
+        NeuralNetwork replacement = trained(SHAPE, 9);
+        int id = store.add(replacement);
+
+        assertEquals(5, id);
+        assertEquals(full, store.getMemoryBytes());
+        assertArrayEquals(TestSeries.parameters(replacement), TestSeries.parameters(store.get(id)));
+        for (int i : new int[]{0, 1, 3, 4}) {
+            assertArrayEquals(TestSeries.parameters(networks[i]), TestSeries.parameters(store.get(i)));
+        }
+
+        store.remove(0);
+        store.add(trained(new int[]{3, 1}, 1));
+        assertEquals(full + (long) Double.BYTES * SLAB_SIZE, store.getMemoryBytes());
+    }
+
+    @Test
+    public void removedModelsCannotBeRemovedOrReplacedAgain() {
+        ModelStore store = new ModelStore(SLAB_SIZE);
+        int id = store.add(trained(SHAPE, 1));
+        store.remove(id);
+        assertThrows(IllegalArgumentException.class, () -> store.remove(id));
+        assertThrows(IllegalArgumentException.class, () -> store.replace(id, trained(SHAPE, 2)));
+    }
+
+    /**
+     * Create a neural network trained for a few iterations on a series of the given seed.
+     * @param layerSizes the number of nodes in each layer
+     * @param seed the seed of the series
+     * @return the trained neural network
+     */
+    private static NeuralNetwork trained(int[] layerSizes, long seed) {
+        Template template = new Template(layerSizes, 0.0001, 50);
+        template.neuralNetwork.train(TestSeries.series(60, seed), template, false);
+        return template.neuralNetwork;
+    }
+}
@@ -0,0 +1,29 @@
+package cpen221.mp3.Model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class NeuralNetworkTest {
+
+    @Test
+    public void backpropagationMatchesFiniteDifferences() {
+        NeuralNetwork network = new NeuralNetwork(new int[]{4, 3, 1});
+        double difference = network.checkGradients(TestSeries.series(50, 1), false);
+        assertTrue(difference < 1e-4, "gradients differ by " + difference);
+    }
+
+    @Test
+    public void backpropagationMatchesFiniteDifferencesWithSigmoid() {
+        NeuralNetwork network = new NeuralNetwork(new int[]{3, 1});
+        double difference = network.checkGradients(TestSeries.booleanSeries(50), true);
+        assertTrue(difference < 1e-4, "gradients differ by " + difference);
+    }
+
+    @Test
+    public void backpropagationMatchesFiniteDifferencesWithHorizon() {
+        NeuralNetwork network = new NeuralNetwork(new int[]{3, 6, 2}, WeightLayout.ROW_MAJOR, 2);
+        double difference = network.checkGradients(TestSeries.series(50, 2), false);
+        assertTrue(difference < 1e-4, "gradients differ by " + difference);
+    }
+}
@@ -0,0 +1,48 @@
+package cpen221.mp3.Model;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OptimizerTest {
+
+    /**
+     * Adam with a cosine schedule reaches at most the final cost of plain gradient descent
+     * with the template of NNInterface, in a tenth of its iterations.
+     */
+    @ParameterizedTest
+    @EnumSource(ModelType.class)
+    public void adamConvergesInATenthOfTheIterations(ModelType model) {
+        double[] dataInput = model == ModelType.BOOLEAN ? TestSeries.booleanSeries(200) : TestSeries.series(200, 5);
+        Template sgd;
+        Template adam;
+        switch (model) {
+            case BOOLEAN:
+                sgd = new Template(new int[]{3, 1}, 0.5, 5000);
+                adam = new Template(new int[]{3, 1}, 0.3, 500);
+                break;
+            case DOUBLE:
+                sgd = new Template(new int[]{4, 3, 1}, 0.000135, 65000);
+                adam = new Template(new int[]{4, 3, 1}, 0.003, 6500);
+                break;
+            default:
+                sgd = new Template(new int[]{3, 6, 1}, 0.02, 20000);
+                adam = new Template(new int[]{3, 6, 1}, 0.003, 2000);
+                break;
+        }
+        adam.optimizer = new AdamOptimizer();
+        adam.schedule = LearningRateSchedule.cosine(0.01);
+
+        double sgdCost = train(sgd, dataInput, model).getCost();
+        double adamCost = train(adam, dataInput, model).getCost();
+        assertTrue(adamCost <= sgdCost, "Adam cost " + adamCost + " > gradient descent cost " + sgdCost);
+    }
+
+    private static TrainingResult train(Template template, double[] dataInput, ModelType model) {
+        if (model == ModelType.DOUBLE_TIMESTAMP) {
+            return template.neuralNetwork.trainTimeStamp(dataInput, template, false);
+        }
+        return template.neuralNetwork.train(dataInput, template, model == ModelType.BOOLEAN);
+    }
+}
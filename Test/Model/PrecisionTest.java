@@ -0,0 +1,108 @@
+package cpen221.mp3.Model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PrecisionTest {
+    private static final int LENGTH = 200;
+    private static final int STEPS = 10;
+    private static final double COST_TOLERANCE = 0.05;
+    private static final double FORECAST_TOLERANCE = 0.02;
+
+    /**
+     * Training with single precision gives a cost on the data input that is at most COST_TOLERANCE
+     * above the cost of training with double precision, and forecasts that differ from the double
+     * precision forecasts by at most FORECAST_TOLERANCE times the range of the data input.
+     */
+    @ParameterizedTest
+    @EnumSource(ModelType.class)
+    public void singlePrecisionIsAsAccurateAsDoublePrecision(ModelType model) {
+        boolean isBoolean = model == ModelType.BOOLEAN;
+        boolean isTimeStamp = model == ModelType.DOUBLE_TIMESTAMP;
+        double[] dataInput = isBoolean ? TestSeries.booleanSeries(LENGTH) : TestSeries.series(LENGTH, 8);
+
+        NeuralNetwork doubleNetwork = train(model, Precision.DOUBLE, dataInput);
+        NeuralNetwork singleNetwork = train(model, Precision.SINGLE, dataInput);
+
+        double doubleCost = isTimeStamp ? doubleNetwork.scoreTimeStamp(dataInput, isBoolean)
+                : doubleNetwork.score(dataInput, isBoolean);
+        double singleCost = isTimeStamp ? singleNetwork.scoreTimeStamp(dataInput, isBoolean)
+                : singleNetwork.score(dataInput, isBoolean);
+        double[] doubleForecast = isTimeStamp ? doubleNetwork.forecastTimeStamp(dataInput, STEPS, isBoolean)
+                : doubleNetwork.forecast(dataInput, STEPS, isBoolean);
+        double[] singleForecast = isTimeStamp ? singleNetwork.forecastTimeStamp(dataInput, STEPS, isBoolean)
+                : singleNetwork.forecast(dataInput, STEPS, isBoolean);
+        double difference = 0;
+        for (int i = 0; i < STEPS; i++) {
+            difference = Math.max(difference, Math.abs(singleForecast[i] - doubleForecast[i]));
+        }
+
+        assertTrue(singleCost <= (1 + COST_TOLERANCE) * doubleCost,
+                model + " single precision cost " + singleCost + " is more than " + COST_TOLERANCE * 100
+                        + "% above the double precision cost " + doubleCost);
+        double bound = FORECAST_TOLERANCE * Math.max(TestSeries.range(dataInput), 1);
+        assertTrue(difference <= bound,
+                model + " single precision forecasts differ by " + difference + ", more than " + bound);
+    }
+
+    /**
+     * Two single-precision fits continue the optimizer state of each other, so they give the same
+     * parameters to the last bit as one fit with as many iterations.
+     */
+    @ParameterizedTest
+    @EnumSource(WeightLayout.class)
+    public void singlePrecisionFitsKeepTheOptimizerState(WeightLayout layout) {
+        double[] dataInput = TestSeries.series(LENGTH, 9);
+
+        Template twice = adamTemplate(150, layout);
+        twice.neuralNetwork.train(dataInput, twice, false);
+        twice.neuralNetwork.train(dataInput, twice, false);
+
+        Template once = adamTemplate(300, layout);
+        once.neuralNetwork.train(dataInput, once, false);
+
+        assertArrayEquals(TestSeries.parameters(once.neuralNetwork), TestSeries.parameters(twice.neuralNetwork));
+    }
+
+    /**
+     * Single-precision fits run on one thread, so a template with more threads is rejected.
+     */
+    @Test
+    public void singlePrecisionRejectsMoreThanOneThread() {
+        Template template = adamTemplate(10, WeightLayout.COLUMN_MAJOR);
+        template.threads = 2;
+        assertThrows(IllegalArgumentException.class,
+                () -> template.neuralNetwork.train(TestSeries.series(LENGTH, 9), template, false));
+    }
+
+    /**
+     * Train a network of the template NNInterface uses for a model with the given precision.
+     * @param model the model
+     * @param precision the precision of the training
+     * @param dataInput the data input
+     * @return the trained neural network
+     */
+    private static NeuralNetwork train(ModelType model, Precision precision, double[] dataInput) {
+        Template template = TestSeries.template(model);
+        template.precision = precision;
+        return TestSeries.train(template, model, dataInput);
+    }
+
+    /**
+     * Create a single-precision template with an Adam optimizer.
+     * @param iteration the number of iterations of a fit
+     * @param layout the order in which the weights are stored
+     * @return the template
+     */
+    private static Template adamTemplate(int iteration, WeightLayout layout) {
+        Template template = new Template(new int[]{4, 3, 1}, 0.001, iteration, layout);
+        template.precision = Precision.SINGLE;
+        template.optimizer = new AdamOptimizer();
+        return template;
+    }
+}
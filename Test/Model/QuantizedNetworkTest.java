@@ -0,0 +1,49 @@
+package cpen221.mp3.Model;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class QuantizedNetworkTest {
+    private static final int LENGTH = 200;
+    private static final int STEPS = 10;
+    private static final double TOLERANCE = 0.02;
+
+    /**
+     * The int8 forecasts of every prefix of the data input of at least 50 values differ from the
+     * forecasts of the double-precision network by at most TOLERANCE times the range of the data
+     * input, with either quantization scale.
+     */
+    @ParameterizedTest
+    @EnumSource(ModelType.class)
+    public void quantizedForecastsAreCloseToDoublePrecision(ModelType model) {
+        boolean isBoolean = model == ModelType.BOOLEAN;
+        boolean isTimeStamp = model == ModelType.DOUBLE_TIMESTAMP;
+        double[] dataInput = isBoolean ? TestSeries.booleanSeries(LENGTH) : TestSeries.series(LENGTH, 5);
+        NeuralNetwork network = TestSeries.train(TestSeries.template(model), model, dataInput);
+        double bound = TOLERANCE * Math.max(TestSeries.range(dataInput), 1);
+
+        for (QuantizationScale scale : QuantizationScale.values()) {
+            QuantizedNetwork quantized = network.quantize(scale);
+            double error = 0;
+            for (int length = 50; length <= LENGTH; length += 10) {
+                double[] prefix = Arrays.copyOf(dataInput, length);
+                double[] expected = isTimeStamp ? network.forecastTimeStamp(prefix, STEPS, isBoolean)
+                        : network.forecast(prefix, STEPS, isBoolean);
+                double[] actual = isTimeStamp ? quantized.forecastTimeStamp(prefix, STEPS, isBoolean)
+                        : quantized.forecast(prefix, STEPS, isBoolean);
+                assertEquals(STEPS, actual.length);
+                for (int i = 0; i < STEPS; i++) {
+                    error = Math.max(error, Math.abs(actual[i] - expected[i]));
+                }
+            }
+
+            assertTrue(error <= bound, model + " " + scale + " int8 forecasts differ by " + error
+                    + ", more than " + bound);
+        }
+    }
+}
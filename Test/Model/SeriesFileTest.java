@@ -0,0 +1,183 @@
+package cpen221.mp3.Model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SeriesFileTest {
+    private static final int VALUES = 100_000;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void csvFieldsAreTrimmedAndBlankLinesSkipped() throws IOException {
+        Path csv = write("series.csv", "time,value\r\n0, 1.5\r\n1,\"-2.25\"\r\n\r\n2,3e2\n   \n3,0.1");
+        assertArrayEquals(new double[]{1.5, -2.25, 300, 0.1}, new CsvSeriesReader(csv, 1, true).read());
+        assertArrayEquals(new double[]{0, 1, 2, 3}, new CsvSeriesReader(csv, 0, true).read());
+    }
+
+    @Test
+    public void csvNumbersParseLikeDoubleParseDouble() throws IOException {
+        double[] values = values(VALUES);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            text.append(i).append(',').append(values[i]).append('\n');
+        }
+        Path csv = write("values.csv", text.toString());
+
+        assertArrayEquals(bits(values), bits(new CsvSeriesReader(csv, 1, false).read()));
+    }
+
+    @Test
+    public void malformedCsvLinesAreRejected() throws IOException {
+        Path notANumber = write("text.csv", "1\n2\nabc\n4\n");
+        IOException error = assertThrows(IOException.class, () -> new CsvSeriesReader(notANumber, 0, false).read());
+        assertTrue(error.getMessage().startsWith("Line 3 "), error.getMessage());
+
+        Path missingColumn = write("columns.csv", "1,2\n3\n");
+        error = assertThrows(IOException.class, () -> new CsvSeriesReader(missingColumn, 1, false).read());
+        assertTrue(error.getMessage().startsWith("Line 2 "), error.getMessage());
+
+        Path emptyField = write("empty.csv", "1,\n");
+        assertThrows(IOException.class, () -> new CsvSeriesReader(emptyField, 1, false).read());
+    }
+
+    @Test
+    public void csvFilesConvertToMappedFiles() throws IOException {
+        double[] values = values(10_000);
+        StringBuilder text = new StringBuilder("value\n");
+        for (double value : values) {
+            text.append(value).append('\n');
+        }
+        Path csv = write("convert.csv", text.toString());
+
+        for (Precision precision : Precision.values()) {
+            Path binary = directory.resolve(precision + ".bin");
+            assertEquals(values.length, new CsvSeriesReader(csv, 0, true).convert(binary, precision));
+            MappedSeriesSource series = MappedSeriesSource.open(binary, precision);
+            assertEquals(precision, series.getPrecision());
+            assertEquals(values.length, series.length());
+            for (int i = 0; i < values.length; i++) {
+                double expected = precision == Precision.DOUBLE ? values[i] : (float) values[i];
+                assertEquals(expected, series.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void mappedFilesHoldTheWrittenSeries() throws IOException {
+        double[] values = values(VALUES);
+        Path binary = directory.resolve("series.bin");
+        MappedSeriesSource.write(SeriesSource.of(values), binary, Precision.DOUBLE);
+        MappedSeriesSource series = MappedSeriesSource.open(binary, Precision.DOUBLE);
+
+        assertEquals((long) VALUES * Double.BYTES, Files.size(binary));
+        double[] read = new double[VALUES - 10];
+        series.read(10, read, 0, read.length);
+        for (int i = 0; i < read.length; i++) {
+            assertEquals(values[10 + i], read[i]);
+        }
+        assertEquals(values[VALUES - 1], series.get(VALUES - 1));
+    }
+
+    @Test
+    public void mappedFilesOfTheWrongSizeAreRejected() throws IOException {
+        Path binary = directory.resolve("odd.bin");
+        Files.write(binary, new byte[Double.BYTES + 3]);
+        assertThrows(IOException.class, () -> MappedSeriesSource.open(binary, Precision.DOUBLE));
+        assertThrows(IOException.class, () -> MappedSeriesSource.open(binary, Precision.SINGLE));
+
+        Path empty = directory.resolve("empty.bin");
+        Files.write(empty, new byte[0]);
+        assertEquals(0, MappedSeriesSource.open(empty, Precision.DOUBLE).length());
+    }
+
+    @Test
+    public void trainingOnAMappedFileMatchesTrainingOnAnArray() throws IOException {
+        double[] values = TestSeries.series(300, 21);
+        Path binary = directory.resolve("train.bin");
+        MappedSeriesSource.write(SeriesSource.of(values), binary, Precision.DOUBLE);
+        MappedSeriesSource series = MappedSeriesSource.open(binary, Precision.DOUBLE);
+
+        Template array = TestSeries.template(ModelType.DOUBLE);
+        array.iteration = 200;
+        Template mapped = TestSeries.template(ModelType.DOUBLE);
+        mapped.iteration = 200;
+        mapped.neuralNetwork = array.neuralNetwork.copy();
+
+        array.neuralNetwork.train(values, array, false);
+        mapped.neuralNetwork.train(series, mapped, false);
+
+        assertArrayEquals(bits(TestSeries.parameters(array.neuralNetwork)),
+                bits(TestSeries.parameters(mapped.neuralNetwork)));
+        assertArrayEquals(bits(array.neuralNetwork.forecast(values, 10, false)),
+                bits(mapped.neuralNetwork.forecast(series, 10, false)));
+    }
+
+    /**
+     * Write a text file in the temporary directory.
+     * @param name the name of the file
+     * @param text the contents of the file
+     * @return the path of the file
+     */
+    private Path write(String name, String text) throws IOException {
+        Path path = directory.resolve(name);
+        Files.write(path, text.getBytes(StandardCharsets.ISO_8859_1));
+        return path;
+    }
+
+    /**
+     * Create values of every magnitude that a series file may hold, including integers,
+     * short decimals, numbers with 17 significant digits, very large and subnormal numbers.
+     * @param count the number of values
+     * @return the values
+     */
+    private static double[] values(int count) {
+        Random random = new Random(22);
+        double[] values = new double[count];
+        for (int i = 0; i < count; i++) {
+            switch (i % 5) {
+                case 0:
+                    values[i] = random.nextInt(2000) - 1000;
+                    break;
+                case 1:
+                    values[i] = (random.nextInt(200000) - 100000) / 100.0;
+                    break;
+                case 2:
+                    values[i] = random.nextGaussian();
+                    break;
+                case 3:
+                    values[i] = Double.longBitsToDouble(random.nextLong() & 0x7FEFFFFFFFFFFFFFL);
+                    break;
+                default:
+                    values[i] = -Double.MIN_VALUE * random.nextInt(1000);
+                    break;
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Get the raw bits of every value of an array.
+     * @param values the values
+     * @return the raw bits of the values
+     */
+    private static long[] bits(double[] values) {
+        long[] bits = new long[values.length];
+        for (int i = 0; i < values.length; i++) {
+            bits[i] = Double.doubleToRawLongBits(values[i]);
+        }
+        return bits;
+    }
+}
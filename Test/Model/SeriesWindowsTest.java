@@ -0,0 +1,119 @@
+package cpen221.mp3.Model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class SeriesWindowsTest {
+    private static final double[] SERIES = TestSeries.series(30, 14);
+
+    @Test
+    public void inputWindowsMatchTheWindowMatrix() {
+        for (int width = 1; width <= 5; width++) {
+            for (int start = 0; start <= 6; start += 3) {
+                double[] recent = Arrays.copyOfRange(SERIES, start, SERIES.length);
+                assertSameWindows(inputMatrix(recent, width), new SeriesWindows(SERIES, start, width, 0));
+            }
+        }
+    }
+
+    @Test
+    public void outputWindowsMatchTheWindowMatrix() {
+        for (int width = 1; width <= 5; width++) {
+            for (int start = 0; start <= 6; start += 3) {
+                double[] recent = Arrays.copyOfRange(SERIES, start, SERIES.length);
+                assertSameWindows(outputMatrix(recent, width), new SeriesWindows(SERIES, start, width, 1));
+            }
+        }
+    }
+
+    @Test
+    public void differencedWindowsMatchTheTimeStampMatrices() {
+        double[] differences = new double[SERIES.length - 1];
+        for (int i = 0; i < differences.length; i++) {
+            differences[i] = SERIES[i + 1] - SERIES[i];
+        }
+        double[] view = SeriesWindows.difference(SERIES, 0);
+        assertArrayEquals(differences, view);
+        assertSameWindows(inputMatrix(differences, 3), new SeriesWindows(view, 0, 3, 0));
+        assertSameWindows(outputMatrix(differences, 1), new SeriesWindows(view, 0, 1, 1));
+    }
+
+    @Test
+    public void columnsHoldOneValueOfConsecutiveWindows() {
+        int width = 4;
+        double[][] matrix = inputMatrix(SERIES, width);
+        SeriesWindows windows = new SeriesWindows(SeriesSource.of(SERIES), 0, width, 0, matrix.length);
+        double[] column = new double[10];
+        for (int index = 0; index < width; index++) {
+            windows.copyColumn(5, index, column, column.length);
+            for (int i = 0; i < column.length; i++) {
+                assertEquals(matrix[5 + i][index], column[i]);
+            }
+        }
+    }
+
+    @Test
+    public void floatCopyHoldsEveryWindow() {
+        for (int shift = 0; shift <= 4; shift++) {
+            SeriesWindows windows = new SeriesWindows(SERIES, 3, 2, shift);
+            float[] values = windows.toFloat();
+            for (int i = 0; i < windows.size(); i++) {
+                for (int j = 0; j < windows.getWidth(); j++) {
+                    assertEquals((float) windows.get(i, j), values[windows.floatOffset(i) + j]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Check that a view holds the windows of a matrix.
+     * @param expected one row for each window
+     * @param actual the view of the windows
+     */
+    private static void assertSameWindows(double[][] expected, SeriesWindows actual) {
+        assertEquals(expected.length, actual.size());
+        double[] window = new double[actual.getWidth()];
+        for (int i = 0; i < expected.length; i++) {
+            actual.copyWindow(i, window);
+            assertArrayEquals(expected[i], window, "window " + i);
+            for (int j = 0; j < window.length; j++) {
+                assertEquals(expected[i][j], actual.get(i, j));
+            }
+        }
+    }
+
+    /**
+     * Build the input windows of a series as a matrix, one row for each window.
+     * @param series the values of the series
+     * @param width the number of values in each window
+     * @return the input windows
+     */
+    private static double[][] inputMatrix(double[] series, int width) {
+        double[][] matrix = new double[series.length - width + 1][width];
+        for (int i = 0; i < matrix.length; i++) {
+            System.arraycopy(series, i, matrix[i], 0, width);
+        }
+        return matrix;
+    }
+
+    /**
+     * Build the expected output windows of a series as a matrix, one row for each window.
+     * Each window starts one value after the input window of the same index, and a window
+     * that would run past the end of the series holds the first values of the series.
+     * @param series the values of the series
+     * @param width the number of values in each window
+     * @return the expected output windows
+     */
+    private static double[][] outputMatrix(double[] series, int width) {
+        double[][] matrix = new double[series.length - width + 1][width];
+        for (int i = 0; i < matrix.length; i++) {
+            int from = i + 1 + width > series.length ? 0 : i + 1;
+            System.arraycopy(series, from, matrix[i], 0, width);
+        }
+        return matrix;
+    }
+}
@@ -0,0 +1,73 @@
+package cpen221.mp3.Model;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+public class ShardedTrainingTest {
+    private static final int LENGTH = 120;
+    private static final int ITERATIONS = 300;
+    private static final int THREADS = 3;
+    private static final double TOLERANCE = 1e-9;
+
+    /**
+     * Training on THREADS shards gives the parameters of training on one thread, up to the
+     * rounding of adding the gradients of the shards in a different order.
+     */
+    @ParameterizedTest
+    @EnumSource(ModelType.class)
+    public void shardedTrainingMatchesOneThread(ModelType model) {
+        double[] dataInput = dataInput(model);
+        Template oneThread = template(model, 1);
+        NeuralNetwork sharded = oneThread.neuralNetwork.copy();
+
+        TestSeries.train(oneThread, model, dataInput);
+        Template threads = template(model, THREADS);
+        threads.neuralNetwork = sharded;
+        TestSeries.train(threads, model, dataInput);
+
+        assertArrayEquals(TestSeries.parameters(oneThread.neuralNetwork), TestSeries.parameters(sharded),
+                TOLERANCE);
+    }
+
+    /**
+     * The gradients of the shards are added in shard order, so two sharded fits from the same
+     * parameters give the same parameters to the last bit.
+     */
+    @ParameterizedTest
+    @EnumSource(ModelType.class)
+    public void shardedTrainingIsDeterministic(ModelType model) {
+        double[] dataInput = dataInput(model);
+        Template first = template(model, THREADS);
+        Template second = template(model, THREADS);
+        second.neuralNetwork = first.neuralNetwork.copy();
+
+        TestSeries.train(first, model, dataInput);
+        TestSeries.train(second, model, dataInput);
+
+        assertArrayEquals(TestSeries.parameters(first.neuralNetwork), TestSeries.parameters(second.neuralNetwork));
+    }
+
+    /**
+     * Create the data input of a model.
+     * @param model the model
+     * @return the data input
+     */
+    private static double[] dataInput(ModelType model) {
+        return model == ModelType.BOOLEAN ? TestSeries.booleanSeries(LENGTH) : TestSeries.series(LENGTH, 12);
+    }
+
+    /**
+     * Create the template NNInterface uses for a model with fewer iterations and the given threads.
+     * @param model the model
+     * @param threads the number of threads of a fit
+     * @return a new template
+     */
+    private static Template template(ModelType model, int threads) {
+        Template template = TestSeries.template(model);
+        template.iteration = ITERATIONS;
+        template.threads = threads;
+        return template;
+    }
+}
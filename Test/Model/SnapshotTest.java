@@ -0,0 +1,78 @@
+package cpen221.mp3.Model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SnapshotTest {
+    private static final int STEPS = 10;
+    private static final double[] DATA_INPUT = TestSeries.series(200, 20);
+
+    /**
+     * A snapshot forecasts the same values before, during and after the neural network trains.
+     */
+    @Test
+    public void snapshotsNeverChange() {
+        Template template = template(500);
+        NeuralNetwork network = template.neuralNetwork;
+        ParameterSnapshot before = network.getSnapshot();
+        double[] expected = before.forecast(DATA_INPUT, STEPS, false);
+
+        network.train(DATA_INPUT, template, false);
+
+        assertArrayEquals(expected, before.forecast(DATA_INPUT, STEPS, false));
+        assertTrue(network.getSnapshot().getVersion() > before.getVersion());
+    }
+
+    /**
+     * While one thread trains, another thread reads snapshots whose versions never decrease and
+     * that each forecast the same finite values every time, and sees more than one of them.
+     */
+    @Test
+    public void readersSeeConsistentSnapshotsWhileTraining() throws Exception {
+        Template template = template(20000);
+        template.publishInterval = 10;
+        NeuralNetwork network = template.neuralNetwork;
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<TrainingResult> training = executor.submit(() -> network.train(DATA_INPUT, template, false));
+
+            long firstVersion = network.getSnapshot().getVersion();
+            long lastVersion = firstVersion;
+            while (!training.isDone()) {
+                ParameterSnapshot snapshot = network.getSnapshot();
+                assertTrue(snapshot.getVersion() >= lastVersion,
+                        "version " + snapshot.getVersion() + " after " + lastVersion);
+                lastVersion = snapshot.getVersion();
+
+                double[] first = snapshot.forecast(DATA_INPUT, STEPS, false);
+                for (double prediction : first) {
+                    assertTrue(Double.isFinite(prediction), "forecast " + prediction);
+                }
+                assertArrayEquals(first, snapshot.forecast(DATA_INPUT, STEPS, false));
+            }
+
+            assertEquals(StopReason.ITERATIONS, training.get().getStopReason());
+            assertTrue(lastVersion > firstVersion, "no snapshot was published while training");
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Create a template of the double model.
+     * @param iteration the number of iterations of a fit
+     * @return a new template
+     */
+    private static Template template(int iteration) {
+        Template template = TestSeries.template(ModelType.DOUBLE);
+        template.iteration = iteration;
+        return template;
+    }
+}
@@ -0,0 +1,62 @@
+package cpen221.mp3.Model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StopReasonTest {
+    private static final double[] DATA_INPUT = TestSeries.series(100, 13);
+
+    @Test
+    public void fitsRunEveryIterationWithoutStoppingCriteria() {
+        Template template = template(200);
+        TrainingResult result = template.neuralNetwork.train(DATA_INPUT, template, false);
+        assertEquals(StopReason.ITERATIONS, result.getStopReason());
+        assertEquals(200, result.getIterations());
+    }
+
+    @Test
+    public void fitsStopAtTheTargetCost() {
+        Template reference = template(200);
+        Template template = template(Integer.MAX_VALUE);
+        template.neuralNetwork = reference.neuralNetwork.copy();
+        double cost = reference.neuralNetwork.train(DATA_INPUT, reference, false).getCost();
+
+        template.targetCost = cost;
+        TrainingResult result = template.neuralNetwork.train(DATA_INPUT, template, false);
+        assertEquals(StopReason.TARGET_COST, result.getStopReason());
+        assertTrue(result.getIterations() <= 200, "stopped after " + result.getIterations() + " iterations");
+        assertTrue(result.getCost() <= cost);
+    }
+
+    @Test
+    public void fitsStopWhenTheCostConverges() {
+        Template template = template(Integer.MAX_VALUE);
+        template.minImprovement = Double.MAX_VALUE;
+        template.patience = 25;
+        TrainingResult result = template.neuralNetwork.train(DATA_INPUT, template, false);
+        assertEquals(StopReason.CONVERGED, result.getStopReason());
+        assertEquals(26, result.getIterations());
+    }
+
+    @Test
+    public void fitsStopAtTheDeadline() {
+        Template template = template(Integer.MAX_VALUE);
+        template.timeBudgetMillis = 50;
+        TrainingResult result = template.neuralNetwork.train(DATA_INPUT, template, false);
+        assertEquals(StopReason.DEADLINE, result.getStopReason());
+        assertTrue(result.getIterations() < Integer.MAX_VALUE);
+    }
+
+    /**
+     * Create a template of the double model without stopping criteria.
+     * @param iteration the number of iterations of a fit
+     * @return a new template
+     */
+    private static Template template(int iteration) {
+        Template template = TestSeries.template(ModelType.DOUBLE);
+        template.iteration = iteration;
+        return template;
+    }
+}
@@ -0,0 +1,65 @@
+package cpen221.mp3.Model;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class StreamingForecasterTest {
+    private static final double LEARN_RATE = 0.001;
+
+    @Test
+    public void onlineUpdatesFillEveryOutput() {
+        int[] layerSizes = {3, 2};
+        double[] values = TestSeries.series(50, 5);
+
+        NeuralNetwork streamed = new NeuralNetwork(layerSizes);
+        new StreamingForecaster(streamed, ModelType.DOUBLE, LEARN_RATE).pushAll(values);
+
+        NeuralNetwork expected = new NeuralNetwork(layerSizes);
+        for (int i = 0; i + 4 <= values.length; i++) {
+            expected.learnOne(Arrays.copyOfRange(values, i, i + 3), Arrays.copyOfRange(values, i + 1, i + 3),
+                    LEARN_RATE, false);
+        }
+
+        assertArrayEquals(parameters(expected), parameters(streamed));
+    }
+
+    @Test
+    public void onlineUpdatesPublishOnTheInterval() {
+        NeuralNetwork network = new NeuralNetwork(new int[]{3, 1});
+        StreamingForecaster forecaster = new StreamingForecaster(network, ModelType.DOUBLE, LEARN_RATE, 10);
+        double[] values = TestSeries.series(20, 6);
+        ParameterSnapshot initial = network.getSnapshot();
+
+        int i = 0;
+        for (; i < 3 + 9; i++) {
+            forecaster.push(values[i]);
+        }
+        assertSame(initial, network.getSnapshot(), "pushes published before the interval");
+
+        forecaster.push(values[i++]);
+        ParameterSnapshot published = network.getSnapshot();
+        assertNotSame(initial, published, "pushes did not publish on the interval");
+
+        forecaster.push(values[i]);
+        assertSame(published, network.getSnapshot(), "pushes published before the interval");
+        forecaster.forecast(1);
+        assertNotSame(published, network.getSnapshot(), "forecast did not see the last online update");
+    }
+
+    /**
+     * Get the weights and biases of a neural network in the order of its layout.
+     * @param network the neural network
+     * @return every parameter
+     */
+    private static double[] parameters(NeuralNetwork network) {
+        double[] parameters = new double[network.getParameterCount()];
+        network.writeParameters(DoubleBuffer.wrap(parameters));
+        return parameters;
+    }
+}
@@ -0,0 +1,102 @@
+package cpen221.mp3.Model;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TemplateSearchTest {
+    private static final long BUDGET_MILLIS = 300;
+    private static final long UNBOUNDED_MILLIS = 5000;
+    private static final double[] DATA_INPUT = TestSeries.series(400, 10);
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    public void createExecutor() {
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @AfterEach
+    public void shutDownExecutor() {
+        executor.shutdown();
+    }
+
+    /**
+     * A search of candidates that would each train for much longer than the budget ends long
+     * before UNBOUNDED_MILLIS, on one thread, and still scores its best candidate.
+     */
+    @Test
+    public void searchEndsAtTheBudget() throws InterruptedException {
+        List<Template> candidates = TemplateSearch.grid(new int[][]{{4, 3, 1}, {3, 6, 1}, {4, 8, 1}},
+                new double[]{0.0001, 0.0003, 0.001, 0.003}, 65000);
+        long start = System.nanoTime();
+        SearchResult result = TemplateSearch.search(DATA_INPUT, ModelType.DOUBLE, candidates, 10,
+                BUDGET_MILLIS, executor, 1);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000L;
+
+        assertTrue(elapsedMillis < UNBOUNDED_MILLIS,
+                "search with a budget of " + BUDGET_MILLIS + " ms took " + elapsedMillis + " ms");
+        assertTrue(result.getHoldoutError() < Double.POSITIVE_INFINITY, "no candidate was scored");
+    }
+
+    /**
+     * A candidate that learns beats candidates whose learning rate is too small to move their
+     * weights, wherever it is in the list.
+     */
+    @Test
+    public void theBestCandidateWins() throws InterruptedException {
+        Template good = new Template(new int[]{4, 3, 1}, 0.000135, 3000);
+        List<Template> candidates = new ArrayList<>(TemplateSearch.grid(new int[][]{{4, 3, 1}},
+                new double[]{1e-12, 1e-11, 1e-10}, 3000));
+        candidates.add(good);
+
+        SearchResult result = TemplateSearch.search(DATA_INPUT, ModelType.DOUBLE, candidates, 10, 0, executor, 1);
+
+        assertSame(good, result.getTemplate());
+        assertEquals(4, result.getCandidates());
+    }
+
+    /**
+     * Each round trains only the better half of the candidates of the round before, so of four
+     * candidates two train once, one twice and the best three times and once more to fine-tune.
+     */
+    @Test
+    public void halvingPrunesTheWorseHalf() throws InterruptedException {
+        List<Template> candidates = TemplateSearch.grid(new int[][]{{4, 3, 1}},
+                new double[]{0.00005, 0.0001, 0.0002, 0.0004}, 300);
+        int[] fits = new int[candidates.size()];
+        for (int i = 0; i < candidates.size(); i++) {
+            int candidate = i;
+            candidates.get(i).neuralNetwork.setTrainingListener(new TrainingListener() {
+                @Override
+                public void onIteration(int iteration, double cost, double gradientNorm, long elapsedNanos,
+                                        long forwardPasses) {
+                }
+
+                @Override
+                public void onFitEnd(TrainingResult result, long elapsedNanos) {
+                    fits[candidate]++;
+                }
+            });
+        }
+
+        SearchResult result = TemplateSearch.search(DATA_INPUT, ModelType.DOUBLE, candidates, 10, 0, executor, 1);
+
+        assertEquals(4, result.getCandidates());
+        assertEquals(3, result.getRounds());
+        assertEquals(4, fits[candidates.indexOf(result.getTemplate())]);
+        Arrays.sort(fits);
+        assertArrayEquals(new int[]{1, 1, 2, 4}, fits);
+    }
+}
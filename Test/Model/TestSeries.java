@@ -0,0 +1,102 @@
+package cpen221.mp3.Model;
+
+import java.nio.DoubleBuffer;
+import java.util.Random;
+
+final class TestSeries {
+    /*
+     ABSTRACTION FUNCTION:
+     - Creates the data inputs of the tests, the same series the benchmarks run on, and the
+     templates NNInterface trains on them.
+     */
+
+    private TestSeries() {
+    }
+
+    /**
+     * Create a noisy seasonal series.
+     * @param length the number of values
+     * @param seed the seed of the noise
+     * @return the values of the series
+     */
+    static double[] series(int length, long seed) {
+        Random random = new Random(seed);
+        double[] values = new double[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = 10 + 2 * Math.sin(i * 0.3) + 0.01 * i + 0.2 * random.nextGaussian();
+        }
+        return values;
+    }
+
+    /**
+     * Create a series of zeros and ones that repeat in pairs.
+     * @param length the number of values
+     * @return the values of the series
+     */
+    static double[] booleanSeries(int length) {
+        double[] values = new double[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = (i / 2) % 2;
+        }
+        return values;
+    }
+
+    /**
+     * Create the template NNInterface uses for a model, with the first layer of the boolean model
+     * sized for booleanSeries.
+     * @param model the model
+     * @return a new untrained template of the model
+     */
+    static Template template(ModelType model) {
+        switch (model) {
+            case BOOLEAN:
+                return new Template(new int[]{3, 1}, 0.5, 5000);
+            case DOUBLE:
+                return new Template(new int[]{4, 3, 1}, 0.000135, 65000);
+            default:
+                return new Template(new int[]{3, 6, 1}, 0.02, 20000);
+        }
+    }
+
+    /**
+     * Train the neural network of a template the way NNInterface trains a model.
+     * @param template the template to train
+     * @param model the model of the template
+     * @param dataInput the data input
+     * @return the trained neural network of the template
+     */
+    static NeuralNetwork train(Template template, ModelType model, double[] dataInput) {
+        if (model == ModelType.DOUBLE_TIMESTAMP) {
+            template.neuralNetwork.trainTimeStamp(dataInput, template, false);
+        } else {
+            template.neuralNetwork.train(dataInput, template, model == ModelType.BOOLEAN);
+        }
+        return template.neuralNetwork;
+    }
+
+    /**
+     * Get the weights and biases of a neural network in the order of its layout.
+     * @param network the neural network
+     * @return every parameter
+     */
+    static double[] parameters(NeuralNetwork network) {
+        double[] parameters = new double[network.getParameterCount()];
+        network.writeParameters(DoubleBuffer.wrap(parameters));
+        return parameters;
+    }
+
+    /**
+     * Get the difference between the largest and the smallest value of an array.
+     * @param values the values
+     * @return the range of the values
+     */
+    static double range(double[] values) {
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (double value : values) {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        return max - min;
+    }
+}
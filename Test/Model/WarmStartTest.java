@@ -0,0 +1,47 @@
+package cpen221.mp3.Model;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class WarmStartTest {
+    private static final int PREVIOUS_LENGTH = 200;
+    private static final int NEW_VALUES = 16;
+    private static final double COST_TOLERANCE = 0.05;
+
+    /**
+     * Fine-tuning the network of the first PREVIOUS_LENGTH values on NEW_VALUES more values gives
+     * a cost on the whole data input that is at most COST_TOLERANCE above the cost of a network
+     * trained from scratch on the whole data input.
+     */
+    @ParameterizedTest
+    @EnumSource(ModelType.class)
+    public void warmStartIsAsAccurateAsFullRetraining(ModelType model) {
+        boolean isBoolean = model == ModelType.BOOLEAN;
+        boolean isTimeStamp = model == ModelType.DOUBLE_TIMESTAMP;
+        double[] dataInput = isBoolean ? TestSeries.booleanSeries(PREVIOUS_LENGTH + NEW_VALUES)
+                : TestSeries.series(PREVIOUS_LENGTH + NEW_VALUES, 7);
+        double[] previous = Arrays.copyOf(dataInput, PREVIOUS_LENGTH);
+
+        Template warmTemplate = TestSeries.template(model);
+        NeuralNetwork warm = warmTemplate.neuralNetwork;
+        if (isTimeStamp) {
+            warm.trainTimeStamp(previous, warmTemplate, isBoolean);
+            warm.updateTimeStamp(dataInput, PREVIOUS_LENGTH, warmTemplate, isBoolean);
+        } else {
+            warm.train(previous, warmTemplate, isBoolean);
+            warm.update(dataInput, PREVIOUS_LENGTH, warmTemplate, isBoolean);
+        }
+
+        NeuralNetwork full = TestSeries.train(TestSeries.template(model), model, dataInput);
+
+        double warmCost = isTimeStamp ? warm.scoreTimeStamp(dataInput, isBoolean) : warm.score(dataInput, isBoolean);
+        double fullCost = isTimeStamp ? full.scoreTimeStamp(dataInput, isBoolean) : full.score(dataInput, isBoolean);
+        assertTrue(warmCost <= (1 + COST_TOLERANCE) * fullCost,
+                model + " warm start cost " + warmCost + " is more than " + COST_TOLERANCE * 100
+                        + "% above the full retraining cost " + fullCost);
+    }
+}
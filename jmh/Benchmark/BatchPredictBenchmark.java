@@ -0,0 +1,63 @@
+package cpen221.mp3.Benchmark;
+
+import cpen221.mp3.Model.ModelType;
+import cpen221.mp3.Model.NNInterface;
+import cpen221.mp3.Model.PredictionJob;
+import cpen221.mp3.Model.PredictionResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark NNInterface.predictAll training a batch of independent series with growing parallelism.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class BatchPredictBenchmark {
+    private static final int BATCH_SIZE = 16;
+
+    @Param({"1", "2", "4"})
+    public int parallelism;
+
+    private List<PredictionJob> jobs;
+    private ExecutorService executor;
+
+    @Setup
+    public void setUp() {
+        jobs = new ArrayList<>();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            jobs.add(new PredictionJob(BenchmarkData.series(50, 100 + i), 5, ModelType.DOUBLE_TIMESTAMP));
+        }
+        executor = Executors.newFixedThreadPool(parallelism);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Benchmark
+    public List<PredictionResult> predictAll() throws InterruptedException {
+        NNInterface.getCache().clear();
+        return NNInterface.predictAll(jobs, executor, parallelism);
+    }
+}
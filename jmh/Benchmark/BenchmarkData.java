@@ -0,0 +1,54 @@
+package cpen221.mp3.Benchmark;
+
+import java.util.Arrays;
+import java.util.Random;
+
+final class BenchmarkData {
+    /*
+     ABSTRACTION FUNCTION:
+     - Creates the data inputs and topologies shared by the benchmarks, so every benchmark of
+     the same parameters runs on the same values.
+     - A topology parameter is written with the number of nodes of each layer separated by "-",
+     such as "4-3-1", because JMH splits the values of -p on commas.
+     */
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Read a topology parameter.
+     * @param topology the number of nodes of each layer separated by "-"
+     * @return the number of nodes of each layer
+     */
+    static int[] topology(String topology) {
+        return Arrays.stream(topology.split("-")).mapToInt(Integer::parseInt).toArray();
+    }
+
+    /**
+     * Create a noisy seasonal series.
+     * @param length the number of values
+     * @param seed the seed of the noise
+     * @return the values of the series
+     */
+    static double[] series(int length, long seed) {
+        Random random = new Random(seed);
+        double[] values = new double[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = 10 + 2 * Math.sin(i * 0.3) + 0.01 * i + 0.2 * random.nextGaussian();
+        }
+        return values;
+    }
+
+    /**
+     * Create a series of zeros and ones that repeat in pairs.
+     * @param length the number of values
+     * @return the values of the series
+     */
+    static double[] booleanSeries(int length) {
+        double[] values = new double[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = (i / 2) % 2;
+        }
+        return values;
+    }
+}
@@ -0,0 +1,65 @@
+package cpen221.mp3.Benchmark;
+
+import cpen221.mp3.Model.CompiledNetwork;
+import cpen221.mp3.Model.NeuralNetwork;
+import cpen221.mp3.Model.Template;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark the forecast of the topologies of NNInterface and a larger topology with the
+ * interpreted forward pass against the forward pass compiled with the weights as constants.
+ * A topology of two layers predicts a boolean, as the boolean model of NNInterface does.
+ * Every weight of a new network is the same, so the hidden nodes of the compiled forward pass
+ * are common subexpressions, which makes the larger topology faster than with trained weights.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompiledBenchmark {
+    private static final int STEPS = 10;
+
+    @Param({"3-1", "4-3-1", "3-6-1", "16-32-1"})
+    public String topology;
+
+    private boolean isBoolean;
+    private double[] dataInput;
+    private NeuralNetwork network;
+    private CompiledNetwork compiled;
+
+    @Setup
+    public void setUp() {
+        int[] layerSizes = BenchmarkData.topology(topology);
+        isBoolean = layerSizes.length == 2;
+        dataInput = isBoolean ? BenchmarkData.booleanSeries(100) : BenchmarkData.series(100, 3);
+        network = new Template(layerSizes, 0.0001, 1).neuralNetwork;
+        compiled = network.copy().compile(isBoolean);
+        if (!compiled.isCompiled()) {
+            throw new IllegalStateException("The forward pass of " + topology + " could not be compiled");
+        }
+    }
+
+    @Benchmark
+    public double[] interpreted() {
+        return network.forecast(dataInput, STEPS, isBoolean);
+    }
+
+    @Benchmark
+    public double[] compiled() {
+        return compiled.forecast(dataInput, STEPS);
+    }
+}
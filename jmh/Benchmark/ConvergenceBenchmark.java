@@ -0,0 +1,78 @@
+package cpen221.mp3.Benchmark;
+
+import cpen221.mp3.Model.AdamOptimizer;
+import cpen221.mp3.Model.LearningRateSchedule;
+import cpen221.mp3.Model.ModelType;
+import cpen221.mp3.Model.Template;
+import cpen221.mp3.Model.TrainingResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark training the template of each model to the end, with plain gradient descent for
+ * the iterations of NNInterface and with Adam and a cosine schedule for a tenth of them.
+ * OptimizerTest checks that Adam reaches at most the final cost of gradient descent.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ConvergenceBenchmark {
+    @Param({"BOOLEAN", "DOUBLE", "DOUBLE_TIMESTAMP"})
+    public ModelType model;
+
+    @Param({"SGD", "ADAM"})
+    public String optimizer;
+
+    private double[] dataInput;
+    private Template template;
+
+    @Setup(Level.Trial)
+    public void setUpSeries() {
+        dataInput = model == ModelType.BOOLEAN ? BenchmarkData.booleanSeries(200) : BenchmarkData.series(200, 5);
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpTemplate() {
+        boolean adam = optimizer.equals("ADAM");
+        switch (model) {
+            case BOOLEAN:
+                template = adam ? new Template(new int[]{3, 1}, 0.3, 500) : new Template(new int[]{3, 1}, 0.5, 5000);
+                break;
+            case DOUBLE:
+                template = adam ? new Template(new int[]{4, 3, 1}, 0.003, 6500)
+                        : new Template(new int[]{4, 3, 1}, 0.000135, 65000);
+                break;
+            default:
+                template = adam ? new Template(new int[]{3, 6, 1}, 0.003, 2000)
+                        : new Template(new int[]{3, 6, 1}, 0.02, 20000);
+                break;
+        }
+        if (adam) {
+            template.optimizer = new AdamOptimizer();
+            template.schedule = LearningRateSchedule.cosine(0.01);
+        }
+    }
+
+    @Benchmark
+    public TrainingResult train() {
+        if (model == ModelType.DOUBLE_TIMESTAMP) {
+            return template.neuralNetwork.trainTimeStamp(dataInput, template, false);
+        }
+        return template.neuralNetwork.train(dataInput, template, model == ModelType.BOOLEAN);
+    }
+}
@@ -0,0 +1,52 @@
+package cpen221.mp3.Benchmark;
+
+import cpen221.mp3.Model.NeuralNetwork;
+import cpen221.mp3.Model.Template;
+import cpen221.mp3.Model.WeightLayout;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark a forecast of 24 steps predicted one step at a time against one predicted by a
+ * network whose last layer predicts all 24 steps in a single forward pass.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HorizonBenchmark {
+    private static final int STEPS = 24;
+
+    private double[] dataInput;
+    private NeuralNetwork stepwise;
+    private NeuralNetwork direct;
+
+    @Setup
+    public void setUp() {
+        dataInput = BenchmarkData.series(100, 3);
+        stepwise = new Template(new int[]{8, 16, 1}, 0.0001, 1).neuralNetwork;
+        direct = new Template(new int[]{8, 16, STEPS}, 0.0001, 1, WeightLayout.COLUMN_MAJOR, STEPS).neuralNetwork;
+    }
+
+    @Benchmark
+    public double[] stepwise() {
+        return stepwise.forecast(dataInput, STEPS, false);
+    }
+
+    @Benchmark
+    public double[] direct() {
+        return direct.forecast(dataInput, STEPS, false);
+    }
+}
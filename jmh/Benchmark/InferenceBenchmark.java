@@ -0,0 +1,76 @@
+package cpen221.mp3.Benchmark;
+
+import cpen221.mp3.Model.Layer;
+import cpen221.mp3.Model.NeuralNetwork;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark running a network on every window of a long series, one window at a time
+ * against batched matrix-matrix passes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InferenceBenchmark {
+    @Param({"4-3-1", "3-6-1", "16-32-1"})
+    public String topology;
+
+    @Param({"10000"})
+    public int length;
+
+    private int[] layerSizes;
+    private double[] dataInput;
+    private int windows;
+    private Layer[] layers;
+    private double[][] activations;
+    private double[] outputs;
+    private NeuralNetwork network;
+
+    @Setup
+    public void setUp() {
+        layerSizes = BenchmarkData.topology(topology);
+        dataInput = BenchmarkData.series(length, 6);
+        windows = length - layerSizes[0] + 1;
+        layers = new Layer[layerSizes.length - 1];
+        activations = new double[layerSizes.length][];
+        activations[0] = new double[layerSizes[0]];
+        for (int l = 0; l < layers.length; l++) {
+            layers[l] = new Layer(layerSizes[l], layerSizes[l + 1]);
+            activations[l + 1] = new double[layerSizes[l + 1]];
+        }
+        outputs = new double[windows];
+        network = new NeuralNetwork(layerSizes);
+    }
+
+    @Benchmark
+    public double[] vector() {
+        for (int w = 0; w < windows; w++) {
+            System.arraycopy(dataInput, w, activations[0], 0, layerSizes[0]);
+            for (int l = 0; l < layers.length; l++) {
+                layers[l].getOutput(activations[l], activations[l + 1], false);
+            }
+            outputs[w] = activations[layers.length][0];
+        }
+        return outputs;
+    }
+
+    @Benchmark
+    public double[] batch() {
+        return network.forwardBatch(dataInput, 0, 1, windows, false);
+    }
+}
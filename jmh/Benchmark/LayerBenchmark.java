@@ -0,0 +1,53 @@
+package cpen221.mp3.Benchmark;
+
+import cpen221.mp3.Model.Layer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark the forward pass of the layers of each topology, one input vector at a time.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LayerBenchmark {
+    @Param({"4-3-1", "3-6-1", "16-32-1"})
+    public String topology;
+
+    private Layer[] layers;
+    private double[][] activations;
+
+    @Setup
+    public void setUp() {
+        int[] layerSizes = BenchmarkData.topology(topology);
+        layers = new Layer[layerSizes.length - 1];
+        activations = new double[layerSizes.length][];
+        activations[0] = BenchmarkData.series(layerSizes[0], 1);
+        for (int l = 0; l < layers.length; l++) {
+            layers[l] = new Layer(layerSizes[l], layerSizes[l + 1]);
+            activations[l + 1] = new double[layerSizes[l + 1]];
+        }
+    }
+
+    @Benchmark
+    public double[][] getOutput() {
+        for (int l = 0; l < layers.length; l++) {
+            layers[l].getOutput(activations[l], activations[l + 1], false);
+        }
+        return activations;
+    }
+}
@@ -0,0 +1,199 @@
+package cpen221.mp3.Benchmark;
+
+import cpen221.mp3.Model.ModelType;
+import cpen221.mp3.Model.PredictionJob;
+import cpen221.mp3.Server.PredictionServer;
+import cpen221.mp3.Server.PredictionService;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A load test of the prediction server.
+ *
+ * It is packaged with the JMH benchmarks rather than the library. Run it from the project
+ * directory with
+ * <pre>
+ *     mvn -B package -pl jmh -am -DskipTests
+ *     java -cp jmh/target/benchmarks.jar cpen221.mp3.Benchmark.LoadTest
+ * </pre>
+ * Without an argument, the load test starts a server on a free port of localhost; an argument
+ * is the URL of a running server instead, for example {@code http://localhost:8080}.
+ * Every client sends requests for one of a few series to /predict, one after another, so
+ * requests for the same series are coalesced and answered by warm networks once trained.
+ * The system properties load.clients, load.series, load.time and load.warmup set the number of
+ * clients, the number of distinct series and the measured and warmup time in milliseconds.
+ * The throughput, the latency percentiles and the number of answers of each status are printed.
+ */
+public class LoadTest {
+    private static final int SERIES_LENGTH = 40;
+    private static final int STEPS = 5;
+
+    public static void main(String[] args) throws Exception {
+        int clients = Integer.getInteger("load.clients", 16);
+        int seriesCount = Integer.getInteger("load.series", 8);
+        long measurementMillis = Long.getLong("load.time", 10000);
+        long warmupMillis = Long.getLong("load.warmup", 2000);
+
+        PredictionServer server = null;
+        String url;
+        if (args.length > 0) {
+            url = args[0];
+        } else {
+            PredictionServer.useTcpNoDelay();
+            int processors = Runtime.getRuntime().availableProcessors();
+            server = new PredictionServer(0, new PredictionService(processors, Math.max(1, processors / 2), 256));
+            server.start();
+            url = "http://localhost:" + server.getPort();
+        }
+
+        String[] bodies = new String[seriesCount];
+        Random random = new Random(42);
+        for (int s = 0; s < seriesCount; s++) {
+            double[] dataInput = new double[SERIES_LENGTH];
+            for (int i = 0; i < SERIES_LENGTH; i++) {
+                dataInput[i] = 10 + 5 * Math.sin(i / (2.0 + s)) + random.nextGaussian() * 0.1;
+            }
+            bodies[s] = PredictionServer.format(new PredictionJob(dataInput, STEPS, ModelType.DOUBLE));
+        }
+
+        HttpClient client = HttpClient.newHttpClient();
+        URI predict = URI.create(url + "/predict");
+        run(client, predict, bodies, clients, warmupMillis);
+        Result result = run(client, predict, bodies, clients, measurementMillis);
+        result.print(measurementMillis);
+
+        if (server != null) {
+            PredictionService service = server.getService();
+            System.out.printf("server: completed=%d coalesced=%d rejected=%d trained=%d%n",
+                    service.getCompleted(), service.getCoalesced(), service.getRejected(), service.getTrained());
+            server.stop(1000);
+        }
+    }
+
+    /**
+     * Send requests from every client until the given time has passed.
+     * @param client the HTTP client
+     * @param predict the URI of /predict
+     * @param bodies the bodies of the requests, which the clients choose from at random
+     * @param clients the number of clients
+     * @param millis the time the clients send requests for
+     * @return the latencies and status counts of the requests
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    private static Result run(HttpClient client, URI predict, String[] bodies, int clients, long millis)
+            throws InterruptedException {
+        Result result = new Result();
+        long deadline = System.nanoTime() + millis * 1_000_000L;
+        Thread[] threads = new Thread[clients];
+
+        for (int c = 0; c < clients; c++) {
+            Random random = new Random(c);
+            threads[c] = new Thread(() -> {
+                long[] latencies = new long[1024];
+                int count = 0;
+                while (System.nanoTime() < deadline) {
+                    HttpRequest request = HttpRequest.newBuilder(predict)
+                            .POST(HttpRequest.BodyPublishers.ofString(bodies[random.nextInt(bodies.length)]))
+                            .build();
+                    long start = System.nanoTime();
+                    int status;
+                    try {
+                        status = client.send(request, HttpResponse.BodyHandlers.ofString()).statusCode();
+                    } catch (IOException e) {
+                        status = 0;
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                    if (count == latencies.length) {
+                        latencies = Arrays.copyOf(latencies, count * 2);
+                    }
+                    latencies[count++] = System.nanoTime() - start;
+                    result.count(status);
+                }
+                result.add(latencies, count);
+            });
+            threads[c].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return result;
+    }
+
+    private static final class Result {
+        private final AtomicLong ok = new AtomicLong();
+        private final AtomicLong overloaded = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private long[] latencies = new long[0];
+
+        /*
+         ABSTRACTION FUNCTION:
+         - A result holds the latency in nanoseconds of every request of a load test, and counts
+         its answers with status 200 in ok, with status 503 in overloaded and the others in failed.
+
+         REPRESENTATION INVARIANT:
+         - latencies is only used while holding the lock of this result
+         */
+
+        /**
+         * Count the answer of a request.
+         * @param status the status code of the answer, or 0 if the request failed without one
+         */
+        private void count(int status) {
+            if (status == 200) {
+                ok.incrementAndGet();
+            } else if (status == 503) {
+                overloaded.incrementAndGet();
+            } else {
+                failed.incrementAndGet();
+            }
+        }
+
+        /**
+         * Add the latencies of a client.
+         * @param clientLatencies the latencies of the requests of the client
+         * @param count the number of requests of the client
+         */
+        private synchronized void add(long[] clientLatencies, int count) {
+            int start = latencies.length;
+            latencies = Arrays.copyOf(latencies, start + count);
+            System.arraycopy(clientLatencies, 0, latencies, start, count);
+        }
+
+        /**
+         * Print the throughput, the latency percentiles and the status counts.
+         * @param millis the time the requests were sent for
+         */
+        private synchronized void print(long millis) {
+            long[] sorted = latencies.clone();
+            Arrays.sort(sorted);
+            System.out.printf("requests=%d throughput=%.1f req/s%n", sorted.length, sorted.length * 1000.0 / millis);
+            System.out.printf("latency ms: p50=%.3f p90=%.3f p99=%.3f max=%.3f%n",
+                    percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99),
+                    percentile(sorted, 1.0));
+            System.out.printf("status: 200=%d 503=%d other=%d%n", ok.get(), overloaded.get(), failed.get());
+        }
+
+        /**
+         * Get a percentile of sorted latencies in milliseconds.
+         * @param sorted the latencies in nanoseconds, in increasing order
+         * @param fraction the fraction of latencies that are at most the percentile
+         * @return the percentile in milliseconds, or 0 if there are no latencies
+         */
+        private static double percentile(long[] sorted, double fraction) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(fraction * sorted.length) - 1;
+            return sorted[Math.max(0, index)] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package cpen221.mp3.Benchmark;
+
+import cpen221.mp3.Model.NeuralNetwork;
+import cpen221.mp3.Model.QuantizationScale;
+import cpen221.mp3.Model.QuantizedNetwork;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark a forecast of one step from each of many models in turn, whose parameters only fit
+ * in the cache once they are quantized.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ManyModelsBenchmark {
+    @Param({"8192"})
+    public int models;
+
+    private double[] dataInput;
+    private NeuralNetwork[] networks;
+    private QuantizedNetwork[] quantized;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        dataInput = BenchmarkData.series(100, 3);
+        networks = new NeuralNetwork[models];
+        quantized = new QuantizedNetwork[models];
+        for (int i = 0; i < models; i++) {
+            networks[i] = new NeuralNetwork(new int[]{16, 32, 1});
+            quantized[i] = networks[i].quantize(QuantizationScale.PER_CHANNEL);
+        }
+    }
+
+    @Benchmark
+    public double[] doublePrecision() {
+        next = (next + 1) % models;
+        return networks[next].forecast(dataInput, 1, false);
+    }
+
+    @Benchmark
+    public double[] int8() {
+        next = (next + 1) % models;
+        return quantized[next].forecast(dataInput, 1, false);
+    }
+}
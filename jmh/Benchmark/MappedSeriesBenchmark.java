@@ -0,0 +1,67 @@
+package cpen221.mp3.Benchmark;
+
+import cpen221.mp3.Model.MappedSeriesSource;
+import cpen221.mp3.Model.Precision;
+import cpen221.mp3.Model.SeriesSource;
+import cpen221.mp3.Model.SeriesWindows;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark reading the training windows of a series from a memory-mapped file of each precision.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappedSeriesBenchmark {
+    @Param({"100", "1000", "10000"})
+    public int length;
+
+    @Param({"DOUBLE", "SINGLE"})
+    public Precision precision;
+
+    private double[] window;
+    private Path binary;
+    private MappedSeriesSource mapped;
+
+    @Setup
+    public void setUp() throws IOException {
+        window = new double[4];
+        binary = Files.createTempFile("series", ".bin");
+        MappedSeriesSource.write(SeriesSource.of(BenchmarkData.series(length, 4)), binary, precision);
+        mapped = MappedSeriesSource.open(binary, precision);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        mapped = null;
+        Files.deleteIfExists(binary);
+    }
+
+    @Benchmark
+    public double[] windows() {
+        SeriesWindows windows = new SeriesWindows(mapped, 0, window.length, 0, length - window.length + 1);
+        for (int i = 0; i < windows.size(); i++) {
+            windows.copyWindow(i, window);
+        }
+        return window;
+    }
+}
@@ -0,0 +1,57 @@
+package cpen221.mp3.Benchmark;
+
+import cpen221.mp3.Model.ModelType;
+import cpen221.mp3.Model.NNInterface;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark NNInterface.predict for each model, training from scratch and answering from the cache.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@Fork(1)
+public class PredictBenchmark {
+    private static final int STEPS = 5;
+
+    @Param({"BOOLEAN", "DOUBLE", "DOUBLE_TIMESTAMP"})
+    public ModelType model;
+
+    @Param({"50", "200"})
+    public int length;
+
+    private double[] dataInput;
+
+    @Setup
+    public void setUp() {
+        dataInput = model == ModelType.BOOLEAN ? BenchmarkData.booleanSeries(length) : BenchmarkData.series(length, 5);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2, time = 2)
+    @Measurement(iterations = 3, time = 2)
+    public double[] cold() {
+        NNInterface.getCache().clear();
+        return NNInterface.predict(dataInput, STEPS, model);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 3, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    public double[] cached() {
+        return NNInterface.predict(dataInput, STEPS, model);
+    }
+}
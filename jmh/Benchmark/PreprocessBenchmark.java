@@ -0,0 +1,79 @@
+package cpen221.mp3.Benchmark;
+
+import cpen221.mp3.Model.CsvSeriesReader;
+import cpen221.mp3.Model.SeriesWindows;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark building and reading the training windows of a series, differencing it, and
+ * parsing it from a CSV file.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PreprocessBenchmark {
+    @Param({"100", "1000", "10000"})
+    public int length;
+
+    private double[] dataInput;
+    private double[] window;
+    private Path csv;
+    private CsvSeriesReader reader;
+
+    @Setup
+    public void setUp() throws IOException {
+        dataInput = BenchmarkData.series(length, 4);
+        window = new double[4];
+
+        csv = Files.createTempFile("series", ".csv");
+        StringBuilder text = new StringBuilder("index,value\n");
+        for (int i = 0; i < length; i++) {
+            text.append(i).append(',').append(dataInput[i]).append('\n');
+        }
+        Files.writeString(csv, text);
+        reader = new CsvSeriesReader(csv, 1, true);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(csv);
+    }
+
+    @Benchmark
+    public double[] windows() {
+        SeriesWindows windows = new SeriesWindows(dataInput, 0, window.length, 0);
+        for (int i = 0; i < windows.size(); i++) {
+            windows.copyWindow(i, window);
+        }
+        return window;
+    }
+
+    @Benchmark
+    public double[] difference() {
+        return SeriesWindows.difference(dataInput, 0);
+    }
+
+    @Benchmark
+    public double[] csv() throws IOException {
+        return reader.read();
+    }
+}
@@ -0,0 +1,56 @@
+package cpen221.mp3.Benchmark;
+
+import cpen221.mp3.Model.NeuralNetwork;
+import cpen221.mp3.Model.QuantizationScale;
+import cpen221.mp3.Model.QuantizedNetwork;
+import cpen221.mp3.Model.Template;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark the forecast of each topology from a neural network against its int8 copy.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QuantizedBenchmark {
+    private static final int STEPS = 10;
+
+    @Param({"4-3-1", "3-6-1", "16-32-1"})
+    public String topology;
+
+    private double[] dataInput;
+    private NeuralNetwork network;
+    private QuantizedNetwork quantized;
+
+    @Setup
+    public void setUp() {
+        dataInput = BenchmarkData.series(100, 3);
+        network = new Template(BenchmarkData.topology(topology), 0.0001, 1).neuralNetwork;
+        quantized = network.quantize(QuantizationScale.PER_CHANNEL);
+    }
+
+    @Benchmark
+    public double[] doublePrecision() {
+        return network.forecast(dataInput, STEPS, false);
+    }
+
+    @Benchmark
+    public double[] int8() {
+        return quantized.forecast(dataInput, STEPS, false);
+    }
+}
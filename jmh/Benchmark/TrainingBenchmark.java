@@ -0,0 +1,54 @@
+package cpen221.mp3.Benchmark;
+
+import cpen221.mp3.Model.Precision;
+import cpen221.mp3.Model.Template;
+import cpen221.mp3.Model.TrainingResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark one training iteration over every window of a series, for each topology, series
+ * length and precision, so the single-precision path is compared with the double path.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TrainingBenchmark {
+    @Param({"4-3-1", "3-6-1", "16-32-1"})
+    public String topology;
+
+    @Param({"100", "1000", "10000"})
+    public int length;
+
+    @Param({"DOUBLE", "SINGLE"})
+    public Precision precision;
+
+    private double[] dataInput;
+    private Template template;
+
+    @Setup
+    public void setUp() {
+        dataInput = BenchmarkData.series(length, 2);
+        template = new Template(BenchmarkData.topology(topology), 0.0001, 1);
+        template.precision = precision;
+    }
+
+    @Benchmark
+    public TrainingResult learn() {
+        return template.neuralNetwork.train(dataInput, template, false);
+    }
+}